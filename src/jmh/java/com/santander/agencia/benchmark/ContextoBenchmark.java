@@ -0,0 +1,77 @@
+package com.santander.agencia.benchmark;
+
+import com.santander.agencia.AgenciaApiApplication;
+import com.santander.agencia.config.ModoConsulta;
+import com.santander.agencia.index.IndiceEspacialAgencias;
+import com.santander.agencia.repository.MigracaoCodigoEspacial;
+import org.springframework.boot.Banner;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Sobe a aplicação sem servidor web, com um banco H2 em memória exclusivo, e carrega as
+ * agências geradas diretamente por JDBC.
+ */
+public final class ContextoBenchmark {
+
+    private static final int LINHAS_POR_LOTE = 10_000;
+
+    private ContextoBenchmark() {
+    }
+
+    public static ConfigurableApplicationContext iniciar(ModoConsulta modo, int tamanho, Distribuicao distribuicao) {
+        return iniciar(WebApplicationType.NONE, modo, tamanho, distribuicao);
+    }
+
+    /**
+     * Variante que permite subir o servidor web ({@link WebApplicationType#SERVLET}, em porta
+     * aleatória) e informar propriedades adicionais da aplicação. As propriedades são passadas
+     * como argumentos de linha de comando para prevalecer sobre o {@code application.yml}.
+     */
+    public static ConfigurableApplicationContext iniciar(WebApplicationType tipo, ModoConsulta modo, int tamanho,
+                                                         Distribuicao distribuicao, String... propriedades) {
+        List<String> argumentos = new ArrayList<>(List.of(
+            "spring.datasource.url=jdbc:h2:mem:benchmark_" + System.nanoTime() + ";DB_CLOSE_DELAY=-1",
+            "spring.sql.init.mode=never",
+            "server.port=0",
+            "agencia.consulta.modo=" + modo.name().toLowerCase(),
+            "agencia.cache.habilitado=false",
+            "agencia.inicializacao.aquecimento.consultas=0",
+            "logging.level.root=WARN",
+            "logging.level.com.santander=WARN"
+        ));
+        argumentos.addAll(List.of(propriedades));
+        ConfigurableApplicationContext contexto = new SpringApplicationBuilder(AgenciaApiApplication.class)
+                .web(tipo)
+                .bannerMode(Banner.Mode.OFF)
+                .run(argumentos.stream().map(propriedade -> "--" + propriedade).toArray(String[]::new));
+
+        inserir(contexto.getBean(JdbcTemplate.class), distribuicao.posicoes(tamanho, 42));
+        contexto.getBeanProvider(MigracaoCodigoEspacial.class).ifAvailable(MigracaoCodigoEspacial::preencher);
+        contexto.getBean(IndiceEspacialAgencias.class).carregar();
+        return contexto;
+    }
+
+    private static void inserir(JdbcTemplate jdbcTemplate, double[][] posicoes) {
+        double[] xs = posicoes[0];
+        double[] ys = posicoes[1];
+        Timestamp agora = Timestamp.valueOf(LocalDateTime.now());
+        for (int inicio = 0; inicio < xs.length; inicio += LINHAS_POR_LOTE) {
+            int fim = Math.min(inicio + LINHAS_POR_LOTE, xs.length);
+            List<Object[]> linhas = new ArrayList<>(fim - inicio);
+            for (int i = inicio; i < fim; i++) {
+                long id = i + 1;
+                linhas.add(new Object[] {id, "AGENCIA_" + id, xs[i], ys[i], agora});
+            }
+            jdbcTemplate.batchUpdate(
+                "INSERT INTO agencias (id, nome, pos_x, pos_y, data_criacao) VALUES (?, ?, ?, ?, ?)", linhas);
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.santander.agencia.benchmark;
+
+import java.util.Random;
+
+/**
+ * Distribuição espacial das agências e das posições consultadas nos benchmarks.
+ */
+public enum Distribuicao {
+
+    /**
+     * Posições uniformes em todo o plano ({@code x} em [-180, 180], {@code y} em [-90, 90]).
+     */
+    UNIFORME {
+        @Override
+        void gerar(Random random, double[] xs, double[] ys) {
+            for (int i = 0; i < xs.length; i++) {
+                xs[i] = random.nextDouble() * 360 - 180;
+                ys[i] = random.nextDouble() * 180 - 90;
+            }
+        }
+    },
+
+    /**
+     * Posições concentradas ao redor de {@value #CENTROS} centros, com desvio padrão de
+     * {@value #DESVIO} unidades, simulando agências em centros urbanos.
+     */
+    AGRUPADA {
+        @Override
+        void gerar(Random random, double[] xs, double[] ys) {
+            double[] centrosX = new double[CENTROS];
+            double[] centrosY = new double[CENTROS];
+            UNIFORME.gerar(random, centrosX, centrosY);
+            for (int i = 0; i < xs.length; i++) {
+                int centro = random.nextInt(CENTROS);
+                xs[i] = Math.max(-180, Math.min(180, centrosX[centro] + random.nextGaussian() * DESVIO));
+                ys[i] = Math.max(-90, Math.min(90, centrosY[centro] + random.nextGaussian() * DESVIO));
+            }
+        }
+    };
+
+    static final int CENTROS = 20;
+    static final double DESVIO = 2.0;
+
+    abstract void gerar(Random random, double[] xs, double[] ys);
+
+    /**
+     * Gera {@code quantidade} posições com semente fixa, para que execuções diferentes usem os
+     * mesmos dados.
+     *
+     * @return {@code {xs, ys}}
+     */
+    public double[][] posicoes(int quantidade, long semente) {
+        double[] xs = new double[quantidade];
+        double[] ys = new double[quantidade];
+        gerar(new Random(semente), xs, ys);
+        return new double[][] {xs, ys};
+    }
+}
@@ -0,0 +1,263 @@
+package com.santander.agencia.carga;
+
+import com.santander.agencia.benchmark.ContextoBenchmark;
+import com.santander.agencia.dto.CadastroAgenciaRequest;
+import com.santander.agencia.service.AgenciaService;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Gerador de carga sintética contra uma instância embarcada da aplicação, para comparar mudanças
+ * de desempenho sempre com a mesma carga.
+ *
+ * <p>Sobe a aplicação com o servidor web em porta aleatória e um banco H2 em memória exclusivo,
+ * cadastra as agências pelo {@link AgenciaService}, como em produção (posições recusadas pela
+ * distância mínima são substituídas por novas, até {@value #TENTATIVAS_POR_AGENCIA} tentativas por
+ * agência), e então dispara {@code POST /desafio/cadastrar} e {@code GET /desafio/distancia} na
+ * proporção e na taxa pedidas, por HTTP. Ao final imprime a vazão e os percentis de latência de
+ * cada operação e grava os histogramas em {@code saida}, no formato {@code .hgrm} do
+ * HdrHistogram.
+ *
+ * <p>A carga é de laço aberto: a i-ésima requisição está prevista para {@code i / taxa} segundos
+ * após o início, e a latência é medida a partir desse instante previsto, não do envio. Assim, uma
+ * pausa do servidor ou o limite de {@code concorrencia} atingido atrasam as requisições seguintes
+ * e esse atraso entra nos percentis, em vez de reduzir a taxa sem aparecer na medição.
+ *
+ * <p>Executar com {@code mvn -Pcarga verify -Dcarga.args="agencias=10000 taxa=500 duracao=30s"};
+ * os parâmetros estão em {@link ParametrosCarga}.
+ */
+public final class GeradorCarga {
+
+    private static final int TENTATIVAS_POR_AGENCIA = 10;
+    private static final int POSICOES_CARGA = 1 << 16;
+    private static final long LATENCIA_MAXIMA_MICROS = TimeUnit.MINUTES.toMicros(5);
+
+    private enum Operacao {
+        CADASTRAR("cadastrar"),
+        DISTANCIA("distancia");
+
+        private final String nome;
+
+        Operacao(String nome) {
+            this.nome = nome;
+        }
+    }
+
+    /**
+     * Latências e status das respostas de uma operação em uma fase da carga.
+     */
+    private static final class Medicao {
+
+        private final Histogram latencias = new ConcurrentHistogram(LATENCIA_MAXIMA_MICROS, 3);
+        private final Map<Integer, LongAdder> status = new ConcurrentHashMap<>();
+        private final LongAdder falhas = new LongAdder();
+
+        private void registrar(long previsto, HttpResponse<?> resposta, Throwable erro) {
+            long micros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - previsto);
+            latencias.recordValue(Math.min(micros, LATENCIA_MAXIMA_MICROS));
+            if (erro != null) {
+                falhas.increment();
+            } else {
+                status.computeIfAbsent(resposta.statusCode(), codigo -> new LongAdder()).increment();
+            }
+        }
+    }
+
+    private final ParametrosCarga parametros;
+    private final HttpClient cliente;
+    private final Semaphore emAndamento;
+    private final Random random;
+    private double[][] posicoesCadastro;
+    private double[][] posicoesConsulta;
+    private URI urlCadastro;
+    private String urlDistancia;
+
+    private GeradorCarga(ParametrosCarga parametros) {
+        this.parametros = parametros;
+        this.cliente = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+        this.emAndamento = new Semaphore(parametros.concorrencia());
+        this.random = new Random(parametros.semente());
+    }
+
+    public static void main(String[] args) throws Exception {
+        ParametrosCarga parametros = ParametrosCarga.ler(args);
+        String[] propriedades = parametros.propriedades().toArray(String[]::new);
+        try (ConfigurableApplicationContext contexto = ContextoBenchmark.iniciar(
+                WebApplicationType.SERVLET, parametros.modo(), 0, parametros.distribuicao(), propriedades)) {
+            new GeradorCarga(parametros).executar(contexto);
+        }
+        System.exit(0);
+    }
+
+    private void executar(ConfigurableApplicationContext contexto) throws Exception {
+        cadastrarAgencias(contexto.getBean(AgenciaService.class));
+
+        int porta = ((WebServerApplicationContext) contexto).getWebServer().getPort();
+        urlCadastro = URI.create("http://localhost:" + porta + "/desafio/cadastrar");
+        urlDistancia = "http://localhost:" + porta + "/desafio/distancia?k=" + parametros.k() + "&";
+        posicoesCadastro = parametros.gerar(POSICOES_CARGA, parametros.semente() + 1);
+        posicoesConsulta = parametros.gerar(POSICOES_CARGA, parametros.semente() + 2);
+
+        if (!parametros.aquecimento().isZero()) {
+            System.out.printf("Aquecimento por %s%n", parametros.aquecimento());
+            executarFase(parametros.aquecimento(), novasMedicoes());
+        }
+        Map<Operacao, Medicao> medicoes = novasMedicoes();
+        System.out.printf("Carga de %d req/s por %s (%.0f%% cadastros, até %d em andamento)%n",
+                          parametros.taxa(), parametros.duracao(), parametros.cadastros() * 100,
+                          parametros.concorrencia());
+        long duracaoNanos = executarFase(parametros.duracao(), medicoes);
+        relatar(medicoes, duracaoNanos);
+    }
+
+    private void cadastrarAgencias(AgenciaService servico) throws Exception {
+        int tentativas = parametros.agencias() * TENTATIVAS_POR_AGENCIA;
+        double[][] posicoes = parametros.gerar(tentativas, parametros.semente());
+        AtomicInteger proxima = new AtomicInteger();
+        AtomicInteger cadastradas = new AtomicInteger();
+        AtomicInteger recusadas = new AtomicInteger();
+        long inicio = System.nanoTime();
+
+        int threads = Runtime.getRuntime().availableProcessors();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        for (int t = 0; t < threads; t++) {
+            executor.execute(() -> {
+                int i;
+                while (cadastradas.get() < parametros.agencias() && (i = proxima.getAndIncrement()) < tentativas) {
+                    try {
+                        servico.cadastrarAgencia(new CadastroAgenciaRequest(posicoes[0][i], posicoes[1][i]));
+                        cadastradas.incrementAndGet();
+                    } catch (IllegalArgumentException e) {
+                        recusadas.incrementAndGet();
+                    }
+                }
+            });
+        }
+        executor.shutdown();
+        executor.awaitTermination(1, TimeUnit.DAYS);
+
+        System.out.printf("%d agências (%s) cadastradas pelo serviço em %.1f s, %d posições recusadas pela distância mínima%n",
+                          cadastradas.get(), parametros.descricaoPosicoes(),
+                          (System.nanoTime() - inicio) / 1e9, recusadas.get());
+        if (cadastradas.get() < parametros.agencias()) {
+            System.out.printf("Aviso: a distribuição comporta menos de %d agências com a distância mínima%n",
+                              parametros.agencias());
+        }
+    }
+
+    private static Map<Operacao, Medicao> novasMedicoes() {
+        Map<Operacao, Medicao> medicoes = new EnumMap<>(Operacao.class);
+        for (Operacao operacao : Operacao.values()) {
+            medicoes.put(operacao, new Medicao());
+        }
+        return medicoes;
+    }
+
+    /**
+     * Dispara as requisições da fase no ritmo de {@code taxa} e aguarda as respostas.
+     *
+     * @return duração da fase em nanossegundos, até a última resposta
+     */
+    private long executarFase(Duration duracao, Map<Operacao, Medicao> medicoes) throws InterruptedException {
+        long intervalo = TimeUnit.SECONDS.toNanos(1) / parametros.taxa();
+        long inicio = System.nanoTime();
+        long fim = inicio + duracao.toNanos();
+        for (long i = 0; ; i++) {
+            long previsto = inicio + i * intervalo;
+            if (previsto >= fim) {
+                break;
+            }
+            long espera = previsto - System.nanoTime();
+            if (espera > 0) {
+                LockSupport.parkNanos(espera);
+            }
+            emAndamento.acquire();
+            Operacao operacao = random.nextDouble() < parametros.cadastros() ? Operacao.CADASTRAR : Operacao.DISTANCIA;
+            Medicao medicao = medicoes.get(operacao);
+            cliente.sendAsync(requisicao(operacao, (int) (i % POSICOES_CARGA)), HttpResponse.BodyHandlers.discarding())
+                    .whenComplete((resposta, erro) -> {
+                        medicao.registrar(previsto, resposta, erro);
+                        emAndamento.release();
+                    });
+        }
+        emAndamento.acquire(parametros.concorrencia());
+        emAndamento.release(parametros.concorrencia());
+        return System.nanoTime() - inicio;
+    }
+
+    private HttpRequest requisicao(Operacao operacao, int indice) {
+        if (operacao == Operacao.CADASTRAR) {
+            String corpo = String.format(Locale.ROOT, "{\"posX\":%s,\"posY\":%s}",
+                                         posicoesCadastro[0][indice], posicoesCadastro[1][indice]);
+            return HttpRequest.newBuilder(urlCadastro)
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(corpo))
+                    .build();
+        }
+        return HttpRequest.newBuilder(URI.create(
+                urlDistancia + "posX=" + posicoesConsulta[0][indice] + "&posY=" + posicoesConsulta[1][indice]))
+                .GET()
+                .build();
+    }
+
+    private void relatar(Map<Operacao, Medicao> medicoes, long duracaoNanos) throws IOException {
+        double segundos = duracaoNanos / 1e9;
+        PrintStream saida = System.out;
+        saida.printf(Locale.ROOT, "%n%-10s %9s %9s %8s %8s %8s %8s %8s %8s%n",
+                     "operacao", "req", "req/s", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms", "falhas");
+        Files.createDirectories(parametros.saida());
+        for (Map.Entry<Operacao, Medicao> entrada : medicoes.entrySet()) {
+            Histogram latencias = entrada.getValue().latencias;
+            long total = latencias.getTotalCount();
+            saida.printf(Locale.ROOT, "%-10s %9d %9.1f %8.2f %8.2f %8.2f %8.2f %8.2f %8d%n",
+                         entrada.getKey().nome, total, total / segundos,
+                         milissegundos(latencias, 50), milissegundos(latencias, 90),
+                         milissegundos(latencias, 99), milissegundos(latencias, 99.9),
+                         latencias.getMaxValue() / 1000.0, entrada.getValue().falhas.sum());
+
+            Path arquivo = parametros.saida().resolve(entrada.getKey().nome + ".hgrm");
+            try (PrintStream hgrm = new PrintStream(Files.newOutputStream(arquivo))) {
+                latencias.outputPercentileDistribution(hgrm, 1000.0);
+            }
+        }
+        for (Map.Entry<Operacao, Medicao> entrada : medicoes.entrySet()) {
+            Map<Integer, Long> status = new TreeMap<>();
+            entrada.getValue().status.forEach((codigo, contagem) -> status.put(codigo, contagem.sum()));
+            saida.printf("Status de %s: %s%n", entrada.getKey().nome, status);
+        }
+        saida.printf("Histogramas (ms) gravados em %s%n", parametros.saida().toAbsolutePath());
+    }
+
+    private static double milissegundos(Histogram latencias, double percentil) {
+        return latencias.getValueAtPercentile(percentil) / 1000.0;
+    }
+}
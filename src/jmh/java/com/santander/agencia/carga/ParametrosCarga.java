@@ -0,0 +1,148 @@
+package com.santander.agencia.carga;
+
+import com.santander.agencia.benchmark.Distribuicao;
+import com.santander.agencia.config.ModoConsulta;
+import org.springframework.boot.convert.DurationStyle;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Parâmetros do {@link GeradorCarga}, lidos de argumentos {@code chave=valor}. Argumentos cuja
+ * chave começa com {@code agencia.}, {@code spring.} ou {@code server.} são repassados como
+ * propriedades da aplicação embarcada.
+ *
+ * @param agencias     agências cadastradas antes da carga
+ * @param distribuicao distribuição das posições cadastradas e consultadas
+ * @param posicoes     arquivo com uma posição {@code posX,posY} por linha (por exemplo, exportada
+ *                     da base real), usado no lugar de {@code distribuicao}; linhas que não são
+ *                     números, como um cabeçalho, são ignoradas
+ * @param modo         modo de consulta da aplicação
+ * @param taxa         requisições iniciadas por segundo
+ * @param aquecimento  duração da carga descartada antes da medição
+ * @param duracao      duração da carga medida
+ * @param cadastros    fração das requisições que são {@code POST /desafio/cadastrar}
+ * @param k            parâmetro {@code k} de {@code GET /desafio/distancia}
+ * @param concorrencia máximo de requisições em andamento
+ * @param semente      semente das posições geradas
+ * @param saida        diretório dos histogramas {@code .hgrm}
+ */
+record ParametrosCarga(
+    int agencias,
+    Distribuicao distribuicao,
+    Path posicoes,
+    ModoConsulta modo,
+    int taxa,
+    Duration aquecimento,
+    Duration duracao,
+    double cadastros,
+    int k,
+    int concorrencia,
+    long semente,
+    Path saida,
+    List<String> propriedades
+) {
+
+    static ParametrosCarga ler(String[] args) {
+        Map<String, String> valores = new LinkedHashMap<>();
+        List<String> propriedades = new ArrayList<>();
+        for (String arg : args) {
+            int separador = arg.indexOf('=');
+            if (separador <= 0) {
+                throw new IllegalArgumentException("Argumento inválido, esperado chave=valor: " + arg);
+            }
+            String chave = arg.substring(0, separador);
+            if (chave.startsWith("agencia.") || chave.startsWith("spring.") || chave.startsWith("server.")) {
+                propriedades.add(arg);
+            } else {
+                valores.put(chave, arg.substring(separador + 1));
+            }
+        }
+        ParametrosCarga parametros = new ParametrosCarga(
+            Integer.parseInt(valores.getOrDefault("agencias", "10000")),
+            Distribuicao.valueOf(valores.getOrDefault("distribuicao", "UNIFORME").toUpperCase(Locale.ROOT)),
+            valores.containsKey("posicoes") ? Paths.get(valores.get("posicoes")) : null,
+            ModoConsulta.valueOf(valores.getOrDefault("modo", "SQL").toUpperCase(Locale.ROOT)),
+            Integer.parseInt(valores.getOrDefault("taxa", "500")),
+            DurationStyle.detectAndParse(valores.getOrDefault("aquecimento", "10s")),
+            DurationStyle.detectAndParse(valores.getOrDefault("duracao", "30s")),
+            Double.parseDouble(valores.getOrDefault("cadastros", "0.05")),
+            Integer.parseInt(valores.getOrDefault("k", "10")),
+            Integer.parseInt(valores.getOrDefault("concorrencia", "256")),
+            Long.parseLong(valores.getOrDefault("semente", "42")),
+            Paths.get(valores.getOrDefault("saida", "target/carga")),
+            propriedades
+        );
+        for (String chave : List.of("agencias", "distribuicao", "posicoes", "modo", "taxa", "aquecimento",
+                                    "duracao", "cadastros", "k", "concorrencia", "semente", "saida")) {
+            valores.remove(chave);
+        }
+        if (!valores.isEmpty()) {
+            throw new IllegalArgumentException("Parâmetros desconhecidos: " + valores.keySet());
+        }
+        if (parametros.taxa <= 0 || parametros.concorrencia <= 0 || parametros.cadastros < 0 || parametros.cadastros > 1) {
+            throw new IllegalArgumentException("taxa e concorrencia devem ser positivas e cadastros entre 0 e 1");
+        }
+        return parametros;
+    }
+
+    /**
+     * Gera {@code quantidade} posições da distribuição ou, com {@code posicoes}, sorteadas com
+     * reposição entre as do arquivo.
+     *
+     * @return {@code {xs, ys}}
+     */
+    double[][] gerar(int quantidade, long semente) throws IOException {
+        if (posicoes == null) {
+            return distribuicao.posicoes(quantidade, semente);
+        }
+        double[][] arquivo = lerArquivo(posicoes);
+        Random random = new Random(semente);
+        double[] xs = new double[quantidade];
+        double[] ys = new double[quantidade];
+        for (int i = 0; i < quantidade; i++) {
+            int sorteada = random.nextInt(arquivo[0].length);
+            xs[i] = arquivo[0][sorteada];
+            ys[i] = arquivo[1][sorteada];
+        }
+        return new double[][] {xs, ys};
+    }
+
+    String descricaoPosicoes() {
+        return posicoes != null ? posicoes.toString() : distribuicao.name();
+    }
+
+    private static double[][] lerArquivo(Path arquivo) throws IOException {
+        List<double[]> lidas = new ArrayList<>();
+        for (String linha : Files.readAllLines(arquivo)) {
+            String[] campos = linha.split("[,;\\s]+");
+            if (campos.length < 2) {
+                continue;
+            }
+            try {
+                lidas.add(new double[] {Double.parseDouble(campos[0]), Double.parseDouble(campos[1])});
+            } catch (NumberFormatException e) {
+                // cabeçalho ou linha inválida
+            }
+        }
+        if (lidas.isEmpty()) {
+            throw new IllegalArgumentException("Nenhuma posição em " + arquivo);
+        }
+        double[] xs = new double[lidas.size()];
+        double[] ys = new double[lidas.size()];
+        for (int i = 0; i < lidas.size(); i++) {
+            xs[i] = lidas.get(i)[0];
+            ys[i] = lidas.get(i)[1];
+        }
+        return new double[][] {xs, ys};
+    }
+}
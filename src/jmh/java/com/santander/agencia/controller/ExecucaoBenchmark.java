@@ -0,0 +1,123 @@
+package com.santander.agencia.controller;
+
+import com.santander.agencia.benchmark.ContextoBenchmark;
+import com.santander.agencia.benchmark.Distribuicao;
+import com.santander.agencia.config.ModoConsulta;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compara o atendimento de {@code GET /desafio/distancia} em threads de plataforma e em threads
+ * virtuais ({@code spring.threads.virtual.enabled}) e de {@code GET /desafio/assincrono/distancia}
+ * com o Tomcat limitado a {@value #THREADS_TOMCAT_ASSINCRONO} threads, com muitas requisições
+ * simultâneas. O modo {@code Throughput} mede a vazão e o {@code SampleTime} traz os percentis da
+ * latência. Ao final de cada execução são registradas no log as threads do Tomcat e da ponte bloqueante
+ * criadas pela aplicação, que no modo {@code ASSINCRONO} não crescem com as conexões.
+ *
+ * <p>O controle de admissão fica desligado ({@code agencia.admissao.habilitado=false}): com ele, as
+ * requisições além do limite e da fila recebem {@code 503} nos modos {@code PLATAFORMA} e
+ * {@code VIRTUAL}, enquanto o caminho assíncrono, que não passa por ele, atende todas.
+ *
+ * <p>O modo {@code VIRTUAL} exige Java 21 ({@code mvn -Pjmh,java21 verify}). A concorrência pode
+ * ser alterada com a opção {@code -t} do JMH.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Threads(256)
+@Fork(1)
+public class ExecucaoBenchmark {
+
+    public enum Execucao {
+        PLATAFORMA,
+        VIRTUAL,
+        ASSINCRONO
+    }
+
+    private static final Logger logger = LoggerFactory.getLogger(ExecucaoBenchmark.class);
+    private static final int THREADS_TOMCAT_ASSINCRONO = 8;
+
+    @Param({"PLATAFORMA", "VIRTUAL", "ASSINCRONO"})
+    private Execucao execucao;
+
+    @Param({"100000"})
+    private int tamanho;
+
+    @Param({"SQL", "INDICE"})
+    private ModoConsulta modo;
+
+    private ConfigurableApplicationContext contexto;
+    private HttpClient cliente;
+    private String urlBase;
+
+    @Setup(Level.Trial)
+    public void iniciar() {
+        if (execucao == Execucao.VIRTUAL && Runtime.version().feature() < 21) {
+            throw new IllegalStateException("Threads virtuais exigem Java 21; execute com -Pjmh,java21");
+        }
+        contexto = ContextoBenchmark.iniciar(WebApplicationType.SERVLET, modo, tamanho, Distribuicao.AGRUPADA,
+            "spring.threads.virtual.enabled=" + (execucao == Execucao.VIRTUAL),
+            "spring.datasource.hikari.maximum-pool-size=50",
+            "agencia.admissao.habilitado=false",
+            "server.tomcat.threads.max=" + (execucao == Execucao.ASSINCRONO ? THREADS_TOMCAT_ASSINCRONO : 200),
+            "server.tomcat.max-connections=8192");
+        int porta = ((WebServerApplicationContext) contexto).getWebServer().getPort();
+        urlBase = "http://localhost:" + porta
+                + (execucao == Execucao.ASSINCRONO ? "/desafio/assincrono/distancia" : "/desafio/distancia") + "?k=10&";
+        cliente = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+    }
+
+    @TearDown(Level.Trial)
+    public void encerrar() {
+        long tomcat = Thread.getAllStackTraces().keySet().stream()
+                .filter(thread -> thread.getName().startsWith("http-nio-")).count();
+        long ponte = Thread.getAllStackTraces().keySet().stream()
+                .filter(thread -> thread.getName().startsWith("ponte-bloqueante-")).count();
+        logger.info("{}: {} threads do Tomcat, {} threads da ponte bloqueante", execucao, tomcat, ponte);
+        contexto.close();
+    }
+
+    @Benchmark
+    public int buscarAgenciasProximas() throws Exception {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        HttpRequest requisicao = HttpRequest.newBuilder(URI.create(
+                urlBase + "posX=" + (random.nextDouble() * 360 - 180) + "&posY=" + (random.nextDouble() * 180 - 90)))
+                .GET()
+                .build();
+        HttpResponse<byte[]> resposta = cliente.send(requisicao, HttpResponse.BodyHandlers.ofByteArray());
+        if (resposta.statusCode() != 200) {
+            throw new IllegalStateException("Status inesperado: " + resposta.statusCode());
+        }
+        return resposta.body().length;
+    }
+}
@@ -0,0 +1,103 @@
+package com.santander.agencia.repository;
+
+import com.santander.agencia.benchmark.ContextoBenchmark;
+import com.santander.agencia.benchmark.Distribuicao;
+import com.santander.agencia.config.ModoConsulta;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Consultas nativas do {@link AgenciaRepository}: a busca sem filtro e a verificação de
+ * distância mínima originais e as variantes pré-filtradas por caixa e por faixas do código
+ * espacial.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RepositorioBenchmark {
+
+    private static final int POSICOES_CONSULTADAS = 1024;
+    private static final int LIMITE = 1000;
+    private static final double RAIO_CAIXA = 10.0;
+    private static final double DISTANCIA_MINIMA = 1.0;
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    private int tamanho;
+
+    @Param({"UNIFORME", "AGRUPADA"})
+    private Distribuicao distribuicao;
+
+    private ConfigurableApplicationContext contexto;
+    private AgenciaRepository agenciaRepository;
+    private double[] xs;
+    private double[] ys;
+    private int proxima;
+
+    @Setup(Level.Trial)
+    public void iniciar() {
+        contexto = ContextoBenchmark.iniciar(ModoConsulta.SQL, tamanho, distribuicao);
+        agenciaRepository = contexto.getBean(AgenciaRepository.class);
+        double[][] posicoes = distribuicao.posicoes(POSICOES_CONSULTADAS, 7);
+        xs = posicoes[0];
+        ys = posicoes[1];
+    }
+
+    @TearDown(Level.Trial)
+    public void encerrar() {
+        contexto.close();
+    }
+
+    @Benchmark
+    public List<Object[]> findAgenciasProximasComDistancia() {
+        int i = proxima++ & (POSICOES_CONSULTADAS - 1);
+        return agenciaRepository.findAgenciasProximasComDistancia(xs[i], ys[i], LIMITE);
+    }
+
+    @Benchmark
+    public List<Object[]> findAgenciasProximasNaCaixa() {
+        int i = proxima++ & (POSICOES_CONSULTADAS - 1);
+        return agenciaRepository.findAgenciasProximasNaCaixa(xs[i], ys[i], RAIO_CAIXA, LIMITE);
+    }
+
+    @Benchmark
+    public List<Object[]> findAgenciasProximasNasCelulas() {
+        int i = proxima++ & (POSICOES_CONSULTADAS - 1);
+        return agenciaRepository.findAgenciasProximasNasCelulas(xs[i], ys[i], RAIO_CAIXA, LIMITE);
+    }
+
+    @Benchmark
+    public boolean existsAgenciaProxima() {
+        int i = proxima++ & (POSICOES_CONSULTADAS - 1);
+        return agenciaRepository.existsAgenciaProxima(xs[i], ys[i], DISTANCIA_MINIMA);
+    }
+
+    @Benchmark
+    public boolean existsAgenciaProximaNaCaixa() {
+        int i = proxima++ & (POSICOES_CONSULTADAS - 1);
+        return agenciaRepository.existsAgenciaProximaNaCaixa(xs[i], ys[i], DISTANCIA_MINIMA);
+    }
+
+    @Benchmark
+    public boolean existsAgenciaProximaNasCelulas() {
+        int i = proxima++ & (POSICOES_CONSULTADAS - 1);
+        return agenciaRepository.existsAgenciaProximaNasCelulas(xs[i], ys[i], DISTANCIA_MINIMA);
+    }
+}
@@ -0,0 +1,90 @@
+package com.santander.agencia.service;
+
+import com.santander.agencia.benchmark.ContextoBenchmark;
+import com.santander.agencia.benchmark.Distribuicao;
+import com.santander.agencia.config.ModoConsulta;
+import com.santander.agencia.config.TipoDistancia;
+import com.santander.agencia.dto.DistanciaResponse;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Busca por proximidade e verificação de distância mínima do cadastro pelo
+ * {@link AgenciaService}, em cada modo de consulta e medida de distância, sem cache.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ConsultaBenchmark {
+
+    private static final int POSICOES_CONSULTADAS = 1024;
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    private int tamanho;
+
+    @Param({"UNIFORME", "AGRUPADA"})
+    private Distribuicao distribuicao;
+
+    @Param({"SQL", "CAIXA", "CELULA", "INDICE"})
+    private ModoConsulta modo;
+
+    @Param({"PLANA", "GEODESICA"})
+    private TipoDistancia distancia;
+
+    private ConfigurableApplicationContext contexto;
+    private AgenciaService agenciaService;
+    private double[] xs;
+    private double[] ys;
+    private int proxima;
+
+    @Setup(Level.Trial)
+    public void iniciar() {
+        contexto = ContextoBenchmark.iniciar(WebApplicationType.NONE, modo, tamanho, distribuicao,
+                                             "agencia.consulta.distancia=" + distancia.name().toLowerCase());
+        agenciaService = contexto.getBean(AgenciaService.class);
+        double[][] posicoes = distribuicao.posicoes(POSICOES_CONSULTADAS, 7);
+        xs = posicoes[0];
+        ys = posicoes[1];
+    }
+
+    @TearDown(Level.Trial)
+    public void encerrar() {
+        contexto.close();
+    }
+
+    @Benchmark
+    public DistanciaResponse buscarAgenciasProximas() {
+        int i = proxima++ & (POSICOES_CONSULTADAS - 1);
+        return agenciaService.buscarAgenciasProximas(xs[i], ys[i]);
+    }
+
+    @Benchmark
+    public DistanciaResponse buscarDezAgenciasProximas() {
+        int i = proxima++ & (POSICOES_CONSULTADAS - 1);
+        return agenciaService.buscarAgenciasProximas(xs[i], ys[i], 10, null);
+    }
+
+    @Benchmark
+    public boolean verificarDistanciaMinimaNoCadastro() {
+        int i = proxima++ & (POSICOES_CONSULTADAS - 1);
+        return agenciaService.existeAgenciaProxima(xs[i], ys[i]);
+    }
+}
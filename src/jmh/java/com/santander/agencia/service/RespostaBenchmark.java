@@ -0,0 +1,94 @@
+package com.santander.agencia.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.santander.agencia.benchmark.Distribuicao;
+import com.santander.agencia.dto.DistanciaResponse;
+import com.santander.agencia.metrics.MetricasAgencia;
+import com.santander.agencia.model.Agencia;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Montagem e serialização da resposta de {@code GET /desafio/distancia} a partir das linhas da
+ * consulta nativa, sem banco.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RespostaBenchmark {
+
+    @Param({"10", "100", "1000"})
+    private int resultados;
+
+    private final AgenciaService agenciaService = new AgenciaService();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private List<Object[]> linhas;
+    private List<Agencia> agencias;
+    private double[] distancias;
+    private DistanciaResponse resposta;
+
+    @Setup
+    public void iniciar() {
+        ReflectionTestUtils.setField(agenciaService, "metricas", new MetricasAgencia(new SimpleMeterRegistry()));
+        double[][] posicoes = Distribuicao.UNIFORME.posicoes(resultados, 42);
+        Timestamp agora = Timestamp.valueOf(LocalDateTime.now());
+        linhas = new ArrayList<>(resultados);
+        agencias = new ArrayList<>(resultados);
+        distancias = new double[resultados];
+        for (int i = 0; i < resultados; i++) {
+            long id = i + 1;
+            double x = posicoes[0][i];
+            double y = posicoes[1][i];
+            distancias[i] = Math.sqrt(x * x + y * y);
+            linhas.add(new Object[] {id, "AGENCIA_" + id, x, y, agora, distancias[i]});
+            agencias.add(Agencia.builder().id(id).nome("AGENCIA_" + id).posX(x).posY(y).build());
+        }
+        resposta = agenciaService.processarResultadosAgencias(linhas, 0.0, 0.0);
+    }
+
+    @Benchmark
+    public void calcularDistancia(Blackhole blackhole) {
+        for (Agencia agencia : agencias) {
+            blackhole.consume(agenciaService.calcularDistancia(agencia, 0.0, 0.0));
+        }
+    }
+
+    @Benchmark
+    public void formatarDistancia(Blackhole blackhole) {
+        for (double distancia : distancias) {
+            blackhole.consume(agenciaService.formatarDistancia(distancia));
+        }
+    }
+
+    @Benchmark
+    public DistanciaResponse processarResultadosAgencias() {
+        return agenciaService.processarResultadosAgencias(linhas, 0.0, 0.0);
+    }
+
+    @Benchmark
+    public byte[] serializarResposta() throws Exception {
+        return objectMapper.writeValueAsBytes(resposta);
+    }
+}
@@ -0,0 +1,264 @@
+package com.santander.agencia.admissao;
+
+import com.santander.agencia.config.AgenciaProperties;
+import com.santander.agencia.config.TipoLimiteAdmissao;
+import com.santander.agencia.exception.ServicoSobrecarregadoException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Limita as requisições simultâneas de busca e de cadastro, para que um pico de consultas não
+ * acumule requisições no pool de conexões e aumente a latência de todos os clientes.
+ *
+ * <p>Abaixo do limite a requisição entra direto. Acima dele, espera em uma fila da sua
+ * {@link Prioridade} por até {@code agencia.admissao.espera-maxima}; com a fila cheia ou a espera
+ * esgotada, é recusada com {@link ServicoSobrecarregadoException}. Cada vaga liberada é oferecida
+ * primeiro aos cadastros, e uma busca só entra quando não há cadastro esperando: sob sobrecarga,
+ * as buscas são recusadas antes.
+ *
+ * <p>No limite {@link TipoLimiteAdmissao#ADAPTATIVO}, cada resposta dentro de
+ * {@code latencia-alvo} com o uso perto do limite soma {@code 1 / limite} a ele (uma unidade a
+ * cada {@code limite} respostas), e uma resposta mais lenta o reduz em 10%, no máximo uma vez a
+ * cada {@code latencia-alvo}. O limite fica entre {@code limite-minimo} e {@code limite-maximo}.
+ *
+ * <p>Só {@code GET /desafio/distancia} em JSON e {@code POST /desafio/cadastrar} passam por aqui; o
+ * caminho assíncrono, as respostas transmitidas (NDJSON e SSE) e os endpoints de lote não são
+ * limitados.
+ *
+ * <p>Usa {@link ReentrantLock} para não fixar a thread portadora quando as requisições rodam em
+ * threads virtuais.
+ */
+@Component
+public class ControleAdmissao {
+
+    public static final String LIMITE = "agencia.admissao.limite";
+    public static final String EM_USO = "agencia.admissao.em_uso";
+    public static final String FILA = "agencia.admissao.fila";
+    public static final String RECUSAS = "agencia.admissao.recusas";
+
+    private static final double FATOR_REDUCAO = 0.9;
+
+    public enum Prioridade {
+
+        /**
+         * Cadastros de agências; recebem as vagas liberadas antes das buscas.
+         */
+        CADASTRO("cadastro"),
+
+        /**
+         * Buscas por proximidade.
+         */
+        LEITURA("leitura");
+
+        private final String nome;
+
+        Prioridade(String nome) {
+            this.nome = nome;
+        }
+    }
+
+    private final AgenciaProperties.Admissao configuracao;
+    private final ReentrantLock trava = new ReentrantLock();
+    private final Map<Prioridade, Fila> filas = new EnumMap<>(Prioridade.class);
+    private final long latenciaAlvoNanos;
+
+    private double limite;
+    private int emUso;
+    private long ultimaReducao;
+
+    private static final class Fila {
+
+        private final Condition vaga;
+        private final Counter recusas;
+        private int aguardando;
+
+        private Fila(Condition vaga, Counter recusas) {
+            this.vaga = vaga;
+            this.recusas = recusas;
+        }
+    }
+
+    /**
+     * Vaga concedida por {@link #adquirir}; devolvida com {@link #liberar}.
+     */
+    public static final class Permissao {
+
+        private final long inicio;
+        private final int emUsoNaEntrada;
+
+        private Permissao(long inicio, int emUsoNaEntrada) {
+            this.inicio = inicio;
+            this.emUsoNaEntrada = emUsoNaEntrada;
+        }
+    }
+
+    public ControleAdmissao(AgenciaProperties propriedades, MeterRegistry registro) {
+        configuracao = propriedades.getAdmissao();
+        latenciaAlvoNanos = configuracao.getLatenciaAlvo().toNanos();
+        limite = configuracao.getLimiteInicial();
+        ultimaReducao = System.nanoTime() - latenciaAlvoNanos;
+        for (Prioridade prioridade : Prioridade.values()) {
+            Fila fila = new Fila(trava.newCondition(), Counter.builder(RECUSAS)
+                    .description("Requisições recusadas por sobrecarga")
+                    .tag("prioridade", prioridade.nome)
+                    .register(registro));
+            filas.put(prioridade, fila);
+            Gauge.builder(FILA, this, controle -> controle.aguardando(prioridade))
+                    .description("Requisições aguardando vaga")
+                    .tag("prioridade", prioridade.nome)
+                    .register(registro);
+        }
+        Gauge.builder(LIMITE, this, ControleAdmissao::limite)
+                .description("Limite atual de requisições simultâneas")
+                .register(registro);
+        Gauge.builder(EM_USO, this, ControleAdmissao::emUso)
+                .description("Requisições em atendimento")
+                .register(registro);
+    }
+
+    public <T> T executar(Prioridade prioridade, Supplier<T> chamada) {
+        if (!configuracao.isHabilitado()) {
+            return chamada.get();
+        }
+        Permissao permissao = adquirir(prioridade);
+        try {
+            return chamada.get();
+        } finally {
+            liberar(permissao);
+        }
+    }
+
+    public Permissao adquirir(Prioridade prioridade) {
+        Fila fila = filas.get(prioridade);
+        trava.lock();
+        try {
+            if (fila.aguardando == 0 && podeEntrar(prioridade)) {
+                return entrar();
+            }
+            if (fila.aguardando >= configuracao.getFila()) {
+                throw recusar(fila);
+            }
+            fila.aguardando++;
+            boolean admitida = false;
+            try {
+                long restante = configuracao.getEsperaMaxima().toNanos();
+                while (!podeEntrar(prioridade)) {
+                    if (restante <= 0) {
+                        throw recusar(fila);
+                    }
+                    restante = fila.vaga.awaitNanos(restante);
+                }
+                admitida = true;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw recusar(fila);
+            } finally {
+                fila.aguardando--;
+                if (!admitida) {
+                    oferecerVaga();
+                }
+            }
+            Permissao permissao = entrar();
+            oferecerVaga();
+            return permissao;
+        } finally {
+            trava.unlock();
+        }
+    }
+
+    public void liberar(Permissao permissao) {
+        long duracao = System.nanoTime() - permissao.inicio;
+        trava.lock();
+        try {
+            emUso--;
+            if (configuracao.getLimite() == TipoLimiteAdmissao.ADAPTATIVO) {
+                ajustarLimite(duracao, permissao.emUsoNaEntrada);
+            }
+            oferecerVaga();
+        } finally {
+            trava.unlock();
+        }
+    }
+
+    public double limite() {
+        trava.lock();
+        try {
+            return limite;
+        } finally {
+            trava.unlock();
+        }
+    }
+
+    public int emUso() {
+        trava.lock();
+        try {
+            return emUso;
+        } finally {
+            trava.unlock();
+        }
+    }
+
+    int aguardando(Prioridade prioridade) {
+        trava.lock();
+        try {
+            return filas.get(prioridade).aguardando;
+        } finally {
+            trava.unlock();
+        }
+    }
+
+    private boolean podeEntrar(Prioridade prioridade) {
+        if (emUso >= (int) limite) {
+            return false;
+        }
+        return prioridade == Prioridade.CADASTRO || filas.get(Prioridade.CADASTRO).aguardando == 0;
+    }
+
+    private Permissao entrar() {
+        emUso++;
+        return new Permissao(System.nanoTime(), emUso);
+    }
+
+    private void ajustarLimite(long duracao, int emUsoNaEntrada) {
+        long agora = System.nanoTime();
+        if (duracao > latenciaAlvoNanos) {
+            if (agora - ultimaReducao >= latenciaAlvoNanos) {
+                limite = Math.max(configuracao.getLimiteMinimo(), limite * FATOR_REDUCAO);
+                ultimaReducao = agora;
+            }
+        } else if (emUsoNaEntrada * 2 >= limite) {
+            limite = Math.min(configuracao.getLimiteMaximo(), limite + 1.0 / limite);
+        }
+    }
+
+    /**
+     * Acorda um cadastro em espera ou, se não houver, uma busca. Chamado a cada vaga liberada, a
+     * cada entrada vinda da fila (pode haver mais vagas) e quando uma requisição desiste da
+     * espera, para não perder o sinal que ela possa ter recebido.
+     */
+    private void oferecerVaga() {
+        if (emUso >= (int) limite) {
+            return;
+        }
+        Fila cadastros = filas.get(Prioridade.CADASTRO);
+        if (cadastros.aguardando > 0) {
+            cadastros.vaga.signal();
+        } else {
+            filas.get(Prioridade.LEITURA).vaga.signal();
+        }
+    }
+
+    private ServicoSobrecarregadoException recusar(Fila fila) {
+        fila.recusas.increment();
+        long segundos = (configuracao.getTentarNovamenteApos().toMillis() + 999) / 1000;
+        return new ServicoSobrecarregadoException("Limite de requisições simultâneas atingido", Math.max(1, segundos));
+    }
+}
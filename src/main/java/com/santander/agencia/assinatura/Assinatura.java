@@ -0,0 +1,146 @@
+package com.santander.agencia.assinatura;
+
+import com.santander.agencia.dto.AgenciaDistancia;
+import com.santander.agencia.dto.AlteracaoProximidade;
+import com.santander.agencia.event.AgenciaCadastradaEvent;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Uma posição assinada, as suas {@code k} agências mais próximas, em ordem crescente de
+ * distância, e os eventos ainda não enviados. Alterada apenas sob a trava de
+ * {@link AssinaturasProximidade}, exceto pela carga inicial, feita pela thread que criou a
+ * assinatura antes de {@link #concluirCarga}.
+ */
+final class Assinatura {
+
+    private static final long[] SEM_CELULAS = new long[0];
+
+    final double posX;
+    final double posY;
+    final int k;
+    final double raio;
+    final SseEmitter emissor;
+
+    private final String[] nomes;
+    private final double[] distancias;
+    private int tamanho;
+
+    /**
+     * Chaves das células do índice em que a assinatura está registrada.
+     */
+    long[] celulas = SEM_CELULAS;
+
+    /**
+     * Cadastros recebidos durante a carga inicial; {@code null} depois dela.
+     */
+    private List<AgenciaCadastradaEvent> pendentes = new ArrayList<>();
+
+    /**
+     * Eventos aguardando envio, no máximo {@code agencia.assinaturas.fila}.
+     */
+    final Deque<SseEmitter.SseEventBuilder> eventos = new ArrayDeque<>();
+
+    /**
+     * Há uma tarefa de envio agendada ou em execução para a assinatura.
+     */
+    boolean enviando;
+
+    /**
+     * A fila estourou; a tarefa de envio encerra a conexão em vez de enviar.
+     */
+    boolean descartada;
+
+    Assinatura(double posX, double posY, int k, double raio, SseEmitter emissor) {
+        this.posX = posX;
+        this.posY = posY;
+        this.k = k;
+        this.raio = raio;
+        this.emissor = emissor;
+        this.nomes = new String[k];
+        this.distancias = new double[k];
+    }
+
+    /**
+     * Distância além da qual uma nova agência não altera a lista: a da {@code k}-ésima agência ou,
+     * com menos de {@code k}, o raio da assinatura. Durante a carga, sempre o raio.
+     */
+    double alcance() {
+        return pendentes != null || tamanho < k ? raio : distancias[tamanho - 1];
+    }
+
+    boolean carregando() {
+        return pendentes != null;
+    }
+
+    /**
+     * Acrescenta uma agência da carga inicial, recebida em ordem crescente de distância.
+     */
+    void carregar(String nome, double distancia) {
+        if (tamanho < k) {
+            nomes[tamanho] = nome;
+            distancias[tamanho] = distancia;
+            tamanho++;
+        }
+    }
+
+    void adiarCadastro(AgenciaCadastradaEvent evento) {
+        pendentes.add(evento);
+    }
+
+    /**
+     * Encerra a carga, incluindo os cadastros recebidos durante ela que a consulta inicial não
+     * viu, e retorna os cadastros adiados.
+     */
+    List<AgenciaCadastradaEvent> concluirCarga() {
+        List<AgenciaCadastradaEvent> adiados = pendentes;
+        pendentes = null;
+        return adiados;
+    }
+
+    /**
+     * Inclui a agência se ela fica entre as {@code k} mais próximas e dentro do raio.
+     *
+     * @return a alteração, ou {@code null} se a lista não mudou
+     */
+    AlteracaoProximidade incluir(String nome, double distancia) {
+        if (distancia > raio || tamanho == k && distancia >= distancias[k - 1] || contem(nome)) {
+            return null;
+        }
+        String saiu = null;
+        if (tamanho == k) {
+            saiu = nomes[--tamanho];
+        }
+        int posicao = tamanho;
+        while (posicao > 0 && distancias[posicao - 1] > distancia) {
+            posicao--;
+        }
+        System.arraycopy(nomes, posicao, nomes, posicao + 1, tamanho - posicao);
+        System.arraycopy(distancias, posicao, distancias, posicao + 1, tamanho - posicao);
+        nomes[posicao] = nome;
+        distancias[posicao] = distancia;
+        tamanho++;
+        return new AlteracaoProximidade(AgenciaDistancia.de(nome, distancia), posicao, saiu);
+    }
+
+    List<AgenciaDistancia> agencias() {
+        List<AgenciaDistancia> agencias = new ArrayList<>(tamanho);
+        for (int i = 0; i < tamanho; i++) {
+            agencias.add(AgenciaDistancia.de(nomes[i], distancias[i]));
+        }
+        return agencias;
+    }
+
+    private boolean contem(String nome) {
+        for (int i = 0; i < tamanho; i++) {
+            if (nomes[i].equals(nome)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
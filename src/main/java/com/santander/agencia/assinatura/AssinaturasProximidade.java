@@ -0,0 +1,304 @@
+package com.santander.agencia.assinatura;
+
+import com.santander.agencia.config.AgenciaProperties;
+import com.santander.agencia.dto.AlteracaoProximidade;
+import com.santander.agencia.event.AgenciaCadastradaEvent;
+import com.santander.agencia.exception.ServicoSobrecarregadoException;
+import com.santander.agencia.index.CodigoMorton;
+import com.santander.agencia.index.Geometria;
+import com.santander.agencia.service.AgenciaService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Assinaturas de {@code GET /desafio/distancia} com {@code Accept: text/event-stream}: cada uma
+ * recebe a lista inicial das {@code k} agências mais próximas (evento {@code agencias}) e, a cada
+ * cadastro confirmado que a altera, apenas a alteração (evento {@code alteracao}).
+ *
+ * <p>Um cadastro só altera a lista de uma assinatura se a nova agência estiver dentro do seu
+ * alcance ({@link Assinatura#alcance}). Para não avaliar todas as assinaturas a cada cadastro,
+ * elas ficam em um índice de células de vários níveis ({@link CodigoMorton#chavesCelulas}): cada
+ * assinatura é registrada nas até 2 × 2 células do nível em que as células medem ao menos o
+ * dobro do alcance, e um cadastro consulta apenas a célula da nova agência em cada um dos
+ * {@value CodigoMorton#NIVEIS} níveis. Quando o alcance diminui, a assinatura desce para um nível
+ * mais fino.
+ *
+ * <p>A assinatura entra no índice antes da consulta inicial, com o alcance do raio, e os cadastros
+ * confirmados durante a consulta são aplicados ao final dela, de modo que nenhum se perde.
+ *
+ * <p>O cadastro apenas acrescenta os eventos à fila da assinatura; o envio, que bloqueia enquanto
+ * o cliente não lê, é feito por {@code agencia.assinaturas.threads-envio} threads, com no máximo
+ * uma tarefa por assinatura, o que mantém a ordem dos eventos de cada cliente. Um cliente parado
+ * ocupa só a thread que tentava lhe enviar, e os demais continuam recebendo pelas outras. Quando a
+ * fila de uma assinatura passa de {@code agencia.assinaturas.fila} eventos, ela sai do índice,
+ * perde os eventos pendentes e tem a conexão encerrada assim que a escrita em andamento terminar;
+ * o cliente reconecta e recebe a lista completa de novo.
+ */
+@Component
+public class AssinaturasProximidade {
+
+    private static final Logger logger = LoggerFactory.getLogger(AssinaturasProximidade.class);
+
+    public static final String METRICA = "agencia.assinaturas";
+    public static final String ALTERACOES = "agencia.assinaturas.alteracoes";
+    public static final String DESCARTADAS = "agencia.assinaturas.descartadas";
+
+    private final AgenciaService agenciaService;
+    private final AgenciaProperties.Assinaturas configuracao;
+    private final Geometria geometria;
+    private final ReentrantLock trava = new ReentrantLock();
+    private final Map<Long, Set<Assinatura>> celulas = new HashMap<>();
+    private final ExecutorService envio;
+    private final Counter alteracoes;
+    private final Counter descartadas;
+    private int total;
+
+    public AssinaturasProximidade(AgenciaService agenciaService, AgenciaProperties propriedades,
+                                  MeterRegistry registro) {
+        this.agenciaService = agenciaService;
+        this.configuracao = propriedades.getAssinaturas();
+        this.geometria = Geometria.de(propriedades.getConsulta().getDistancia());
+        AtomicInteger threads = new AtomicInteger();
+        this.envio = Executors.newFixedThreadPool(configuracao.getThreadsEnvio(), tarefa -> {
+            Thread thread = new Thread(tarefa, "assinaturas-envio-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        Gauge.builder(METRICA, this, AssinaturasProximidade::total)
+                .description("Assinaturas abertas")
+                .register(registro);
+        this.alteracoes = Counter.builder(ALTERACOES)
+                .description("Alterações enviadas às assinaturas")
+                .register(registro);
+        this.descartadas = Counter.builder(DESCARTADAS)
+                .description("Assinaturas encerradas por excesso de eventos pendentes")
+                .register(registro);
+    }
+
+    /**
+     * Abre uma assinatura e agenda o envio da lista inicial.
+     *
+     * @param k    quantidade de agências acompanhadas; {@code null} usa o limite padrão da busca
+     * @param raio distância máxima das agências acompanhadas; {@code null} não limita a distância
+     */
+    public SseEmitter assinar(Double posX, Double posY, Integer k, Double raio) throws IOException {
+        int limite = agenciaService.validarParametrosBusca(posX, posY, k, raio);
+        Assinatura assinatura = new Assinatura(posX, posY, limite, raio != null ? raio : Double.POSITIVE_INFINITY,
+                                               criarEmissor(configuracao.getTempoLimite().toMillis()));
+        trava.lock();
+        try {
+            if (total >= configuracao.getMaximo()) {
+                throw new ServicoSobrecarregadoException("Limite de assinaturas abertas atingido", 1);
+            }
+            total++;
+            registrar(assinatura);
+        } finally {
+            trava.unlock();
+        }
+
+        try {
+            agenciaService.transmitirAgenciasProximas(posX, posY, k, raio, assinatura::carregar);
+        } catch (IOException | RuntimeException e) {
+            remover(assinatura);
+            throw e;
+        }
+
+        trava.lock();
+        try {
+            for (AgenciaCadastradaEvent evento : assinatura.concluirCarga()) {
+                assinatura.incluir(evento.nome(), geometria.distancia(posX, posY, evento.posX(), evento.posY()));
+            }
+            registrar(assinatura);
+            enviar(assinatura, SseEmitter.event().name("agencias").data(assinatura.agencias()));
+        } finally {
+            trava.unlock();
+        }
+
+        SseEmitter emissor = assinatura.emissor;
+        emissor.onCompletion(() -> remover(assinatura));
+        emissor.onError(erro -> remover(assinatura));
+        logger.info("Assinatura aberta na posição ({}, {}) com k = {}", posX, posY, limite);
+        return emissor;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void aoCadastrarAgencia(AgenciaCadastradaEvent evento) {
+        trava.lock();
+        try {
+            for (Assinatura assinatura : candidatasSemTrava(evento.posX(), evento.posY())) {
+                if (assinatura.carregando()) {
+                    assinatura.adiarCadastro(evento);
+                    continue;
+                }
+                AlteracaoProximidade alteracao = assinatura.incluir(evento.nome(), geometria.distancia(
+                        assinatura.posX, assinatura.posY, evento.posX(), evento.posY()));
+                if (alteracao != null) {
+                    registrar(assinatura);
+                    alteracoes.increment();
+                    enviar(assinatura, SseEmitter.event().name("alteracao").data(alteracao));
+                }
+            }
+        } finally {
+            trava.unlock();
+        }
+    }
+
+    public int total() {
+        trava.lock();
+        try {
+            return total;
+        } finally {
+            trava.unlock();
+        }
+    }
+
+    @PreDestroy
+    public void encerrar() {
+        envio.shutdown();
+    }
+
+    SseEmitter criarEmissor(long tempoLimite) {
+        return new SseEmitter(tempoLimite);
+    }
+
+    /**
+     * Assinaturas registradas nas células que contêm a posição, uma por nível.
+     */
+    List<Assinatura> candidatas(double posX, double posY) {
+        trava.lock();
+        try {
+            return candidatasSemTrava(posX, posY);
+        } finally {
+            trava.unlock();
+        }
+    }
+
+    private List<Assinatura> candidatasSemTrava(double posX, double posY) {
+        List<Assinatura> candidatas = new ArrayList<>();
+        for (int nivel = 0; nivel < CodigoMorton.NIVEIS; nivel++) {
+            Set<Assinatura> registradas = celulas.get(CodigoMorton.chaveCelula(posX, posY, nivel));
+            if (registradas != null) {
+                candidatas.addAll(registradas);
+            }
+        }
+        return candidatas;
+    }
+
+    /**
+     * Registra a assinatura nas células do seu alcance atual, saindo das anteriores se mudaram.
+     */
+    private void registrar(Assinatura assinatura) {
+        long[] novas = CodigoMorton.chavesCelulas(assinatura.posX, assinatura.posY,
+                geometria.raioEmGraus(assinatura.posX, assinatura.posY, assinatura.alcance()));
+        if (Arrays.equals(novas, assinatura.celulas)) {
+            return;
+        }
+        desregistrar(assinatura);
+        for (long chave : novas) {
+            celulas.computeIfAbsent(chave, c -> new HashSet<>()).add(assinatura);
+        }
+        assinatura.celulas = novas;
+    }
+
+    private void desregistrar(Assinatura assinatura) {
+        for (long chave : assinatura.celulas) {
+            Set<Assinatura> registradas = celulas.get(chave);
+            if (registradas != null && registradas.remove(assinatura) && registradas.isEmpty()) {
+                celulas.remove(chave);
+            }
+        }
+        assinatura.celulas = new long[0];
+    }
+
+    private void remover(Assinatura assinatura) {
+        trava.lock();
+        try {
+            if (assinatura.celulas.length > 0) {
+                desregistrar(assinatura);
+                total--;
+            }
+        } finally {
+            trava.unlock();
+        }
+    }
+
+    /**
+     * Acrescenta o evento à fila da assinatura e agenda o envio. Chamado sob a trava.
+     */
+    private void enviar(Assinatura assinatura, SseEmitter.SseEventBuilder evento) {
+        if (assinatura.descartada) {
+            return;
+        }
+        if (assinatura.eventos.size() >= configuracao.getFila()) {
+            descartar(assinatura);
+        } else {
+            assinatura.eventos.add(evento);
+        }
+        if (!assinatura.enviando) {
+            assinatura.enviando = true;
+            envio.execute(() -> esvaziar(assinatura));
+        }
+    }
+
+    private void descartar(Assinatura assinatura) {
+        logger.warn("Assinatura na posição ({}, {}) encerrada com {} eventos pendentes",
+                    assinatura.posX, assinatura.posY, assinatura.eventos.size());
+        assinatura.descartada = true;
+        assinatura.eventos.clear();
+        desregistrar(assinatura);
+        total--;
+        descartadas.increment();
+    }
+
+    /**
+     * Envia os eventos da fila até esvaziá-la. O envio é feito fora da trava, pois bloqueia
+     * enquanto o cliente não lê.
+     */
+    private void esvaziar(Assinatura assinatura) {
+        while (true) {
+            SseEmitter.SseEventBuilder evento;
+            trava.lock();
+            try {
+                evento = assinatura.descartada ? null : assinatura.eventos.poll();
+                if (evento == null) {
+                    assinatura.enviando = false;
+                }
+            } finally {
+                trava.unlock();
+            }
+            if (evento == null) {
+                if (assinatura.descartada) {
+                    assinatura.emissor.complete();
+                }
+                return;
+            }
+            try {
+                assinatura.emissor.send(evento);
+            } catch (IOException | IllegalStateException e) {
+                assinatura.emissor.completeWithError(e);
+                remover(assinatura);
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,228 @@
+package com.santander.agencia.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.santander.agencia.config.AgenciaProperties;
+import com.santander.agencia.config.InvalidacaoCache;
+import com.santander.agencia.dto.DistanciaResponse;
+import com.santander.agencia.event.AgenciaCadastradaEvent;
+import com.santander.agencia.index.CodigoMorton;
+import com.santander.agencia.index.Geometria;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Cache das respostas de {@code GET /desafio/distancia}, com chave formada pelas coordenadas
+ * quantizadas em {@code agencia.cache.precisao}, pelo limite e pelo raio da busca.
+ *
+ * <p>Cada entrada guarda o seu alcance: a distância da agência mais distante retornada, ou o
+ * raio (infinito sem raio) quando a busca retornou menos agências que o limite. Um cadastro só
+ * altera a resposta se a nova agência estiver dentro desse alcance, acrescido da diagonal da
+ * célula para cobrir as demais posições dela; as distâncias seguem
+ * {@code agencia.consulta.distancia}. O contador {@code versao} impede que uma consulta iniciada
+ * antes de um cadastro grave uma resposta que a invalidação já deveria ter removido; por isso a
+ * invalidação ocorre depois da atualização do índice espacial.
+ *
+ * <p>Para que um cadastro não percorra o cache inteiro, as entradas ficam também em um índice de
+ * células de vários níveis ({@link CodigoMorton#chavesCelulas}), como as assinaturas de
+ * proximidade: cada entrada é registrada nas até 2 × 2 células do nível em que as células medem
+ * ao menos o dobro do seu alcance, e a invalidação avalia apenas as entradas da célula da nova
+ * agência em cada nível. A entrada sai do índice quando sai do cache, por qualquer motivo.
+ */
+@Component
+public class CacheAgenciasProximas {
+
+    static final String NOME = "agenciasProximas";
+
+    private final AgenciaProperties.Cache configuracao;
+    private final Geometria geometria;
+    private final double folga;
+    private final Cache<Chave, Entrada> cache;
+    private final Map<Long, Set<Entrada>> celulas = new ConcurrentHashMap<>();
+    private final AtomicLong versao = new AtomicLong();
+
+    @Autowired
+    public CacheAgenciasProximas(AgenciaProperties propriedades, ObjectProvider<MeterRegistry> registroMetricas) {
+        this(propriedades.getCache(), Geometria.de(propriedades.getConsulta().getDistancia()));
+        registroMetricas.ifAvailable(registro -> CaffeineCacheMetrics.monitor(registro, cache, NOME));
+    }
+
+    public CacheAgenciasProximas(AgenciaProperties.Cache configuracao) {
+        this(configuracao, Geometria.PLANA);
+    }
+
+    public CacheAgenciasProximas(AgenciaProperties.Cache configuracao, Geometria geometria) {
+        this.configuracao = configuracao;
+        this.geometria = geometria;
+        this.folga = geometria.distancia(0.0, 0.0, configuracao.getPrecisao(), configuracao.getPrecisao());
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(configuracao.getTamanhoMaximo())
+                .executor(Runnable::run)
+                .removalListener((Chave chave, Entrada entrada, RemovalCause causa) -> desregistrar(entrada))
+                .recordStats()
+                .build();
+    }
+
+    public boolean isHabilitado() {
+        return configuracao.isHabilitado();
+    }
+
+    /**
+     * Retorna a resposta em cache para a célula da posição ou executa a consulta e guarda o
+     * resultado. A posição do usuário na resposta é sempre a informada.
+     */
+    public DistanciaResponse obter(double posX, double posY, int limite, Double raio,
+                                   Supplier<ResultadoProximidade> consulta) {
+        if (!isHabilitado()) {
+            return consulta.get().resposta();
+        }
+        Chave chave = new Chave(quantizar(posX), quantizar(posY), limite, raio);
+        Entrada entrada = cache.getIfPresent(chave);
+        if (entrada != null) {
+            return entrada.respostaPara(posX, posY);
+        }
+
+        long versaoInicial = versao.get();
+        ResultadoProximidade resultado = consulta.get();
+        DistanciaResponse resposta = resultado.resposta();
+        double alcance = resposta.totalAgencias() < limite
+                ? (raio != null ? raio : Double.POSITIVE_INFINITY)
+                : resultado.maiorDistancia();
+        Entrada nova = new Entrada(chave, posX, posY, alcance, resposta);
+        if (configuracao.getInvalidacao() != InvalidacaoCache.TOTAL) {
+            registrar(nova);
+        }
+        cache.put(chave, nova);
+        if (versao.get() != versaoInicial) {
+            cache.invalidate(chave);
+        }
+        return resposta;
+    }
+
+    /**
+     * Executado antes de {@link VersaoAgencias}, para que uma nova versão nunca leia uma resposta
+     * em cache anterior ao cadastro.
+     */
+    @Order(Ordered.LOWEST_PRECEDENCE - 1)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void aoCadastrarAgencia(AgenciaCadastradaEvent evento) {
+        if (isHabilitado()) {
+            invalidar(evento.posX(), evento.posY());
+        }
+    }
+
+    public void invalidar(double posX, double posY) {
+        versao.incrementAndGet();
+        if (configuracao.getInvalidacao() == InvalidacaoCache.TOTAL) {
+            cache.invalidateAll();
+            return;
+        }
+        for (int nivel = 0; nivel < CodigoMorton.NIVEIS; nivel++) {
+            Set<Entrada> registradas = celulas.get(CodigoMorton.chaveCelula(posX, posY, nivel));
+            if (registradas != null) {
+                for (Entrada entrada : registradas) {
+                    if (entrada.alcancada(geometria, posX, posY, folga)) {
+                        cache.asMap().remove(entrada.chave, entrada);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Entradas registradas nas células que contêm a posição, uma por nível: as avaliadas por
+     * {@link #invalidar} para um cadastro nessa posição.
+     */
+    int candidatas(double posX, double posY) {
+        int total = 0;
+        for (int nivel = 0; nivel < CodigoMorton.NIVEIS; nivel++) {
+            Set<Entrada> registradas = celulas.get(CodigoMorton.chaveCelula(posX, posY, nivel));
+            total += registradas != null ? registradas.size() : 0;
+        }
+        return total;
+    }
+
+    public long tamanho() {
+        cache.cleanUp();
+        return cache.estimatedSize();
+    }
+
+    private long quantizar(double coordenada) {
+        return Math.round(coordenada / configuracao.getPrecisao());
+    }
+
+    /**
+     * Registra a entrada nas células que cobrem o seu alcance acrescido da folga, antes de ela
+     * entrar no cache; uma invalidação entre o registro e a gravação é detectada pela versão.
+     */
+    private void registrar(Entrada entrada) {
+        entrada.celulas = CodigoMorton.chavesCelulas(entrada.posX, entrada.posY,
+                geometria.raioEmGraus(entrada.posX, entrada.posY, entrada.alcance + folga));
+        for (long celula : entrada.celulas) {
+            celulas.computeIfAbsent(celula, c -> ConcurrentHashMap.newKeySet()).add(entrada);
+        }
+    }
+
+    private void desregistrar(Entrada entrada) {
+        if (entrada == null) {
+            return;
+        }
+        for (long celula : entrada.celulas) {
+            celulas.computeIfPresent(celula, (c, registradas) -> {
+                registradas.remove(entrada);
+                return registradas.isEmpty() ? null : registradas;
+            });
+        }
+    }
+
+    private record Chave(long x, long y, int limite, Double raio) {}
+
+    /**
+     * Resposta em cache. A igualdade é a de identidade, para que o índice de células e a remoção
+     * condicional distingam entradas diferentes gravadas na mesma chave.
+     */
+    private static final class Entrada {
+
+        private final Chave chave;
+        private final double posX;
+        private final double posY;
+        private final double alcance;
+        private final DistanciaResponse resposta;
+        private long[] celulas = new long[0];
+
+        private Entrada(Chave chave, double posX, double posY, double alcance, DistanciaResponse resposta) {
+            this.chave = chave;
+            this.posX = posX;
+            this.posY = posY;
+            this.alcance = alcance;
+            this.resposta = resposta;
+        }
+
+        boolean alcancada(Geometria geometria, double x, double y, double folga) {
+            return geometria.distancia(posX, posY, x, y) <= alcance + folga;
+        }
+
+        DistanciaResponse respostaPara(double x, double y) {
+            return new DistanciaResponse(
+                new DistanciaResponse.PosicaoUsuario(x, y),
+                resposta.agencias(),
+                resposta.totalAgencias(),
+                resposta.agenciaMaisProxima(),
+                resposta.menorDistancia()
+            );
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package com.santander.agencia.cache;
+
+import com.santander.agencia.dto.DistanciaResponse;
+
+/**
+ * Resposta de uma busca por proximidade acompanhada da distância da agência mais distante
+ * retornada, usada para decidir quais cadastros invalidam a resposta.
+ */
+public record ResultadoProximidade(DistanciaResponse resposta, double maiorDistancia) {}
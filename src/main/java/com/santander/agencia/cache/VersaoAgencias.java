@@ -0,0 +1,64 @@
+package com.santander.agencia.cache;
+
+import com.santander.agencia.config.AgenciaProperties;
+import com.santander.agencia.event.AgenciaCadastradaEvent;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Versão do conjunto de agências, incrementada a cada cadastro confirmado, e o {@code ETag} das
+ * respostas de {@code GET /desafio/distancia} derivado dela. Enquanto a versão não muda, a
+ * resposta para a mesma posição, limite e raio também não muda, e uma requisição com
+ * {@code If-None-Match} igual ao {@code ETag} pode ser respondida com 304 sem consulta.
+ *
+ * <p>A versão deve ser lida antes da consulta e só é incrementada depois que o índice espacial e
+ * o cache já refletem o cadastro (o ouvinte roda por último): assim uma resposta nunca recebe uma
+ * versão mais nova que os dados que contém, no máximo uma mais antiga, o que só custa uma consulta
+ * a mais. O {@code ETag} também inclui o instante de início da aplicação, já que a versão recomeça
+ * do zero a cada partida.
+ *
+ * <p>O {@code ETag} é fraco ({@code W/}): respostas em cache podem trazer distâncias calculadas a
+ * partir de outra posição da mesma célula ({@code agencia.cache.precisao}), equivalentes mas não
+ * idênticas byte a byte.
+ */
+@Component
+public class VersaoAgencias {
+
+    private final boolean habilitado;
+    private final String epoca = Long.toString(System.currentTimeMillis(), Character.MAX_RADIX);
+    private final AtomicLong versao = new AtomicLong();
+
+    public VersaoAgencias(AgenciaProperties propriedades) {
+        this.habilitado = propriedades.getEtag().isHabilitado();
+    }
+
+    public boolean isHabilitado() {
+        return habilitado;
+    }
+
+    public long atual() {
+        return versao.get();
+    }
+
+    /**
+     * {@code ETag} da resposta para a posição, o limite já validado e o raio, na versão atual.
+     */
+    public String etag(double posX, double posY, int limite, Double raio) {
+        long hash = Double.doubleToLongBits(posX);
+        hash = hash * 31 + Double.doubleToLongBits(posY);
+        hash = hash * 31 + limite;
+        hash = hash * 31 + (raio != null ? Double.doubleToLongBits(raio) : 0);
+        return "W/\"" + epoca + '-' + Long.toString(versao.get(), Character.MAX_RADIX) + '-'
+                + Long.toHexString(hash) + '"';
+    }
+
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void aoCadastrarAgencia(AgenciaCadastradaEvent evento) {
+        versao.incrementAndGet();
+    }
+}
@@ -0,0 +1,246 @@
+package com.santander.agencia.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "agencia")
+public class AgenciaProperties {
+
+    private Consulta consulta = new Consulta();
+
+    private Cache cache = new Cache();
+
+    private Armazenamento armazenamento = new Armazenamento();
+
+    private Inicializacao inicializacao = new Inicializacao();
+
+    private Assincrono assincrono = new Assincrono();
+
+    private Admissao admissao = new Admissao();
+
+    private Gravacao gravacao = new Gravacao();
+
+    private Assinaturas assinaturas = new Assinaturas();
+
+    private Etag etag = new Etag();
+
+    @Data
+    public static class Consulta {
+
+        private ModoConsulta modo = ModoConsulta.SQL;
+
+        /**
+         * Medida das distâncias retornadas nas consultas e usada no raio. A distância mínima entre
+         * agências no cadastro é sempre plana.
+         */
+        private TipoDistancia distancia = TipoDistancia.PLANA;
+
+        private Caixa caixa = new Caixa();
+    }
+
+    @Data
+    public static class Caixa {
+
+        /**
+         * Meia largura do primeiro quadrado consultado; ao menos dobra a cada tentativa.
+         */
+        private double raioInicial = 1.0;
+
+        /**
+         * Acima deste raio a busca recorre à consulta sem filtro.
+         */
+        private double raioMaximo = 512.0;
+    }
+
+    @Data
+    public static class Cache {
+
+        private boolean habilitado = true;
+
+        /**
+         * Passo de quantização das coordenadas na chave; posições na mesma célula compartilham
+         * o resultado da primeira consulta.
+         */
+        private double precisao = 0.0001;
+
+        private long tamanhoMaximo = 10_000;
+
+        private InvalidacaoCache invalidacao = InvalidacaoCache.REGIAO;
+    }
+
+    @Data
+    public static class Armazenamento {
+
+        private TipoArmazenamento tipo = TipoArmazenamento.BANCO;
+
+        /**
+         * Caminho do arquivo usado quando {@code tipo=arquivo}; criado se não existir.
+         */
+        private String arquivo = "data/agencias.dat";
+
+        /**
+         * Quantidade de registros reservada no arquivo ao criá-lo; o mapeamento dobra quando enche.
+         */
+        private int capacidadeInicial = 1024;
+
+        /**
+         * Força a gravação em disco a cada cadastro. Sem isso a gravação fica a cargo do sistema
+         * operacional, e um desligamento abrupto da máquina pode perder os últimos cadastros.
+         */
+        private boolean sincronizar = false;
+    }
+
+    @Data
+    public static class Inicializacao {
+
+        private Instantaneo instantaneo = new Instantaneo();
+
+        private Aquecimento aquecimento = new Aquecimento();
+    }
+
+    @Data
+    public static class Instantaneo {
+
+        /**
+         * Arquivo binário com o índice espacial, lido na inicialização no modo {@code indice} e
+         * gravado ao encerrar a aplicação. Vazio desliga o instantâneo.
+         */
+        private String arquivo = "";
+
+        /**
+         * Intervalo entre gravações periódicas do instantâneo; zero grava apenas ao encerrar.
+         */
+        private Duration intervalo = Duration.ZERO;
+    }
+
+    @Data
+    public static class Aquecimento {
+
+        /**
+         * Consultas sintéticas executadas antes de a aplicação ficar pronta; zero desliga.
+         */
+        private int consultas = 1000;
+
+        /**
+         * Tempo máximo do aquecimento, mesmo que nem todas as consultas tenham sido executadas.
+         */
+        private Duration duracaoMaxima = Duration.ofSeconds(30);
+    }
+
+    @Data
+    public static class Assincrono {
+
+        /**
+         * Threads que executam as chamadas bloqueantes dos endpoints em {@code /desafio/assincrono};
+         * limita quantas consultas e cadastros assíncronos ocupam o banco ao mesmo tempo.
+         */
+        private int threads = 16;
+
+        /**
+         * Chamadas aguardando uma thread livre; acima disso a requisição é recusada com 503.
+         */
+        private int fila = 1000;
+    }
+
+    @Data
+    public static class Admissao {
+
+        /**
+         * Limita as buscas e os cadastros simultâneos dos endpoints síncronos; desligado, as
+         * requisições não esperam nem são recusadas.
+         */
+        private boolean habilitado = true;
+
+        private TipoLimiteAdmissao limite = TipoLimiteAdmissao.ADAPTATIVO;
+
+        private int limiteInicial = 20;
+
+        private int limiteMinimo = 2;
+
+        private int limiteMaximo = 200;
+
+        /**
+         * No limite adaptativo, respostas mais lentas que isso reduzem o limite.
+         */
+        private Duration latenciaAlvo = Duration.ofMillis(250);
+
+        /**
+         * Requisições aguardando vaga, por prioridade; acima disso a requisição é recusada de imediato.
+         */
+        private int fila = 100;
+
+        /**
+         * Tempo máximo de espera por uma vaga antes da recusa.
+         */
+        private Duration esperaMaxima = Duration.ofMillis(500);
+
+        /**
+         * Valor do cabeçalho {@code Retry-After} das recusas.
+         */
+        private Duration tentarNovamenteApos = Duration.ofSeconds(1);
+    }
+
+    @Data
+    public static class Gravacao {
+
+        /**
+         * Diretório onde o endpoint {@code /actuator/gravacao} grava os arquivos {@code .jfr}.
+         */
+        private String diretorio = "jfr";
+
+        /**
+         * Configuração do JFR usada nas gravações: {@code default} (sobrecarga de cerca de 1%) ou
+         * {@code profile} (mais detalhada).
+         */
+        private String configuracao = "default";
+
+        /**
+         * Duração das gravações iniciadas sem {@code duracao}.
+         */
+        private Duration duracaoPadrao = Duration.ofMinutes(1);
+
+        /**
+         * Maior duração aceita; pedidos acima dela são limitados a este valor.
+         */
+        private Duration duracaoMaxima = Duration.ofMinutes(10);
+    }
+
+    @Data
+    public static class Assinaturas {
+
+        /**
+         * Assinaturas abertas ao mesmo tempo; acima disso a assinatura é recusada com 503.
+         */
+        private int maximo = 10_000;
+
+        /**
+         * Tempo após o qual a conexão de uma assinatura é encerrada; o cliente reconecta e recebe
+         * a lista completa de novo.
+         */
+        private Duration tempoLimite = Duration.ofMinutes(30);
+
+        /**
+         * Eventos aguardando envio por assinatura; acima disso o cliente é considerado parado e a
+         * assinatura é encerrada.
+         */
+        private int fila = 100;
+
+        /**
+         * Threads que enviam os eventos; cada cliente parado ocupa uma até a escrita falhar.
+         */
+        private int threadsEnvio = 4;
+    }
+
+    @Data
+    public static class Etag {
+
+        /**
+         * Responde {@code GET /desafio/distancia} com {@code ETag} e atende {@code If-None-Match}
+         * com 304 enquanto nenhuma agência for cadastrada.
+         */
+        private boolean habilitado = true;
+    }
+}
@@ -0,0 +1,14 @@
+package com.santander.agencia.config;
+
+public enum InvalidacaoCache {
+
+    /**
+     * Remove apenas as consultas cujo resultado pode mudar com a nova agência.
+     */
+    REGIAO,
+
+    /**
+     * Esvazia o cache a cada cadastro.
+     */
+    TOTAL
+}
@@ -0,0 +1,27 @@
+package com.santander.agencia.config;
+
+public enum ModoConsulta {
+
+    /**
+     * Consulta nativa no banco, calculando a distância para todas as agências. A distância mínima
+     * no cadastro é verificada como no modo {@link #CAIXA}.
+     */
+    SQL,
+
+    /**
+     * Consulta nativa no banco pré-filtrada por um quadrado ao redor da posição, ampliado
+     * progressivamente até encontrar agências suficientes.
+     */
+    CAIXA,
+
+    /**
+     * Como {@link #CAIXA}, mas o quadrado é lido como poucas faixas do código Z-order das agências
+     * ({@code codigo_espacial}), cada uma uma leitura por intervalo no índice da coluna.
+     */
+    CELULA,
+
+    /**
+     * Índice espacial em memória carregado na inicialização e atualizado a cada cadastro.
+     */
+    INDICE
+}
@@ -0,0 +1,14 @@
+package com.santander.agencia.config;
+
+public enum TipoArmazenamento {
+
+    /**
+     * Agências gravadas no banco configurado em {@code spring.datasource} pelo JPA.
+     */
+    BANCO,
+
+    /**
+     * Agências gravadas em um arquivo mapeado em memória, preservado entre reinícios.
+     */
+    ARQUIVO
+}
@@ -0,0 +1,15 @@
+package com.santander.agencia.config;
+
+public enum TipoDistancia {
+
+    /**
+     * Distância euclidiana entre as coordenadas, na mesma unidade delas.
+     */
+    PLANA,
+
+    /**
+     * Distância de círculo máximo em quilômetros, tratando {@code posX} como longitude e
+     * {@code posY} como latitude em graus.
+     */
+    GEODESICA
+}
@@ -0,0 +1,15 @@
+package com.santander.agencia.config;
+
+public enum TipoLimiteAdmissao {
+
+    /**
+     * Limite de requisições simultâneas constante, igual a {@code limite-inicial}.
+     */
+    FIXO,
+
+    /**
+     * Limite ajustado pela latência observada: cresce uma unidade a cada {@code limite} respostas
+     * dentro da latência alvo e cai 10% quando as respostas passam dela (AIMD).
+     */
+    ADAPTATIVO
+}
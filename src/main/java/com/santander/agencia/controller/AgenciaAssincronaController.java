@@ -0,0 +1,120 @@
+package com.santander.agencia.controller;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.santander.agencia.dto.CadastroAgenciaRequest;
+import com.santander.agencia.dto.CadastroAgenciaResponse;
+import com.santander.agencia.dto.DistanciaResponse;
+import com.santander.agencia.dto.FormatadorDistancia;
+import com.santander.agencia.service.AgenciaService;
+import com.santander.agencia.service.AgenciaServiceAssincrono;
+import jakarta.validation.Valid;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Versões não bloqueantes de {@code POST /desafio/cadastrar} e {@code GET /desafio/distancia},
+ * com as mesmas respostas. A thread do Tomcat só valida a requisição e a entrega à
+ * {@link com.santander.agencia.service.PonteBloqueante}; a resposta é escrita quando o
+ * {@link CompletableFuture} completa, em processamento assíncrono do Servlet.
+ */
+@RestController
+@RequestMapping("/desafio/assincrono")
+@CrossOrigin(origins = "*")
+public class AgenciaAssincronaController {
+
+    private static final Logger logger = LoggerFactory.getLogger(AgenciaAssincronaController.class);
+    private static final JsonFactory FABRICA_JSON = new JsonFactory();
+
+    @Autowired
+    private AgenciaServiceAssincrono agenciaServiceAssincrono;
+
+    @Autowired
+    private AgenciaService agenciaService;
+
+    @PostMapping("/cadastrar")
+    public CompletableFuture<ResponseEntity<CadastroAgenciaResponse>> cadastrarAgencia(
+            @Valid @RequestBody CadastroAgenciaRequest request) {
+
+        logger.info("Recebida requisição assíncrona para cadastrar agência na posição ({}, {})",
+                   request.posX(), request.posY());
+
+        return agenciaServiceAssincrono.cadastrarAgencia(request)
+                .thenApply(response -> ResponseEntity.status(HttpStatus.CREATED).body(response));
+    }
+
+    @GetMapping("/distancia")
+    public CompletableFuture<ResponseEntity<DistanciaResponse>> buscarAgenciasProximas(
+            @RequestParam(value = "posX", required = true) Double posX,
+            @RequestParam(value = "posY", required = true) Double posY,
+            @RequestParam(value = "k", required = false) Integer k,
+            @RequestParam(value = "raio", required = false) Double raio) {
+
+        logger.info("Recebida requisição assíncrona para buscar agências próximas à posição ({}, {})", posX, posY);
+
+        agenciaService.validarParametrosBusca(posX, posY, k, raio);
+
+        return agenciaServiceAssincrono.buscarAgenciasProximas(posX, posY, k, raio)
+                .thenApply(ResponseEntity::ok);
+    }
+
+    /**
+     * Variante NDJSON, com as mesmas linhas de {@code GET /desafio/distancia}. Cada linha é enviada
+     * pela thread da ponte assim que a agência é lida; como o envio bloqueia enquanto a conexão
+     * não aceita mais dados, um cliente lento desacelera a leitura do cursor em vez de acumular
+     * linhas em memória.
+     */
+    @GetMapping(value = "/distancia", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<ResponseBodyEmitter> transmitirAgenciasProximas(
+            @RequestParam(value = "posX", required = true) Double posX,
+            @RequestParam(value = "posY", required = true) Double posY,
+            @RequestParam(value = "k", required = false) Integer k,
+            @RequestParam(value = "raio", required = false) Double raio) {
+
+        logger.info("Recebida requisição assíncrona para transmitir agências próximas à posição ({}, {})", posX, posY);
+
+        agenciaService.validarParametrosBusca(posX, posY, k, raio);
+
+        ResponseBodyEmitter emissor = new ResponseBodyEmitter();
+        ByteArrayOutputStream linha = new ByteArrayOutputStream();
+        JsonGenerator gerador = criarGerador(linha);
+        char[] buffer = new char[FormatadorDistancia.TAMANHO_BUFFER];
+        agenciaServiceAssincrono.transmitirAgenciasProximas(posX, posY, k, raio, (nomeAgencia, distancia) -> {
+            AgenciaController.escreverLinhaAgencia(gerador, nomeAgencia, distancia, buffer);
+            gerador.flush();
+            emissor.send(linha.toByteArray(), MediaType.APPLICATION_NDJSON);
+            linha.reset();
+        }).whenComplete((total, erro) -> {
+            if (erro != null) {
+                emissor.completeWithError(erro);
+            } else {
+                emissor.complete();
+            }
+        });
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(emissor);
+    }
+
+    private static JsonGenerator criarGerador(ByteArrayOutputStream saida) {
+        try {
+            JsonGenerator gerador = FABRICA_JSON.createGenerator(saida);
+            gerador.setRootValueSeparator(null);
+            return gerador;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -1,16 +1,36 @@
 package com.santander.agencia.controller;
 
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.santander.agencia.admissao.ControleAdmissao;
+import com.santander.agencia.admissao.ControleAdmissao.Prioridade;
+import com.santander.agencia.assinatura.AssinaturasProximidade;
+import com.santander.agencia.cache.VersaoAgencias;
 import com.santander.agencia.dto.CadastroAgenciaRequest;
 import com.santander.agencia.dto.CadastroAgenciaResponse;
+import com.santander.agencia.dto.CadastroLoteRequest;
+import com.santander.agencia.dto.CadastroLoteResponse;
+import com.santander.agencia.dto.ConsultaLoteRequest;
+import com.santander.agencia.dto.ConsultaLoteResponse;
 import com.santander.agencia.dto.DistanciaResponse;
+import com.santander.agencia.dto.FormatadorDistancia;
 import com.santander.agencia.service.AgenciaService;
 import jakarta.validation.Valid;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
 
 @RestController
 @RequestMapping("/desafio")
@@ -18,10 +38,23 @@ import org.springframework.web.bind.annotation.*;
 public class AgenciaController {
 
     private static final Logger logger = LoggerFactory.getLogger(AgenciaController.class);
+    private static final JsonFactory FABRICA_JSON = new JsonFactory();
 
     @Autowired
     private AgenciaService agenciaService;
 
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ControleAdmissao controleAdmissao;
+
+    @Autowired
+    private AssinaturasProximidade assinaturas;
+
+    @Autowired
+    private VersaoAgencias versaoAgencias;
+
     @PostMapping("/cadastrar")
     public ResponseEntity<CadastroAgenciaResponse> cadastrarAgencia(
             @Valid @RequestBody CadastroAgenciaRequest request) {
@@ -29,25 +62,176 @@ public class AgenciaController {
         logger.info("Recebida requisição para cadastrar agência na posição ({}, {})", 
                    request.posX(), request.posY());
 
-        CadastroAgenciaResponse response = agenciaService.cadastrarAgencia(request);
+        CadastroAgenciaResponse response = controleAdmissao.executar(
+                Prioridade.CADASTRO, () -> agenciaService.cadastrarAgencia(request));
         
         logger.info("Agência cadastrada com sucesso - ID: {}", response.id());
         
         return ResponseEntity.status(HttpStatus.CREATED).body(response);
     }
 
+    @PostMapping("/cadastrar/lote")
+    public ResponseEntity<CadastroLoteResponse> cadastrarAgenciasEmLote(
+            @Valid @RequestBody CadastroLoteRequest request) {
+
+        logger.info("Recebida requisição para cadastrar {} agências em lote", request.agencias().size());
+
+        CadastroLoteResponse response = agenciaService.cadastrarAgenciasEmLote(request);
+
+        logger.info("Cadastro em lote realizado - {} cadastradas, {} rejeitadas",
+                   response.cadastradas(), response.rejeitadas());
+
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * Passa pelo {@link ControleAdmissao}: acima do limite de requisições simultâneas, a busca
+     * espera uma vaga ou é recusada com 503.
+     *
+     * <p>A resposta leva o {@code ETag} da versão atual das agências ({@link VersaoAgencias}); com
+     * {@code If-None-Match} igual a ele, responde 304 antes do controle de admissão e da busca.
+     */
     @GetMapping("/distancia")
     public ResponseEntity<DistanciaResponse> buscarAgenciasProximas(
             @RequestParam(value = "posX", required = true) Double posX,
-            @RequestParam(value = "posY", required = true) Double posY) {
+            @RequestParam(value = "posY", required = true) Double posY,
+            @RequestParam(value = "k", required = false) Integer k,
+            @RequestParam(value = "raio", required = false) Double raio,
+            WebRequest requisicao) {
         
         logger.info("Recebida requisição para buscar agências próximas à posição ({}, {})", posX, posY);
 
-        DistanciaResponse response = agenciaService.buscarAgenciasProximas(posX, posY);
+        String etag = null;
+        if (versaoAgencias.isHabilitado()) {
+            int limite = agenciaService.validarParametrosBusca(posX, posY, k, raio);
+            etag = versaoAgencias.etag(posX, posY, limite, raio);
+            if (requisicao.checkNotModified(etag)) {
+                logger.info("Agências próximas inalteradas desde {}", etag);
+                return null;
+            }
+        }
+
+        DistanciaResponse response = controleAdmissao.executar(
+                Prioridade.LEITURA, () -> agenciaService.buscarAgenciasProximas(posX, posY, k, raio));
         
         logger.info("Consulta realizada com sucesso - {} agências encontradas", 
                    response.totalAgencias());
         
+        ResponseEntity.BodyBuilder resposta = ResponseEntity.ok();
+        if (etag != null) {
+            resposta.eTag(etag)
+                    .cacheControl(CacheControl.noCache())
+                    .varyBy(HttpHeaders.ACCEPT);
+        }
+        return resposta.body(response);
+    }
+
+    /**
+     * Variante de {@code GET /desafio/distancia} para {@code Accept: application/x-ndjson}: escreve
+     * uma linha {@code {"agencia":"AGENCIA_1","distancia":"distancia = 5.00"}} por agência, em
+     * ordem crescente de distância, à medida que as agências são lidas.
+     */
+    @GetMapping(value = "/distancia", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> transmitirAgenciasProximas(
+            @RequestParam(value = "posX", required = true) Double posX,
+            @RequestParam(value = "posY", required = true) Double posY,
+            @RequestParam(value = "k", required = false) Integer k,
+            @RequestParam(value = "raio", required = false) Double raio) {
+
+        logger.info("Recebida requisição para transmitir agências próximas à posição ({}, {})", posX, posY);
+
+        agenciaService.validarParametrosBusca(posX, posY, k, raio);
+
+        StreamingResponseBody corpo = saida -> {
+            try (JsonGenerator gerador = FABRICA_JSON.createGenerator(saida)) {
+                gerador.configure(JsonGenerator.Feature.AUTO_CLOSE_TARGET, false);
+                gerador.setRootValueSeparator(null);
+                char[] buffer = new char[FormatadorDistancia.TAMANHO_BUFFER];
+                agenciaService.transmitirAgenciasProximas(posX, posY, k, raio, (nomeAgencia, distancia) ->
+                    escreverLinhaAgencia(gerador, nomeAgencia, distancia, buffer));
+            }
+        };
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(corpo);
+    }
+
+    /**
+     * Variante de {@code GET /desafio/distancia} para {@code Accept: text/event-stream}: envia o
+     * evento {@code agencias} com a lista das agências mais próximas e, a cada cadastro que a
+     * altera, o evento {@code alteracao} com a agência que entrou, a sua posição e a que saiu.
+     */
+    @GetMapping(value = "/distancia", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter assinarAgenciasProximas(
+            @RequestParam(value = "posX", required = true) Double posX,
+            @RequestParam(value = "posY", required = true) Double posY,
+            @RequestParam(value = "k", required = false) Integer k,
+            @RequestParam(value = "raio", required = false) Double raio) throws IOException {
+
+        logger.info("Recebida assinatura de agências próximas à posição ({}, {})", posX, posY);
+
+        return assinaturas.assinar(posX, posY, k, raio);
+    }
+
+    /**
+     * Escreve a linha NDJSON de uma agência; {@code buffer} deve ter
+     * {@link FormatadorDistancia#TAMANHO_BUFFER} posições.
+     */
+    static void escreverLinhaAgencia(JsonGenerator gerador, String nomeAgencia, double distancia,
+                                     char[] buffer) throws IOException {
+        gerador.writeStartObject();
+        gerador.writeStringField("agencia", nomeAgencia);
+        gerador.writeFieldName("distancia");
+        int tamanho = FormatadorDistancia.escrever(distancia, buffer);
+        if (tamanho >= 0) {
+            gerador.writeString(buffer, 0, tamanho);
+        } else {
+            gerador.writeString(FormatadorDistancia.formatar(distancia));
+        }
+        gerador.writeEndObject();
+        gerador.writeRaw('\n');
+    }
+
+    @PostMapping("/distancia/lote")
+    public ResponseEntity<ConsultaLoteResponse> buscarAgenciasProximasEmLote(
+            @Valid @RequestBody ConsultaLoteRequest request) {
+
+        logger.info("Recebida requisição para buscar agências próximas de {} posições", request.posicoes().size());
+
+        ConsultaLoteResponse response = agenciaService.buscarAgenciasProximasEmLote(request);
+
+        logger.info("Consulta em lote realizada com sucesso - {} posições", response.total());
+
         return ResponseEntity.ok(response);
     }
+
+    /**
+     * Variante de {@code POST /desafio/distancia/lote} para {@code Accept: application/x-ndjson}:
+     * escreve uma linha por posição, na ordem do lote, com o mesmo conteúdo da resposta de
+     * {@code GET /desafio/distancia}.
+     */
+    @PostMapping(value = "/distancia/lote", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> transmitirAgenciasProximasEmLote(
+            @Valid @RequestBody ConsultaLoteRequest request) {
+
+        logger.info("Recebida requisição para transmitir agências próximas de {} posições", request.posicoes().size());
+
+        agenciaService.validarConsultaLote(request);
+
+        StreamingResponseBody corpo = saida -> {
+            try (JsonGenerator gerador = FABRICA_JSON.createGenerator(saida)) {
+                gerador.configure(JsonGenerator.Feature.AUTO_CLOSE_TARGET, false);
+                gerador.setRootValueSeparator(null);
+                agenciaService.transmitirAgenciasProximasEmLote(request, resultado -> {
+                    objectMapper.writeValue(gerador, resultado);
+                    gerador.writeRaw('\n');
+                });
+            }
+        };
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(corpo);
+    }
 }
@@ -0,0 +1,21 @@
+package com.santander.agencia.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Agência e distância formatada ({@code "distancia = 5.00"}), como nas linhas NDJSON de
+ * {@code GET /desafio/distancia}.
+ */
+public record AgenciaDistancia(
+
+    @JsonProperty("agencia")
+    String agencia,
+
+    @JsonProperty("distancia")
+    String distancia
+) {
+
+    public static AgenciaDistancia de(String agencia, double distancia) {
+        return new AgenciaDistancia(agencia, FormatadorDistancia.formatar(distancia));
+    }
+}
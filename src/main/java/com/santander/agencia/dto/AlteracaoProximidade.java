@@ -0,0 +1,20 @@
+package com.santander.agencia.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Alteração nas agências mais próximas de uma assinatura causada por um cadastro: a agência que
+ * entrou, a sua posição na lista (a partir de 0) e a agência que saiu para abrir espaço, se a
+ * lista já tinha {@code k} agências.
+ */
+public record AlteracaoProximidade(
+
+    @JsonProperty("entrou")
+    AgenciaDistancia entrou,
+
+    @JsonProperty("posicao")
+    int posicao,
+
+    @JsonProperty("saiu")
+    String saiu
+) {}
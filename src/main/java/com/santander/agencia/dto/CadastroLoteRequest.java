@@ -0,0 +1,15 @@
+package com.santander.agencia.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+
+public record CadastroLoteRequest(
+
+    @JsonProperty("agencias")
+    @NotEmpty(message = "A lista de agências é obrigatória")
+    @Size(max = 10000, message = "O lote deve ter no máximo 10000 agências")
+    List<CadastroAgenciaRequest> agencias
+) {}
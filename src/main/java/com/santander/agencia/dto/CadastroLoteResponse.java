@@ -0,0 +1,50 @@
+package com.santander.agencia.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.List;
+
+public record CadastroLoteResponse(
+
+    @JsonProperty("total")
+    Integer total,
+
+    @JsonProperty("cadastradas")
+    Integer cadastradas,
+
+    @JsonProperty("rejeitadas")
+    Integer rejeitadas,
+
+    @JsonProperty("itens")
+    List<ItemCadastroLote> itens
+) {
+
+    public enum StatusItem {
+        CADASTRADA,
+        REJEITADA
+    }
+
+    public record ItemCadastroLote(
+
+        @JsonProperty("indice")
+        Integer indice,
+
+        @JsonProperty("status")
+        StatusItem status,
+
+        @JsonProperty("id")
+        Long id,
+
+        @JsonProperty("nome")
+        String nome,
+
+        @JsonProperty("posX")
+        Double posX,
+
+        @JsonProperty("posY")
+        Double posY,
+
+        @JsonProperty("mensagem")
+        String mensagem
+    ) {}
+}
@@ -0,0 +1,21 @@
+package com.santander.agencia.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+
+public record ConsultaLoteRequest(
+
+    @JsonProperty("posicoes")
+    @NotEmpty(message = "A lista de posições é obrigatória")
+    @Size(max = 10000, message = "O lote deve ter no máximo 10000 posições")
+    List<DistanciaResponse.PosicaoUsuario> posicoes,
+
+    @JsonProperty("k")
+    Integer k,
+
+    @JsonProperty("raio")
+    Double raio
+) {}
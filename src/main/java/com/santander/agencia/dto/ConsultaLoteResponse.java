@@ -0,0 +1,14 @@
+package com.santander.agencia.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.List;
+
+public record ConsultaLoteResponse(
+
+    @JsonProperty("total")
+    Integer total,
+
+    @JsonProperty("resultados")
+    List<DistanciaResponse> resultados
+) {}
@@ -0,0 +1,75 @@
+package com.santander.agencia.dto;
+
+import java.util.Locale;
+
+/**
+ * Formata distâncias como {@code "distancia = 12.34"}, com o mesmo resultado de
+ * {@code String.format("distancia = %.2f", distancia)} com ponto decimal em qualquer locale.
+ *
+ * <p>{@code %.2f} arredonda para cima o empate na representação decimal mais curta do
+ * {@code double}. O caminho rápido arredonda {@code distancia * 100} sem alocar e recorre a
+ * {@link String#format} quando o valor está perto de um empate, onde o erro da multiplicação
+ * poderia mudar o resultado, ou fora do intervalo {@code [0, 1e9)}.
+ */
+public final class FormatadorDistancia {
+
+    public static final String PREFIXO = "distancia = ";
+
+    /**
+     * Capacidade suficiente para qualquer valor do caminho rápido.
+     */
+    public static final int TAMANHO_BUFFER = 32;
+
+    private static final double LIMITE_CAMINHO_RAPIDO = 1e9;
+    private static final double TOLERANCIA_EMPATE = 1e-4;
+
+    private FormatadorDistancia() {
+    }
+
+    public static String formatar(double distancia) {
+        char[] buffer = new char[TAMANHO_BUFFER];
+        int tamanho = escrever(distancia, buffer);
+        return tamanho >= 0 ? new String(buffer, 0, tamanho) : formatarComString(distancia);
+    }
+
+    /**
+     * Escreve o texto formatado no início de {@code destino}, que deve ter ao menos
+     * {@link #TAMANHO_BUFFER} posições.
+     *
+     * @return quantidade de caracteres escritos, ou {@code -1} quando o valor exige
+     *         {@link #formatar(double)}
+     */
+    public static int escrever(double distancia, char[] destino) {
+        if (!(distancia >= 0 && distancia < LIMITE_CAMINHO_RAPIDO)) {
+            return -1;
+        }
+        double centesimos = distancia * 100;
+        long inteiro = (long) centesimos;
+        double fracao = centesimos - inteiro;
+        if (Math.abs(fracao - 0.5) <= TOLERANCIA_EMPATE) {
+            return -1;
+        }
+        long arredondado = fracao > 0.5 ? inteiro + 1 : inteiro;
+
+        PREFIXO.getChars(0, PREFIXO.length(), destino, 0);
+        long parteInteira = arredondado / 100;
+        int centavos = (int) (arredondado % 100);
+        int digitos = 1;
+        for (long limite = 10; parteInteira >= limite; limite *= 10) {
+            digitos++;
+        }
+        int posicao = PREFIXO.length() + digitos;
+        for (int i = posicao - 1; i >= PREFIXO.length(); i--) {
+            destino[i] = (char) ('0' + parteInteira % 10);
+            parteInteira /= 10;
+        }
+        destino[posicao++] = '.';
+        destino[posicao++] = (char) ('0' + centavos / 10);
+        destino[posicao++] = (char) ('0' + centavos % 10);
+        return posicao;
+    }
+
+    private static String formatarComString(double distancia) {
+        return String.format(Locale.ROOT, PREFIXO + "%.2f", distancia);
+    }
+}
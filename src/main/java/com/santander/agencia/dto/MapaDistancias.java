@@ -0,0 +1,125 @@
+package com.santander.agencia.dto;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import com.santander.agencia.metrics.EventosAgencia;
+
+import java.io.IOException;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Visão imutável {@code nome da agência -> "distancia = x.xx"} sobre arrays de nomes e
+ * distâncias em ordem crescente de distância. As distâncias só são formatadas ao ler os valores;
+ * na serialização são escritas diretamente no {@link JsonGenerator}, produzindo o mesmo JSON de um
+ * {@code LinkedHashMap<String, String>} com os mesmos pares.
+ */
+@JsonSerialize(using = MapaDistancias.Serializador.class)
+public final class MapaDistancias extends AbstractMap<String, String> {
+
+    private final String[] nomes;
+    private final double[] distancias;
+    private final int tamanho;
+
+    /**
+     * Usa os {@code tamanho} primeiros elementos dos arrays, que não são copiados e não devem ser
+     * alterados depois. Os nomes devem ser distintos.
+     */
+    public MapaDistancias(String[] nomes, double[] distancias, int tamanho) {
+        this.nomes = nomes;
+        this.distancias = distancias;
+        this.tamanho = tamanho;
+    }
+
+    @Override
+    public int size() {
+        return tamanho;
+    }
+
+    @Override
+    public String get(Object chave) {
+        for (int i = 0; i < tamanho; i++) {
+            if (nomes[i].equals(chave)) {
+                return FormatadorDistancia.formatar(distancias[i]);
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public boolean containsKey(Object chave) {
+        for (int i = 0; i < tamanho; i++) {
+            if (nomes[i].equals(chave)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public Set<Entry<String, String>> entrySet() {
+        return new AbstractSet<>() {
+            @Override
+            public Iterator<Entry<String, String>> iterator() {
+                return new Iterator<>() {
+                    private int proximo;
+
+                    @Override
+                    public boolean hasNext() {
+                        return proximo < tamanho;
+                    }
+
+                    @Override
+                    public Entry<String, String> next() {
+                        if (proximo >= tamanho) {
+                            throw new NoSuchElementException();
+                        }
+                        int i = proximo++;
+                        return new SimpleImmutableEntry<>(nomes[i], FormatadorDistancia.formatar(distancias[i]));
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return tamanho;
+            }
+        };
+    }
+
+    static final class Serializador extends StdSerializer<MapaDistancias> {
+
+        Serializador() {
+            super(MapaDistancias.class);
+        }
+
+        @Override
+        public void serialize(MapaDistancias mapa, JsonGenerator gerador, SerializerProvider provider)
+                throws IOException {
+            EventosAgencia.Serializacao evento = new EventosAgencia.Serializacao();
+            evento.begin();
+            char[] buffer = new char[FormatadorDistancia.TAMANHO_BUFFER];
+            gerador.writeStartObject(mapa);
+            for (int i = 0; i < mapa.tamanho; i++) {
+                gerador.writeFieldName(mapa.nomes[i]);
+                int tamanho = FormatadorDistancia.escrever(mapa.distancias[i], buffer);
+                if (tamanho >= 0) {
+                    gerador.writeString(buffer, 0, tamanho);
+                } else {
+                    gerador.writeString(FormatadorDistancia.formatar(mapa.distancias[i]));
+                }
+            }
+            gerador.writeEndObject();
+            evento.end();
+            if (evento.shouldCommit()) {
+                evento.agencias = mapa.tamanho;
+                evento.commit();
+            }
+        }
+    }
+}
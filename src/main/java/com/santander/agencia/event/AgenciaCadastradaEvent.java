@@ -0,0 +1,12 @@
+package com.santander.agencia.event;
+
+/**
+ * Publicado pelo serviço a cada agência persistida. Os ouvintes são executados após o commit
+ * da transação de cadastro.
+ */
+public record AgenciaCadastradaEvent(
+    Long id,
+    String nome,
+    double posX,
+    double posY
+) {}
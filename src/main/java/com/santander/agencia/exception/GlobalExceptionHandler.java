@@ -4,7 +4,9 @@ import lombok.AllArgsConstructor;
 import lombok.Getter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.FieldError;
 import org.springframework.web.bind.MethodArgumentNotValidException;
@@ -15,6 +17,7 @@ import org.springframework.web.method.annotation.MethodArgumentTypeMismatchExcep
 import java.time.LocalDateTime;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
 
 @ControllerAdvice
 public class GlobalExceptionHandler {
@@ -39,7 +42,7 @@ public class GlobalExceptionHandler {
         );
 
         logger.warn("Erro de validação: {}", errors);
-        return ResponseEntity.badRequest().body(errorResponse);
+        return ResponseEntity.badRequest().contentType(MediaType.APPLICATION_JSON).body(errorResponse);
     }
 
     @ExceptionHandler(IllegalArgumentException.class)
@@ -52,7 +55,7 @@ public class GlobalExceptionHandler {
         );
 
         logger.warn("Argumento inválido: {}", ex.getMessage());
-        return ResponseEntity.badRequest().body(errorResponse);
+        return ResponseEntity.badRequest().contentType(MediaType.APPLICATION_JSON).body(errorResponse);
     }
 
     @ExceptionHandler(MethodArgumentTypeMismatchException.class)
@@ -65,7 +68,37 @@ public class GlobalExceptionHandler {
         );
 
         logger.warn("Tipo de parâmetro inválido: {}", ex.getMessage());
-        return ResponseEntity.badRequest().body(errorResponse);
+        return ResponseEntity.badRequest().contentType(MediaType.APPLICATION_JSON).body(errorResponse);
+    }
+
+    /**
+     * Fila da {@link com.santander.agencia.service.PonteBloqueante} cheia: a requisição é recusada
+     * de imediato, e o cliente pode tentar de novo em seguida.
+     */
+    @ExceptionHandler(RejectedExecutionException.class)
+    public ResponseEntity<ErrorResponse> handleRejectedExecution(RejectedExecutionException ex) {
+        logger.warn("Requisição recusada por sobrecarga: {}", ex.getMessage());
+        return servicoSobrecarregado(1);
+    }
+
+    @ExceptionHandler(ServicoSobrecarregadoException.class)
+    public ResponseEntity<ErrorResponse> handleServicoSobrecarregado(ServicoSobrecarregadoException ex) {
+        logger.warn("Requisição recusada por sobrecarga: {}", ex.getMessage());
+        return servicoSobrecarregado(ex.getTentarNovamenteAposSegundos());
+    }
+
+    private ResponseEntity<ErrorResponse> servicoSobrecarregado(long tentarNovamenteAposSegundos) {
+        ErrorResponse errorResponse = new ErrorResponse(
+            LocalDateTime.now(),
+            HttpStatus.SERVICE_UNAVAILABLE.value(),
+            "Serviço sobrecarregado",
+            "Capacidade de processamento esgotada. Tente novamente em instantes."
+        );
+
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(tentarNovamenteAposSegundos))
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(errorResponse);
     }
 
     @ExceptionHandler(RuntimeException.class)
@@ -78,7 +111,9 @@ public class GlobalExceptionHandler {
         );
 
         logger.error("Erro interno: {}", ex.getMessage(), ex);
-        return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(errorResponse);
+        return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(errorResponse);
     }
 
     @ExceptionHandler(Exception.class)
@@ -91,7 +126,9 @@ public class GlobalExceptionHandler {
         );
 
         logger.error("Erro inesperado: {}", ex.getMessage(), ex);
-        return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(errorResponse);
+        return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(errorResponse);
     }
 
     @Getter
@@ -0,0 +1,17 @@
+package com.santander.agencia.exception;
+
+import lombok.Getter;
+
+/**
+ * Requisição recusada por falta de capacidade; respondida com 503 e {@code Retry-After}.
+ */
+@Getter
+public class ServicoSobrecarregadoException extends RuntimeException {
+
+    private final long tentarNovamenteAposSegundos;
+
+    public ServicoSobrecarregadoException(String message, long tentarNovamenteAposSegundos) {
+        super(message);
+        this.tentarNovamenteAposSegundos = tentarNovamenteAposSegundos;
+    }
+}
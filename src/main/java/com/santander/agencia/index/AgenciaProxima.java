@@ -0,0 +1,7 @@
+package com.santander.agencia.index;
+
+public record AgenciaProxima(
+    long id,
+    String nome,
+    double distancia
+) {}
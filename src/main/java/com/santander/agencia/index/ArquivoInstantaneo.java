@@ -0,0 +1,138 @@
+package com.santander.agencia.index;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Grava e lê um {@link InstantaneoAgencias} em formato binário compacto, para carregar o índice
+ * na inicialização sem ler as agências do banco nem reconstruir a árvore.
+ *
+ * <p>Formato (little-endian): identificação, versão, {@link Geometria} da árvore, um campo reservado,
+ * tamanho da árvore e quantidade de pendentes ({@value #TAMANHO_CABECALHO} bytes), seguidos dos identificadores, xs e ys da árvore na ordem em
+ * que ela os organizou e dos identificadores, xs e ys das pendentes, 24 bytes por agência. As
+ * projeções da geometria esférica não são gravadas; são recalculadas na leitura, sem reorganizar
+ * a árvore.
+ */
+public final class ArquivoInstantaneo {
+
+    private static final int IDENTIFICACAO = 0x41474958;
+    private static final int VERSAO = 2;
+    private static final int TAMANHO_CABECALHO = 24;
+    private static final int TAMANHO_BLOCO = 64 * 1024;
+
+    private ArquivoInstantaneo() {
+    }
+
+    /**
+     * Grava o instantâneo em um arquivo temporário e o move sobre {@code arquivo}, de modo que uma
+     * leitura concorrente ou uma falha no meio da gravação nunca encontra um arquivo incompleto.
+     */
+    public static void gravar(InstantaneoAgencias instantaneo, Path arquivo) throws IOException {
+        Path diretorio = arquivo.toAbsolutePath().getParent();
+        Files.createDirectories(diretorio);
+        Path temporario = Files.createTempFile(diretorio, arquivo.getFileName().toString(), ".tmp");
+        try (FileChannel canal = FileChannel.open(temporario, StandardOpenOption.WRITE)) {
+            ArvoreKd arvore = instantaneo.arvore();
+            int pendentes = instantaneo.totalPendentes();
+            ByteBuffer bloco = ByteBuffer.allocate(TAMANHO_BLOCO).order(ByteOrder.LITTLE_ENDIAN);
+            bloco.putInt(IDENTIFICACAO).putInt(VERSAO).putInt(arvore.geometria().ordinal()).putInt(0)
+                 .putInt(arvore.tamanho()).putInt(pendentes);
+
+            for (int i = 0; i < arvore.tamanho(); i++) {
+                bloco = garantirEspaco(canal, bloco).putLong(arvore.id(i));
+            }
+            for (int i = 0; i < arvore.tamanho(); i++) {
+                bloco = garantirEspaco(canal, bloco).putDouble(arvore.x(i));
+            }
+            for (int i = 0; i < arvore.tamanho(); i++) {
+                bloco = garantirEspaco(canal, bloco).putDouble(arvore.y(i));
+            }
+            for (int i = 0; i < pendentes; i++) {
+                bloco = garantirEspaco(canal, bloco).putLong(instantaneo.idPendente(i));
+            }
+            for (int i = 0; i < pendentes; i++) {
+                bloco = garantirEspaco(canal, bloco).putDouble(instantaneo.xPendente(i));
+            }
+            for (int i = 0; i < pendentes; i++) {
+                bloco = garantirEspaco(canal, bloco).putDouble(instantaneo.yPendente(i));
+            }
+            escrever(canal, bloco);
+            canal.force(true);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temporario);
+            throw e;
+        }
+        Files.move(temporario, arquivo, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Lê o instantâneo gravado em {@code arquivo}, que deve ter sido construído com a geometria
+     * informada.
+     */
+    public static InstantaneoAgencias ler(Path arquivo, Geometria geometria) throws IOException {
+        try (FileChannel canal = FileChannel.open(arquivo, StandardOpenOption.READ)) {
+            ByteBuffer conteudo = canal.map(FileChannel.MapMode.READ_ONLY, 0, canal.size())
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            if (conteudo.remaining() < TAMANHO_CABECALHO
+                    || conteudo.getInt() != IDENTIFICACAO || conteudo.getInt() != VERSAO) {
+                throw new IOException("Arquivo não é um instantâneo de agências válido: " + arquivo);
+            }
+            int geometriaGravada = conteudo.getInt();
+            if (geometriaGravada != geometria.ordinal()) {
+                throw new IOException("Instantâneo de agências gravado com outra geometria: " + arquivo);
+            }
+            conteudo.getInt();
+            int tamanhoArvore = conteudo.getInt();
+            int pendentes = conteudo.getInt();
+            if (tamanhoArvore < 0 || pendentes < 0
+                    || conteudo.remaining() != 24L * ((long) tamanhoArvore + pendentes)) {
+                throw new IOException("Instantâneo de agências incompleto: " + arquivo);
+            }
+
+            long[] ids = new long[tamanhoArvore];
+            double[] xs = new double[tamanhoArvore];
+            double[] ys = new double[tamanhoArvore];
+            lerColunas(conteudo, ids, xs, ys);
+            InstantaneoAgencias instantaneo = InstantaneoAgencias.de(ArvoreKd.organizada(geometria, ids, xs, ys));
+
+            long[] idsPendentes = new long[pendentes];
+            double[] xsPendentes = new double[pendentes];
+            double[] ysPendentes = new double[pendentes];
+            lerColunas(conteudo, idsPendentes, xsPendentes, ysPendentes);
+            for (int i = 0; i < pendentes; i++) {
+                instantaneo = instantaneo.comAgencia(idsPendentes[i], xsPendentes[i], ysPendentes[i]);
+            }
+            return instantaneo;
+        }
+    }
+
+    private static void lerColunas(ByteBuffer conteudo, long[] ids, double[] xs, double[] ys) {
+        conteudo.asLongBuffer().get(ids);
+        conteudo.position(conteudo.position() + Long.BYTES * ids.length);
+        conteudo.asDoubleBuffer().get(xs);
+        conteudo.position(conteudo.position() + Double.BYTES * xs.length);
+        conteudo.asDoubleBuffer().get(ys);
+        conteudo.position(conteudo.position() + Double.BYTES * ys.length);
+    }
+
+    private static ByteBuffer garantirEspaco(FileChannel canal, ByteBuffer bloco) throws IOException {
+        if (bloco.remaining() < Long.BYTES) {
+            escrever(canal, bloco);
+            bloco.clear();
+        }
+        return bloco;
+    }
+
+    private static void escrever(FileChannel canal, ByteBuffer bloco) throws IOException {
+        bloco.flip();
+        while (bloco.hasRemaining()) {
+            canal.write(bloco);
+        }
+    }
+}
@@ -0,0 +1,229 @@
+package com.santander.agencia.index;
+
+import com.santander.agencia.model.Agencia;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Árvore k-d implícita e imutável. Os pontos ficam em arrays paralelos de identificadores e
+ * coordenadas (24 bytes por agência; o nome é derivado do identificador), organizados de forma
+ * que o elemento central de cada intervalo é o nó que divide o intervalo pela mediana do eixo
+ * corrente, alternando entre os eixos a cada nível.
+ *
+ * <p>Os eixos são os da projeção da {@link Geometria}: no modo plano, as próprias coordenadas x e
+ * y; no esférico, os três componentes do vetor unitário de cada posição, guardados em arrays
+ * adicionais (mais 24 bytes por agência).
+ */
+final class ArvoreKd {
+
+    private static final ArvoreKd VAZIA_PLANA = organizada(Geometria.PLANA, new long[0], new double[0], new double[0]);
+    private static final ArvoreKd VAZIA_ESFERICA = organizada(Geometria.ESFERICA, new long[0], new double[0], new double[0]);
+
+    private final Geometria geometria;
+    private final long[] ids;
+    private final double[] xs;
+    private final double[] ys;
+    private final double[] eixo0;
+    private final double[] eixo1;
+    private final double[] eixo2;
+
+    private ArvoreKd(Geometria geometria, long[] ids, double[] xs, double[] ys) {
+        this.geometria = geometria;
+        this.ids = ids;
+        this.xs = xs;
+        this.ys = ys;
+        if (geometria.dimensoes() == 2) {
+            this.eixo0 = xs;
+            this.eixo1 = ys;
+            this.eixo2 = null;
+        } else {
+            this.eixo0 = new double[ids.length];
+            this.eixo1 = new double[ids.length];
+            this.eixo2 = new double[ids.length];
+            double[] projecao = new double[3];
+            for (int i = 0; i < ids.length; i++) {
+                geometria.projetar(xs[i], ys[i], projecao);
+                eixo0[i] = projecao[0];
+                eixo1[i] = projecao[1];
+                eixo2[i] = projecao[2];
+            }
+        }
+    }
+
+    static ArvoreKd vazia(Geometria geometria) {
+        return geometria == Geometria.ESFERICA ? VAZIA_ESFERICA : VAZIA_PLANA;
+    }
+
+    /**
+     * Constrói a árvore a partir dos {@code tamanho} primeiros elementos dos arrays informados,
+     * que são copiados e não são alterados.
+     */
+    static ArvoreKd construir(Geometria geometria, long[] ids, double[] xs, double[] ys, int tamanho) {
+        if (tamanho == 0) {
+            return vazia(geometria);
+        }
+        ArvoreKd arvore = new ArvoreKd(
+            geometria,
+            Arrays.copyOf(ids, tamanho),
+            Arrays.copyOf(xs, tamanho),
+            Arrays.copyOf(ys, tamanho)
+        );
+        arvore.organizar(0, tamanho, 0);
+        return arvore;
+    }
+
+    /**
+     * Recria uma árvore a partir de arrays já organizados por {@link #construir} com a mesma
+     * geometria, na ordem de {@link #id(int)}, {@link #x(int)} e {@link #y(int)}, sem
+     * reorganizá-los. Os arrays passam a pertencer à árvore.
+     */
+    static ArvoreKd organizada(Geometria geometria, long[] ids, double[] xs, double[] ys) {
+        return new ArvoreKd(geometria, ids, xs, ys);
+    }
+
+    static ArvoreKd construir(Geometria geometria, List<Agencia> agencias) {
+        int tamanho = agencias.size();
+        long[] ids = new long[tamanho];
+        double[] xs = new double[tamanho];
+        double[] ys = new double[tamanho];
+        for (int i = 0; i < tamanho; i++) {
+            Agencia agencia = agencias.get(i);
+            ids[i] = agencia.getId();
+            xs[i] = agencia.getPosX();
+            ys[i] = agencia.getPosY();
+        }
+        return construir(geometria, ids, xs, ys, tamanho);
+    }
+
+    Geometria geometria() {
+        return geometria;
+    }
+
+    int tamanho() {
+        return ids.length;
+    }
+
+    long id(int posicao) {
+        return ids[posicao];
+    }
+
+    double x(int posicao) {
+        return xs[posicao];
+    }
+
+    double y(int posicao) {
+        return ys[posicao];
+    }
+
+    /**
+     * Oferece à seleção os pontos candidatos a vizinhos da projeção informada, com distâncias
+     * medidas no espaço da projeção.
+     */
+    void buscar(double[] projecao, SelecaoVizinhos selecao) {
+        buscar(0, ids.length, 0, projecao[0], projecao[1], eixo2 != null ? projecao[2] : 0.0, selecao);
+    }
+
+    private void buscar(int inicio, int fim, int eixo, double p0, double p1, double p2, SelecaoVizinhos selecao) {
+        if (inicio >= fim) {
+            return;
+        }
+        int meio = (inicio + fim) >>> 1;
+        double delta0 = eixo0[meio] - p0;
+        double delta1 = eixo1[meio] - p1;
+        double delta2 = eixo2 != null ? eixo2[meio] - p2 : 0.0;
+        selecao.oferecer(delta0 * delta0 + delta1 * delta1 + delta2 * delta2, ids[meio]);
+
+        double diferenca = eixo == 0 ? -delta0 : eixo == 1 ? -delta1 : -delta2;
+        int proximoEixo = proximoEixo(eixo);
+        if (diferenca < 0) {
+            buscar(inicio, meio, proximoEixo, p0, p1, p2, selecao);
+            if (diferenca * diferenca <= selecao.limite2()) {
+                buscar(meio + 1, fim, proximoEixo, p0, p1, p2, selecao);
+            }
+        } else {
+            buscar(meio + 1, fim, proximoEixo, p0, p1, p2, selecao);
+            if (diferenca * diferenca <= selecao.limite2()) {
+                buscar(inicio, meio, proximoEixo, p0, p1, p2, selecao);
+            }
+        }
+    }
+
+    private int proximoEixo(int eixo) {
+        return eixo + 1 == geometria.dimensoes() ? 0 : eixo + 1;
+    }
+
+    private void organizar(int inicio, int fim, int eixo) {
+        while (fim - inicio > 1) {
+            int meio = (inicio + fim) >>> 1;
+            selecionar(inicio, fim - 1, meio, eixo);
+            organizar(inicio, meio, proximoEixo(eixo));
+            inicio = meio + 1;
+            eixo = proximoEixo(eixo);
+        }
+    }
+
+    /**
+     * Quickselect: posiciona em {@code k} o elemento que ocuparia essa posição se o intervalo
+     * {@code [esquerda, direita]} estivesse ordenado pelo eixo informado.
+     */
+    private void selecionar(int esquerda, int direita, int k, int eixo) {
+        double[] coordenadas = eixo == 0 ? eixo0 : eixo == 1 ? eixo1 : eixo2;
+        while (direita > esquerda) {
+            int meio = (esquerda + direita) >>> 1;
+            if (coordenadas[meio] < coordenadas[esquerda]) {
+                trocar(meio, esquerda);
+            }
+            if (coordenadas[direita] < coordenadas[esquerda]) {
+                trocar(direita, esquerda);
+            }
+            if (coordenadas[direita] < coordenadas[meio]) {
+                trocar(direita, meio);
+            }
+            double pivo = coordenadas[meio];
+            int i = esquerda;
+            int j = direita;
+            while (i <= j) {
+                while (coordenadas[i] < pivo) {
+                    i++;
+                }
+                while (coordenadas[j] > pivo) {
+                    j--;
+                }
+                if (i <= j) {
+                    trocar(i++, j--);
+                }
+            }
+            if (k <= j) {
+                direita = j;
+            } else if (k >= i) {
+                esquerda = i;
+            } else {
+                return;
+            }
+        }
+    }
+
+    private void trocar(int a, int b) {
+        long id = ids[a];
+        ids[a] = ids[b];
+        ids[b] = id;
+        double x = xs[a];
+        xs[a] = xs[b];
+        xs[b] = x;
+        double y = ys[a];
+        ys[a] = ys[b];
+        ys[b] = y;
+        if (eixo2 != null) {
+            trocar(eixo0, a, b);
+            trocar(eixo1, a, b);
+            trocar(eixo2, a, b);
+        }
+    }
+
+    private static void trocar(double[] valores, int a, int b) {
+        double valor = valores[a];
+        valores[a] = valores[b];
+        valores[b] = valor;
+    }
+}
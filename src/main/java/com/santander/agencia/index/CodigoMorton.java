@@ -0,0 +1,154 @@
+package com.santander.agencia.index;
+
+import java.util.Arrays;
+
+/**
+ * Código Z-order (Morton) das posições, gravado na coluna {@code codigo_espacial} das agências.
+ *
+ * <p>O intervalo de {@code posX} ([-180, 180]) e o de {@code posY} ([-90, 90]) são divididos em
+ * 2<sup>{@value #BITS_POR_EIXO}</sup> partes, e o código intercala os bits da coluna e da linha
+ * da célula. Assim, cada célula de um nível mais grosso corresponde a um prefixo do código, ou
+ * seja, a uma faixa contínua de valores: consultar uma região vira poucas leituras por faixa no
+ * índice da coluna. Posições fora dos intervalos caem na célula da borda mais próxima.
+ */
+public final class CodigoMorton {
+
+    static final int BITS_POR_EIXO = 26;
+
+    /**
+     * Quantidade de faixas em {@link #faixas}; as não usadas são {@code [-1, -1]}, que nenhum
+     * código alcança.
+     */
+    public static final int FAIXAS = 4;
+
+    /**
+     * Níveis de {@link #chaveCelula}: do 0, uma só célula com todo o plano, ao
+     * {@value #BITS_POR_EIXO}, o das células de {@link #codigo}.
+     */
+    public static final int NIVEIS = BITS_POR_EIXO + 1;
+
+    private static final double MINIMO_X = -180.0;
+    private static final double MINIMO_Y = -90.0;
+    private static final double LARGURA = 360.0;
+    private static final double ALTURA = 180.0;
+
+    private CodigoMorton() {
+    }
+
+    public static long codigo(double posX, double posY) {
+        return intercalar(celula(posX, MINIMO_X, LARGURA, BITS_POR_EIXO),
+                          celula(posY, MINIMO_Y, ALTURA, BITS_POR_EIXO));
+    }
+
+    /**
+     * Faixas de código, em pares {@code [inicio, fim]}, que contêm todas as posições do quadrado
+     * de lado {@code 2 * raio} centrado na posição. Usa o nível mais fino em que as células medem
+     * ao menos {@code 2 * raio} nos dois eixos, de modo que o quadrado toca no máximo 2 × 2
+     * células; células com códigos consecutivos são unidas em uma só faixa.
+     */
+    public static long[] faixas(double posX, double posY, double raio) {
+        int nivel = nivel(raio);
+        int deslocamento = 2 * (BITS_POR_EIXO - nivel);
+        long xInicial = celula(posX - raio, MINIMO_X, LARGURA, nivel);
+        long xFinal = celula(posX + raio, MINIMO_X, LARGURA, nivel);
+        long yInicial = celula(posY - raio, MINIMO_Y, ALTURA, nivel);
+        long yFinal = celula(posY + raio, MINIMO_Y, ALTURA, nivel);
+
+        long[] prefixos = new long[FAIXAS];
+        int total = 0;
+        for (long x = xInicial; x <= xFinal; x++) {
+            for (long y = yInicial; y <= yFinal; y++) {
+                prefixos[total++] = intercalar(x, y);
+            }
+        }
+        Arrays.sort(prefixos, 0, total);
+
+        long[] faixas = new long[2 * FAIXAS];
+        Arrays.fill(faixas, -1L);
+        int usadas = 0;
+        for (int i = 0; i < total; i++) {
+            long inicio = prefixos[i] << deslocamento;
+            long fim = ((prefixos[i] + 1) << deslocamento) - 1;
+            if (usadas > 0 && faixas[2 * usadas - 1] + 1 == inicio) {
+                faixas[2 * usadas - 1] = fim;
+            } else {
+                faixas[2 * usadas] = inicio;
+                faixas[2 * usadas + 1] = fim;
+                usadas++;
+            }
+        }
+        return faixas;
+    }
+
+    /**
+     * Chave da célula do nível {@code nivel} que contém a posição: o prefixo do código nesse
+     * nível, acrescido do nível, para que células de níveis diferentes tenham chaves diferentes.
+     */
+    public static long chaveCelula(double posX, double posY, int nivel) {
+        return chave(nivel, intercalar(celula(posX, MINIMO_X, LARGURA, nivel),
+                                       celula(posY, MINIMO_Y, ALTURA, nivel)));
+    }
+
+    /**
+     * Chaves ({@link #chaveCelula}) das até 2 × 2 células tocadas pelo quadrado de lado
+     * {@code 2 * raio} centrado na posição, no mesmo nível de {@link #faixas}. Uma posição do
+     * quadrado está sempre na célula de uma dessas chaves no nível delas; com raio infinito, a
+     * única chave é a da célula do nível 0.
+     */
+    public static long[] chavesCelulas(double posX, double posY, double raio) {
+        int nivel = nivel(raio);
+        long xInicial = celula(posX - raio, MINIMO_X, LARGURA, nivel);
+        long xFinal = celula(posX + raio, MINIMO_X, LARGURA, nivel);
+        long yInicial = celula(posY - raio, MINIMO_Y, ALTURA, nivel);
+        long yFinal = celula(posY + raio, MINIMO_Y, ALTURA, nivel);
+
+        long[] chaves = new long[(int) ((xFinal - xInicial + 1) * (yFinal - yInicial + 1))];
+        int total = 0;
+        for (long x = xInicial; x <= xFinal; x++) {
+            for (long y = yInicial; y <= yFinal; y++) {
+                chaves[total++] = chave(nivel, intercalar(x, y));
+            }
+        }
+        Arrays.sort(chaves);
+        return chaves;
+    }
+
+    private static long chave(int nivel, long prefixo) {
+        return ((long) nivel << (2 * BITS_POR_EIXO)) | prefixo;
+    }
+
+    /**
+     * Maior nível (bits por eixo) em que a célula mede ao menos {@code 2 * raio} nos dois eixos.
+     * A altura é a menor dimensão da célula.
+     */
+    static int nivel(double raio) {
+        int nivel = 0;
+        while (nivel < BITS_POR_EIXO && ALTURA / (1L << (nivel + 1)) >= 2 * raio) {
+            nivel++;
+        }
+        return nivel;
+    }
+
+    private static long celula(double valor, double minimo, double extensao, int nivel) {
+        long celulas = 1L << nivel;
+        double celula = Math.floor((valor - minimo) / extensao * celulas);
+        return (long) Math.max(0, Math.min(celulas - 1, celula));
+    }
+
+    static long intercalar(long x, long y) {
+        return espalhar(x) | (espalhar(y) << 1);
+    }
+
+    /**
+     * Distribui os 32 bits menos significativos nas posições pares do resultado.
+     */
+    private static long espalhar(long valor) {
+        long bits = valor & 0xFFFFFFFFL;
+        bits = (bits | (bits << 16)) & 0x0000FFFF0000FFFFL;
+        bits = (bits | (bits << 8)) & 0x00FF00FF00FF00FFL;
+        bits = (bits | (bits << 4)) & 0x0F0F0F0F0F0F0F0FL;
+        bits = (bits | (bits << 2)) & 0x3333333333333333L;
+        bits = (bits | (bits << 1)) & 0x5555555555555555L;
+        return bits;
+    }
+}
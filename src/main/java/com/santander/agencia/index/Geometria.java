@@ -0,0 +1,159 @@
+package com.santander.agencia.index;
+
+import com.santander.agencia.config.TipoDistancia;
+
+/**
+ * Forma como as posições das agências são indexadas e como as distâncias são medidas.
+ *
+ * <p>A {@link ArvoreKd} não trabalha diretamente com {@code (posX, posY)}, mas com a projeção de
+ * cada posição em {@link #dimensoes()} eixos, escolhida de forma que a distância euclidiana entre
+ * projeções cresça junto com a distância real. Assim a poda continua usando apenas somas de
+ * quadrados, e a distância real só é calculada para as agências retornadas.
+ */
+public enum Geometria {
+
+    /**
+     * As próprias coordenadas; a distância é a euclidiana entre elas.
+     */
+    PLANA(2) {
+        @Override
+        void projetar(double posX, double posY, double[] destino) {
+            destino[0] = posX;
+            destino[1] = posY;
+        }
+
+        @Override
+        double distanciaDaProjecao(double distancia2) {
+            return Math.sqrt(distancia2);
+        }
+
+        @Override
+        double limiteProjecao2(double raio) {
+            return raio * raio;
+        }
+
+        @Override
+        public double raioEmGraus(double posX, double posY, double raio) {
+            return raio;
+        }
+
+        @Override
+        public double distancia(double posX1, double posY1, double posX2, double posY2) {
+            double deltaX = posX2 - posX1;
+            double deltaY = posY2 - posY1;
+            return Math.sqrt(deltaX * deltaX + deltaY * deltaY);
+        }
+    },
+
+    /**
+     * Longitude e latitude em graus projetadas no vetor unitário correspondente da esfera. A
+     * distância entre vetores (a corda) cresce com o ângulo entre eles, e não há descontinuidade
+     * no antimeridiano nem degeneração nos polos: pontos próximos na esfera são sempre próximos
+     * no espaço. A distância retornada é a de círculo máximo, em quilômetros.
+     */
+    ESFERICA(3) {
+        @Override
+        void projetar(double posX, double posY, double[] destino) {
+            double longitude = Math.toRadians(posX);
+            double latitude = Math.toRadians(posY);
+            double cosLatitude = Math.cos(latitude);
+            destino[0] = cosLatitude * Math.cos(longitude);
+            destino[1] = cosLatitude * Math.sin(longitude);
+            destino[2] = Math.sin(latitude);
+        }
+
+        @Override
+        double distanciaDaProjecao(double distancia2) {
+            return 2 * RAIO_TERRA_KM * Math.asin(Math.min(1.0, Math.sqrt(distancia2) / 2));
+        }
+
+        @Override
+        double limiteProjecao2(double raio) {
+            double angulo = raio / RAIO_TERRA_KM;
+            if (angulo >= Math.PI) {
+                return Double.POSITIVE_INFINITY;
+            }
+            double corda = 2 * Math.sin(angulo / 2);
+            return corda * corda;
+        }
+
+        /**
+         * A calota de raio angular {@code d} centrada na latitude {@code φ} vai da latitude
+         * {@code φ - d} a {@code φ + d} e, quando não alcança um polo, se estende
+         * {@code asin(sen d / cos φ) >= d} em longitude.
+         */
+        @Override
+        public double raioEmGraus(double posX, double posY, double raio) {
+            double angulo = raio / RAIO_TERRA_KM;
+            double latitude = Math.toRadians(Math.abs(posY));
+            if (!(latitude + angulo < Math.PI / 2)) {
+                return Double.POSITIVE_INFINITY;
+            }
+            double graus = Math.toDegrees(Math.asin(Math.sin(angulo) / Math.cos(latitude)));
+            if (posX - graus < -180.0 || posX + graus > 180.0) {
+                return Double.POSITIVE_INFINITY;
+            }
+            return graus;
+        }
+
+        /**
+         * Fórmula de haversine, estável também para pontos muito próximos.
+         */
+        @Override
+        public double distancia(double posX1, double posY1, double posX2, double posY2) {
+            double latitude1 = Math.toRadians(posY1);
+            double latitude2 = Math.toRadians(posY2);
+            double senoLatitude = Math.sin((latitude2 - latitude1) / 2);
+            double senoLongitude = Math.sin(Math.toRadians(posX2 - posX1) / 2);
+            double h = senoLatitude * senoLatitude
+                     + Math.cos(latitude1) * Math.cos(latitude2) * senoLongitude * senoLongitude;
+            return 2 * RAIO_TERRA_KM * Math.asin(Math.min(1.0, Math.sqrt(h)));
+        }
+    };
+
+    /**
+     * Raio médio da Terra (IUGG), em quilômetros.
+     */
+    public static final double RAIO_TERRA_KM = 6371.0088;
+
+    private final int dimensoes;
+
+    Geometria(int dimensoes) {
+        this.dimensoes = dimensoes;
+    }
+
+    public static Geometria de(TipoDistancia tipo) {
+        return tipo == TipoDistancia.GEODESICA ? ESFERICA : PLANA;
+    }
+
+    int dimensoes() {
+        return dimensoes;
+    }
+
+    /**
+     * Escreve em {@code destino} as {@link #dimensoes()} coordenadas da posição no espaço da árvore.
+     */
+    abstract void projetar(double posX, double posY, double[] destino);
+
+    /**
+     * Converte o quadrado da distância entre duas projeções na distância real entre as posições.
+     */
+    abstract double distanciaDaProjecao(double distancia2);
+
+    /**
+     * Maior quadrado da distância entre projeções de posições a no máximo {@code raio} uma da outra.
+     */
+    abstract double limiteProjecao2(double raio);
+
+    /**
+     * Meia largura, em unidades de {@code posX} e {@code posY}, de um quadrado centrado na posição
+     * que contém todas as posições a no máximo {@code raio} dela; infinita quando essas posições
+     * não cabem em um quadrado do plano de coordenadas (por exemplo, ao cruzar o antimeridiano).
+     */
+    public abstract double raioEmGraus(double posX, double posY, double raio);
+
+    /**
+     * Distância entre duas posições, na unidade das respostas.
+     */
+    public abstract double distancia(double posX1, double posY1, double posX2, double posY2);
+}
@@ -0,0 +1,82 @@
+package com.santander.agencia.index;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Grade uniforme indexada por hash. Cada célula guarda as coordenadas das agências nela contidas
+ * em um array {@code [x0, y0, x1, y1, ...]} substituído a cada inclusão, de modo que leitores
+ * nunca observam uma célula parcialmente escrita.
+ *
+ * <p>Com células do tamanho da distância mínima entre agências, verificar a vizinhança de um
+ * ponto exige olhar apenas as 9 células ao redor, independentemente do total de agências.
+ */
+public final class GradeEspacial {
+
+    public static final double TAMANHO_CELULA_PADRAO = 1.0;
+
+    private static final double[] CELULA_VAZIA = new double[0];
+
+    private final double tamanhoCelula;
+    private final Map<Long, double[]> celulas = new ConcurrentHashMap<>();
+
+    public GradeEspacial(double tamanhoCelula) {
+        if (!(tamanhoCelula > 0)) {
+            throw new IllegalArgumentException("Tamanho da célula deve ser positivo");
+        }
+        this.tamanhoCelula = tamanhoCelula;
+    }
+
+    public void adicionar(double x, double y) {
+        celulas.compute(chave(celula(x), celula(y)), (chave, coordenadas) -> {
+            double[] atual = coordenadas != null ? coordenadas : CELULA_VAZIA;
+            double[] nova = Arrays.copyOf(atual, atual.length + 2);
+            nova[atual.length] = x;
+            nova[atual.length + 1] = y;
+            return nova;
+        });
+    }
+
+    void limpar() {
+        celulas.clear();
+    }
+
+    /**
+     * Indica se há algum ponto a uma distância menor ou igual a {@code distancia} de (x, y).
+     */
+    public boolean existeProximo(double x, double y, double distancia) {
+        int alcance = (int) Math.ceil(distancia / tamanhoCelula);
+        long celulaX = celula(x);
+        long celulaY = celula(y);
+        double distancia2 = distancia * distancia;
+        for (long cx = celulaX - alcance; cx <= celulaX + alcance; cx++) {
+            for (long cy = celulaY - alcance; cy <= celulaY + alcance; cy++) {
+                double[] coordenadas = celulas.get(chave(cx, cy));
+                if (coordenadas == null) {
+                    continue;
+                }
+                for (int i = 0; i < coordenadas.length; i += 2) {
+                    double deltaX = coordenadas[i] - x;
+                    double deltaY = coordenadas[i + 1] - y;
+                    if (deltaX * deltaX + deltaY * deltaY <= distancia2) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    long celula(double coordenada) {
+        return celula(coordenada, tamanhoCelula);
+    }
+
+    static long celula(double coordenada, double tamanhoCelula) {
+        return (long) Math.floor(coordenada / tamanhoCelula);
+    }
+
+    static long chave(long celulaX, long celulaY) {
+        return (celulaX << 32) ^ (celulaY & 0xFFFFFFFFL);
+    }
+}
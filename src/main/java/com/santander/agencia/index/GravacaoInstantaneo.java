@@ -0,0 +1,67 @@
+package com.santander.agencia.index;
+
+import com.santander.agencia.config.AgenciaProperties;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Grava o instantâneo do índice espacial a cada {@code agencia.inicializacao.instantaneo.intervalo},
+ * quando configurado, e sempre ao encerrar a aplicação. Como o instantâneo é imutável, a gravação
+ * não bloqueia buscas nem cadastros.
+ */
+@Component
+public class GravacaoInstantaneo {
+
+    private static final Logger logger = LoggerFactory.getLogger(GravacaoInstantaneo.class);
+
+    @Autowired
+    private IndiceEspacialAgencias indiceEspacial;
+
+    @Autowired
+    private AgenciaProperties propriedades;
+
+    private ScheduledExecutorService agendador;
+
+    @PostConstruct
+    public void agendar() {
+        AgenciaProperties.Instantaneo configuracao = propriedades.getInicializacao().getInstantaneo();
+        Duration intervalo = configuracao.getIntervalo();
+        if (!indiceEspacial.isHabilitado() || configuracao.getArquivo().isBlank()
+                || intervalo == null || intervalo.isZero() || intervalo.isNegative()) {
+            return;
+        }
+        agendador = Executors.newSingleThreadScheduledExecutor(tarefa -> {
+            Thread thread = new Thread(tarefa, "gravacao-instantaneo");
+            thread.setDaemon(true);
+            return thread;
+        });
+        agendador.scheduleWithFixedDelay(this::gravar, intervalo.toMillis(), intervalo.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void encerrar() throws InterruptedException {
+        if (agendador != null) {
+            agendador.shutdown();
+            agendador.awaitTermination(1, TimeUnit.MINUTES);
+        }
+        gravar();
+    }
+
+    private void gravar() {
+        try {
+            indiceEspacial.gravarInstantaneo();
+        } catch (IOException | RuntimeException e) {
+            logger.error("Erro ao gravar o instantâneo do índice espacial: {}", e.getMessage(), e);
+        }
+    }
+}
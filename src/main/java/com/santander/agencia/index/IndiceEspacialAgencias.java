@@ -0,0 +1,222 @@
+package com.santander.agencia.index;
+
+import com.santander.agencia.config.AgenciaProperties;
+import com.santander.agencia.config.ModoConsulta;
+import com.santander.agencia.event.AgenciaCadastradaEvent;
+import com.santander.agencia.metrics.MetricasAgencia;
+import com.santander.agencia.model.Agencia;
+import com.santander.agencia.repository.ArmazemAgencias;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Índice espacial em memória usado quando {@code agencia.consulta.modo=indice}.
+ *
+ * <p>O conteúdo do índice é um {@link InstantaneoAgencias} imutável publicado em um campo
+ * {@code volatile}: as buscas leem o instantâneo atual sem travas, e cada cadastro publica um
+ * novo instantâneo. Os cadastros são serializados entre si, mas nunca bloqueiam as buscas, nem
+ * mesmo durante a reconstrução da árvore.
+ *
+ * <p>Na inicialização, o índice pode ser lido de um {@link ArquivoInstantaneo} gravado ao encerrar
+ * a aplicação ou periodicamente, o que evita ler as agências do banco e reconstruir a árvore.
+ *
+ * <p>As distâncias seguem {@code agencia.consulta.distancia}: no modo geodésico a árvore indexa a
+ * projeção esférica das posições (ver {@link Geometria#ESFERICA}) e as distâncias são retornadas
+ * em quilômetros.
+ *
+ * <p>A verificação de distância mínima no cadastro usa uma {@link GradeEspacial} separada, com
+ * custo constante por consulta, e mede sempre a distância plana entre as coordenadas.
+ */
+@Component
+public class IndiceEspacialAgencias {
+
+    private static final Logger logger = LoggerFactory.getLogger(IndiceEspacialAgencias.class);
+
+    @Autowired
+    private ArmazemAgencias armazemAgencias;
+
+    @Autowired
+    private AgenciaProperties propriedades;
+
+    @Autowired
+    private ObjectProvider<MetricasAgencia> metricas;
+
+    private final ReentrantLock travaEscrita = new ReentrantLock();
+    private final GradeEspacial grade = new GradeEspacial(GradeEspacial.TAMANHO_CELULA_PADRAO);
+
+    private Geometria geometria;
+    private volatile InstantaneoAgencias atual;
+
+    public IndiceEspacialAgencias() {
+        this(Geometria.PLANA);
+    }
+
+    IndiceEspacialAgencias(Geometria geometria) {
+        this.geometria = geometria;
+        this.atual = InstantaneoAgencias.vazio(geometria);
+    }
+
+    public boolean isHabilitado() {
+        return propriedades.getConsulta().getModo() == ModoConsulta.INDICE;
+    }
+
+    /**
+     * Carrega o índice do instantâneo binário configurado em
+     * {@code agencia.inicializacao.instantaneo.arquivo}, quando ele existe e tem a mesma quantidade
+     * de agências do repositório, ou das agências do repositório nos demais casos.
+     */
+    @PostConstruct
+    public void carregar() {
+        if (!isHabilitado()) {
+            return;
+        }
+        geometria = Geometria.de(propriedades.getConsulta().getDistancia());
+        long inicio = System.nanoTime();
+        InstantaneoAgencias salvo = lerInstantaneoSalvo();
+        if (salvo != null) {
+            carregar(salvo);
+        } else {
+            carregar(armazemAgencias.findAll());
+        }
+        metricas.ifAvailable(m -> m.registrar(MetricasAgencia.Etapa.CARGA_INDICE, inicio));
+        logger.info("Índice espacial carregado {} com {} agências em {} ms",
+                   salvo != null ? "do instantâneo" : "do banco", tamanho(), (System.nanoTime() - inicio) / 1_000_000);
+    }
+
+    public void carregar(List<Agencia> agencias) {
+        InstantaneoAgencias novo = InstantaneoAgencias.de(geometria, agencias);
+
+        travaEscrita.lock();
+        try {
+            atual = novo;
+            grade.limpar();
+            for (Agencia agencia : agencias) {
+                grade.adicionar(agencia.getPosX(), agencia.getPosY());
+            }
+        } finally {
+            travaEscrita.unlock();
+        }
+    }
+
+    public void carregar(InstantaneoAgencias instantaneo) {
+        if (instantaneo.geometria() != geometria) {
+            throw new IllegalArgumentException("Instantâneo com geometria " + instantaneo.geometria()
+                                               + " diferente da do índice (" + geometria + ")");
+        }
+        travaEscrita.lock();
+        try {
+            atual = instantaneo;
+            grade.limpar();
+            ArvoreKd arvore = instantaneo.arvore();
+            for (int i = 0; i < arvore.tamanho(); i++) {
+                grade.adicionar(arvore.x(i), arvore.y(i));
+            }
+            for (int i = 0; i < instantaneo.totalPendentes(); i++) {
+                grade.adicionar(instantaneo.xPendente(i), instantaneo.yPendente(i));
+            }
+        } finally {
+            travaEscrita.unlock();
+        }
+    }
+
+    /**
+     * Executado antes dos demais ouvintes do evento, que podem depender do índice atualizado.
+     */
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void aoCadastrarAgencia(AgenciaCadastradaEvent evento) {
+        if (isHabilitado()) {
+            adicionar(evento.id(), evento.posX(), evento.posY());
+        }
+    }
+
+    public void adicionar(long id, double posX, double posY) {
+        travaEscrita.lock();
+        try {
+            grade.adicionar(posX, posY);
+            atual = atual.comAgencia(id, posX, posY);
+        } finally {
+            travaEscrita.unlock();
+        }
+    }
+
+    public List<AgenciaProxima> buscarMaisProximas(double posX, double posY, int limite) {
+        return buscarMaisProximas(posX, posY, limite, Double.POSITIVE_INFINITY);
+    }
+
+    /**
+     * Retorna até {@code limite} agências a uma distância menor ou igual a {@code raioMaximo},
+     * em ordem crescente de distância, ambas na unidade da geometria do índice.
+     */
+    public List<AgenciaProxima> buscarMaisProximas(double posX, double posY, int limite, double raioMaximo) {
+        return atual.buscarMaisProximas(posX, posY, limite, raioMaximo);
+    }
+
+    /**
+     * Retorna o instantâneo atual do índice, incluindo as agências ainda não incorporadas à árvore.
+     */
+    public InstantaneoAgencias instantaneo() {
+        return atual;
+    }
+
+    /**
+     * Grava o instantâneo atual no arquivo configurado, se houver.
+     */
+    public void gravarInstantaneo() throws IOException {
+        Path arquivo = arquivoInstantaneo();
+        if (arquivo == null || !isHabilitado()) {
+            return;
+        }
+        long inicio = System.nanoTime();
+        InstantaneoAgencias instantaneo = atual;
+        ArquivoInstantaneo.gravar(instantaneo, arquivo);
+        logger.info("Instantâneo do índice gravado em {} com {} agências em {} ms",
+                   arquivo, instantaneo.tamanho(), (System.nanoTime() - inicio) / 1_000_000);
+    }
+
+    public boolean existeAgenciaProxima(double posX, double posY, double distanciaMinima) {
+        return grade.existeProximo(posX, posY, distanciaMinima);
+    }
+
+    public int tamanho() {
+        return atual.tamanho();
+    }
+
+    private InstantaneoAgencias lerInstantaneoSalvo() {
+        Path arquivo = arquivoInstantaneo();
+        if (arquivo == null || !Files.exists(arquivo)) {
+            return null;
+        }
+        try {
+            InstantaneoAgencias salvo = ArquivoInstantaneo.ler(arquivo, geometria);
+            long total = armazemAgencias.count();
+            if (salvo.tamanho() != total) {
+                logger.info("Instantâneo {} desatualizado ({} agências, {} no repositório); carregando do banco",
+                           arquivo, salvo.tamanho(), total);
+                return null;
+            }
+            return salvo;
+        } catch (IOException e) {
+            logger.warn("Não foi possível ler o instantâneo {}: {}", arquivo, e.getMessage());
+            return null;
+        }
+    }
+
+    private Path arquivoInstantaneo() {
+        String arquivo = propriedades.getInicializacao().getInstantaneo().getArquivo();
+        return arquivo == null || arquivo.isBlank() ? null : Path.of(arquivo);
+    }
+}
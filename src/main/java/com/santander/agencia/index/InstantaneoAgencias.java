@@ -0,0 +1,162 @@
+package com.santander.agencia.index;
+
+import com.santander.agencia.model.Agencia;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Cópia imutável das agências: uma {@link ArvoreKd} mais as agências cadastradas depois da sua
+ * construção, guardadas em arrays primitivos de identificadores e coordenadas. Pode ser consultada
+ * por várias threads ao mesmo tempo sem travas, e não enxerga cadastros posteriores à sua criação.
+ *
+ * <p>A área de pendentes tem capacidade fixa e é compartilhada entre instantâneos sucessivos:
+ * {@link #comAgencia} escreve apenas na posição seguinte à última visível e devolve um novo
+ * instantâneo que a inclui, de modo que os instantâneos anteriores continuam válidos. Quando a
+ * área enche, a árvore é reconstruída com todas as agências e uma nova área é alocada. Além das
+ * coordenadas, a área guarda a projeção de cada pendente na {@link Geometria} da árvore.
+ */
+public final class InstantaneoAgencias {
+
+    private static final int MINIMO_PENDENTES = 1024;
+
+    private final ArvoreKd arvore;
+    private final long[] idsPendentes;
+    private final double[] xsPendentes;
+    private final double[] ysPendentes;
+    private final double[] projecoesPendentes;
+    private final int totalPendentes;
+
+    private InstantaneoAgencias(ArvoreKd arvore) {
+        this(arvore, capacidadePendentes(arvore));
+    }
+
+    private InstantaneoAgencias(ArvoreKd arvore, int capacidadePendentes) {
+        this(arvore, new long[capacidadePendentes], new double[capacidadePendentes],
+             new double[capacidadePendentes],
+             new double[capacidadePendentes * arvore.geometria().dimensoes()], 0);
+    }
+
+    private InstantaneoAgencias(ArvoreKd arvore, long[] idsPendentes, double[] xsPendentes,
+                                double[] ysPendentes, double[] projecoesPendentes, int totalPendentes) {
+        this.arvore = arvore;
+        this.idsPendentes = idsPendentes;
+        this.xsPendentes = xsPendentes;
+        this.ysPendentes = ysPendentes;
+        this.projecoesPendentes = projecoesPendentes;
+        this.totalPendentes = totalPendentes;
+    }
+
+    static InstantaneoAgencias vazio(Geometria geometria) {
+        return new InstantaneoAgencias(ArvoreKd.vazia(geometria));
+    }
+
+    public static InstantaneoAgencias de(List<Agencia> agencias) {
+        return de(Geometria.PLANA, agencias);
+    }
+
+    public static InstantaneoAgencias de(Geometria geometria, List<Agencia> agencias) {
+        return new InstantaneoAgencias(ArvoreKd.construir(geometria, agencias));
+    }
+
+    /**
+     * Instantâneo sobre uma árvore já construída, sem agências pendentes.
+     */
+    static InstantaneoAgencias de(ArvoreKd arvore) {
+        return new InstantaneoAgencias(arvore);
+    }
+
+    /**
+     * Retorna um instantâneo com as agências deste mais a informada. Deve ser chamado apenas sobre
+     * o instantâneo mais recente e por um escritor de cada vez, já que a área de pendentes é
+     * compartilhada com o instantâneo devolvido.
+     */
+    InstantaneoAgencias comAgencia(long id, double posX, double posY) {
+        if (totalPendentes < idsPendentes.length) {
+            idsPendentes[totalPendentes] = id;
+            xsPendentes[totalPendentes] = posX;
+            ysPendentes[totalPendentes] = posY;
+            projetarPendente(totalPendentes, posX, posY);
+            return new InstantaneoAgencias(arvore, idsPendentes, xsPendentes, ysPendentes,
+                                           projecoesPendentes, totalPendentes + 1);
+        }
+
+        int tamanho = tamanho() + 1;
+        long[] ids = Arrays.copyOf(idsPendentes, tamanho);
+        double[] xs = Arrays.copyOf(xsPendentes, tamanho);
+        double[] ys = Arrays.copyOf(ysPendentes, tamanho);
+        int destino = totalPendentes;
+        ids[destino] = id;
+        xs[destino] = posX;
+        ys[destino] = posY;
+        for (int i = 0; i < arvore.tamanho(); i++) {
+            destino++;
+            ids[destino] = arvore.id(i);
+            xs[destino] = arvore.x(i);
+            ys[destino] = arvore.y(i);
+        }
+        return new InstantaneoAgencias(ArvoreKd.construir(arvore.geometria(), ids, xs, ys, tamanho));
+    }
+
+    /**
+     * Retorna até {@code limite} agências a uma distância menor ou igual a {@code raioMaximo},
+     * em ordem crescente de distância, ambas na unidade da {@link Geometria} do instantâneo.
+     */
+    public List<AgenciaProxima> buscarMaisProximas(double posX, double posY, int limite, double raioMaximo) {
+        Geometria geometria = arvore.geometria();
+        int dimensoes = geometria.dimensoes();
+        double[] projecao = new double[dimensoes];
+        geometria.projetar(posX, posY, projecao);
+
+        SelecaoVizinhos selecao = new SelecaoVizinhos(geometria, limite, raioMaximo);
+        arvore.buscar(projecao, selecao);
+        for (int i = 0, base = 0; i < totalPendentes; i++, base += dimensoes) {
+            double distancia2 = 0.0;
+            for (int eixo = 0; eixo < dimensoes; eixo++) {
+                double delta = projecoesPendentes[base + eixo] - projecao[eixo];
+                distancia2 += delta * delta;
+            }
+            selecao.oferecer(distancia2, idsPendentes[i]);
+        }
+        return selecao.emOrdem();
+    }
+
+    public Geometria geometria() {
+        return arvore.geometria();
+    }
+
+    public int tamanho() {
+        return arvore.tamanho() + totalPendentes;
+    }
+
+    ArvoreKd arvore() {
+        return arvore;
+    }
+
+    int totalPendentes() {
+        return totalPendentes;
+    }
+
+    long idPendente(int posicao) {
+        return idsPendentes[posicao];
+    }
+
+    double xPendente(int posicao) {
+        return xsPendentes[posicao];
+    }
+
+    double yPendente(int posicao) {
+        return ysPendentes[posicao];
+    }
+
+    private void projetarPendente(int posicao, double posX, double posY) {
+        int dimensoes = arvore.geometria().dimensoes();
+        double[] projecao = new double[dimensoes];
+        arvore.geometria().projetar(posX, posY, projecao);
+        System.arraycopy(projecao, 0, projecoesPendentes, posicao * dimensoes, dimensoes);
+    }
+
+    private static int capacidadePendentes(ArvoreKd arvore) {
+        return Math.max(MINIMO_PENDENTES, 4 * (int) Math.sqrt(arvore.tamanho()));
+    }
+}
@@ -0,0 +1,107 @@
+package com.santander.agencia.index;
+
+import com.santander.agencia.repository.AlocadorIdentificadores;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Heap de máximo com capacidade fixa que mantém os {@code capacidade} candidatos mais próximos
+ * vistos até o momento, opcionalmente limitados a um raio máximo. A raiz é sempre o pior candidato
+ * aceito, usado como limite de poda. As distâncias são as do espaço de projeção da
+ * {@link Geometria}, convertidas em distâncias reais apenas em {@link #emOrdem()}.
+ */
+final class SelecaoVizinhos {
+
+    private final Geometria geometria;
+    private final int capacidade;
+    private final double raioMaximo2;
+    private final double[] distancias2;
+    private final long[] ids;
+    private int tamanho;
+
+    SelecaoVizinhos(Geometria geometria, int capacidade, double raioMaximo) {
+        this.geometria = geometria;
+        this.capacidade = capacidade;
+        this.raioMaximo2 = geometria.limiteProjecao2(raioMaximo);
+        this.distancias2 = new double[capacidade];
+        this.ids = new long[capacidade];
+    }
+
+    double limite2() {
+        return tamanho < capacidade ? raioMaximo2 : distancias2[0];
+    }
+
+    void oferecer(double distancia2, long id) {
+        if (capacidade == 0 || distancia2 > raioMaximo2) {
+            return;
+        }
+        if (tamanho < capacidade) {
+            distancias2[tamanho] = distancia2;
+            ids[tamanho] = id;
+            subir(tamanho++);
+        } else if (distancia2 < distancias2[0]) {
+            distancias2[0] = distancia2;
+            ids[0] = id;
+            descer(0, tamanho);
+        }
+    }
+
+    /**
+     * Esvazia o heap devolvendo os candidatos em ordem crescente de distância.
+     */
+    List<AgenciaProxima> emOrdem() {
+        AgenciaProxima[] ordenadas = new AgenciaProxima[tamanho];
+        for (int fim = tamanho - 1; fim >= 0; fim--) {
+            ordenadas[fim] = new AgenciaProxima(ids[0], AlocadorIdentificadores.nomeAgencia(ids[0]),
+                                             geometria.distanciaDaProjecao(distancias2[0]));
+            trocar(0, fim);
+            descer(0, fim);
+        }
+        tamanho = 0;
+        List<AgenciaProxima> resultado = new ArrayList<>(ordenadas.length);
+        for (AgenciaProxima agencia : ordenadas) {
+            resultado.add(agencia);
+        }
+        return resultado;
+    }
+
+    private void subir(int posicao) {
+        while (posicao > 0) {
+            int pai = (posicao - 1) >>> 1;
+            if (distancias2[pai] >= distancias2[posicao]) {
+                return;
+            }
+            trocar(pai, posicao);
+            posicao = pai;
+        }
+    }
+
+    private void descer(int posicao, int limite) {
+        while (true) {
+            int maior = posicao;
+            int esquerda = 2 * posicao + 1;
+            int direita = esquerda + 1;
+            if (esquerda < limite && distancias2[esquerda] > distancias2[maior]) {
+                maior = esquerda;
+            }
+            if (direita < limite && distancias2[direita] > distancias2[maior]) {
+                maior = direita;
+            }
+            if (maior == posicao) {
+                return;
+            }
+            trocar(posicao, maior);
+            posicao = maior;
+        }
+    }
+
+    private void trocar(int a, int b) {
+        double distancia2 = distancias2[a];
+        distancias2[a] = distancias2[b];
+        distancias2[b] = distancia2;
+        long id = ids[a];
+        ids[a] = ids[b];
+        ids[b] = id;
+    }
+}
@@ -0,0 +1,118 @@
+package com.santander.agencia.index;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Travas listradas por célula da grade espacial. Um cadastro trava apenas as listras das células
+ * que cobrem o quadrado de lado {@code 2 * raio} ao redor da posição, então cadastros em regiões
+ * distantes seguem em paralelo enquanto cadastros conflitantes são serializados.
+ *
+ * <p>Dois pontos a uma distância menor ou igual a {@code raio} sempre compartilham ao menos uma
+ * célula travada (a célula de cada um está no quadrado do outro). As listras são adquiridas em
+ * ordem crescente de índice para evitar deadlock.
+ */
+@Component
+public class TravasRegiao {
+
+    private static final int TOTAL_LISTRAS_PADRAO = 1024;
+
+    private final ReentrantLock[] listras;
+    private final double tamanhoCelula;
+
+    public TravasRegiao() {
+        this(TOTAL_LISTRAS_PADRAO, GradeEspacial.TAMANHO_CELULA_PADRAO);
+    }
+
+    TravasRegiao(int totalListras, double tamanhoCelula) {
+        if (Integer.bitCount(totalListras) != 1) {
+            throw new IllegalArgumentException("Total de listras deve ser potência de 2");
+        }
+        this.listras = new ReentrantLock[totalListras];
+        for (int i = 0; i < totalListras; i++) {
+            listras[i] = new ReentrantLock();
+        }
+        this.tamanhoCelula = tamanhoCelula;
+    }
+
+    public Travamento travar(double posX, double posY, double raio) {
+        long inicioX = GradeEspacial.celula(posX - raio, tamanhoCelula);
+        long fimX = GradeEspacial.celula(posX + raio, tamanhoCelula);
+        long inicioY = GradeEspacial.celula(posY - raio, tamanhoCelula);
+        long fimY = GradeEspacial.celula(posY + raio, tamanhoCelula);
+
+        int[] indices = new int[(int) ((fimX - inicioX + 1) * (fimY - inicioY + 1))];
+        int total = 0;
+        for (long cx = inicioX; cx <= fimX; cx++) {
+            for (long cy = inicioY; cy <= fimY; cy++) {
+                indices[total++] = listra(GradeEspacial.chave(cx, cy));
+            }
+        }
+        Arrays.sort(indices);
+        return adquirir(indices);
+    }
+
+    /**
+     * Trava todas as listras, usado por operações que alteram regiões arbitrárias.
+     */
+    public Travamento travarTudo() {
+        int[] indices = new int[listras.length];
+        for (int i = 0; i < indices.length; i++) {
+            indices[i] = i;
+        }
+        return adquirir(indices);
+    }
+
+    private Travamento adquirir(int[] indicesOrdenados) {
+        int total = 0;
+        for (int i = 0; i < indicesOrdenados.length; i++) {
+            if (i == 0 || indicesOrdenados[i] != indicesOrdenados[i - 1]) {
+                indicesOrdenados[total++] = indicesOrdenados[i];
+            }
+        }
+        int adquiridas = 0;
+        try {
+            for (; adquiridas < total; adquiridas++) {
+                listras[indicesOrdenados[adquiridas]].lock();
+            }
+        } catch (RuntimeException | Error e) {
+            liberar(indicesOrdenados, adquiridas);
+            throw e;
+        }
+        return new Travamento(indicesOrdenados, total);
+    }
+
+    private void liberar(int[] indices, int total) {
+        for (int i = total - 1; i >= 0; i--) {
+            listras[indices[i]].unlock();
+        }
+    }
+
+    private int listra(long chave) {
+        long misturado = chave * 0x9E3779B97F4A7C15L;
+        int hash = (int) (misturado ^ (misturado >>> 32));
+        return (hash ^ (hash >>> 16)) & (listras.length - 1);
+    }
+
+    public final class Travamento implements AutoCloseable {
+
+        private final int[] indices;
+        private final int total;
+        private boolean liberado;
+
+        private Travamento(int[] indices, int total) {
+            this.indices = indices;
+            this.total = total;
+        }
+
+        @Override
+        public void close() {
+            if (!liberado) {
+                liberado = true;
+                liberar(indices, total);
+            }
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.santander.agencia.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Eventos do Java Flight Recorder emitidos no cadastro e na busca por proximidade, um tipo por
+ * etapa, com as mesmas etapas de {@link MetricasAgencia.Etapa}. Em uma gravação, aparecem na
+ * linha do tempo da thread que atendeu a requisição, ao lado das pausas de GC e das esperas por
+ * trava.
+ *
+ * <p>Ficam habilitados por padrão e sem captura de pilha, a parte cara de um evento: com o
+ * gravador parado, {@code begin()} e {@code commit()} não fazem nada e o JIT elimina a alocação;
+ * com ele gravando, cada evento custa a escrita de alguns campos no buffer da thread. Os campos
+ * só são preenchidos quando {@code shouldCommit()} indica que o evento será gravado.
+ */
+public final class EventosAgencia {
+
+    private static final String CATEGORIA = "Agência";
+
+    private EventosAgencia() {
+    }
+
+    /**
+     * Etapa executada para uma posição. Criado e iniciado com {@code begin()} antes da etapa e
+     * gravado com {@link #concluir} ao final dela.
+     */
+    @Category(CATEGORIA)
+    @StackTrace(false)
+    public abstract static class EventoPosicao extends Event {
+
+        @Label("Posição X")
+        public double posX;
+
+        @Label("Posição Y")
+        public double posY;
+
+        @Label("Agências")
+        public int agencias;
+
+        public void concluir(double posX, double posY, int agencias) {
+            end();
+            if (shouldCommit()) {
+                this.posX = posX;
+                this.posY = posY;
+                this.agencias = agencias;
+                commit();
+            }
+        }
+    }
+
+    @Name("agencia.Cadastro")
+    @Label("Cadastro de agência")
+    @Description("Cadastro completo; agências é 1 quando a agência foi gravada")
+    public static final class Cadastro extends EventoPosicao {
+    }
+
+    @Name("agencia.VerificacaoProximidade")
+    @Label("Verificação de proximidade")
+    @Description("Verificação de distância mínima do cadastro; agências é 1 quando há uma agência próxima demais")
+    public static final class VerificacaoProximidade extends EventoPosicao {
+    }
+
+    @Name("agencia.Insercao")
+    @Label("Inserção de agência")
+    @Description("Insert da agência, incluindo a atribuição do identificador")
+    public static final class Insercao extends EventoPosicao {
+    }
+
+    @Name("agencia.Busca")
+    @Label("Busca por proximidade")
+    @Description("Busca completa de GET /desafio/distancia, incluindo acertos do cache")
+    public static final class Busca extends EventoPosicao {
+    }
+
+    @Name("agencia.Consulta")
+    @Label("Consulta de proximidade")
+    @Description("Consulta nativa no banco ou busca no índice espacial")
+    public static final class Consulta extends EventoPosicao {
+    }
+
+    @Name("agencia.Mapeamento")
+    @Label("Mapeamento da resposta")
+    @Description("Montagem da resposta a partir do resultado da consulta")
+    public static final class Mapeamento extends EventoPosicao {
+    }
+
+    @Name("agencia.ReservaIdentificadores")
+    @Label("Reserva de identificadores")
+    @Description("Leitura de um bloco da sequência agencias_seq")
+    @Category(CATEGORIA)
+    @StackTrace(false)
+    public static final class ReservaIdentificadores extends Event {
+
+        @Label("Primeiro identificador")
+        public long primeiro;
+
+        @Label("Identificadores reservados")
+        public int quantidade;
+    }
+
+    @Name("agencia.Serializacao")
+    @Label("Serialização das distâncias")
+    @Description("Escrita das agências e distâncias da resposta no JSON")
+    @Category(CATEGORIA)
+    @StackTrace(false)
+    public static final class Serializacao extends Event {
+
+        @Label("Agências")
+        public int agencias;
+    }
+}
@@ -0,0 +1,121 @@
+package com.santander.agencia.metrics;
+
+import com.santander.agencia.config.AgenciaProperties;
+import jdk.jfr.Configuration;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+/**
+ * Endpoint {@code /actuator/gravacao}, que inicia gravações do Java Flight Recorder com a
+ * configuração {@code agencia.gravacao.configuracao}, incluindo os {@link EventosAgencia}.
+ *
+ * <p>{@code POST} inicia uma gravação de {@code duracao} (padrão
+ * {@code agencia.gravacao.duracao-padrao}), gravada em {@code agencia.gravacao.diretorio} ao
+ * terminar; {@code GET} lista as gravações iniciadas por este endpoint e {@code DELETE
+ * /actuator/gravacao/{id}} encerra uma gravação antes do fim, gravando o arquivo.
+ */
+@Component
+@Endpoint(id = "gravacao")
+public class GravacaoEndpoint {
+
+    private static final Logger logger = LoggerFactory.getLogger(GravacaoEndpoint.class);
+
+    private static final String PREFIXO = "agencia-";
+    private static final DateTimeFormatter FORMATO_ARQUIVO = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    private final AgenciaProperties.Gravacao configuracao;
+
+    public record Gravacao(long id, String estado, String arquivo, Duration duracao) {
+    }
+
+    public GravacaoEndpoint(AgenciaProperties propriedades) {
+        configuracao = propriedades.getGravacao();
+    }
+
+    @WriteOperation
+    public Gravacao iniciar(@Nullable Duration duracao) {
+        Duration efetiva = duracao == null || duracao.isNegative() || duracao.isZero()
+                ? configuracao.getDuracaoPadrao()
+                : duracao;
+        if (efetiva.compareTo(configuracao.getDuracaoMaxima()) > 0) {
+            efetiva = configuracao.getDuracaoMaxima();
+        }
+        try {
+            Path diretorio = Files.createDirectories(Paths.get(configuracao.getDiretorio()));
+            Recording gravacao = new Recording(Configuration.getConfiguration(configuracao.getConfiguracao()));
+            String nome = PREFIXO + FORMATO_ARQUIVO.format(LocalDateTime.now()) + "-" + gravacao.getId();
+            gravacao.setName(nome);
+            gravacao.setToDisk(true);
+            gravacao.setDumpOnExit(true);
+            gravacao.setDuration(efetiva);
+            gravacao.setDestination(diretorio.resolve(nome + ".jfr"));
+            gravacao.start();
+            logger.info("Gravação JFR {} iniciada por {} em {}", gravacao.getId(), efetiva, gravacao.getDestination());
+            return descrever(gravacao);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (ParseException e) {
+            throw new IllegalStateException("Configuração JFR inválida: " + configuracao.getConfiguracao(), e);
+        }
+    }
+
+    @ReadOperation
+    public List<Gravacao> listar() {
+        return gravacoes().stream().map(GravacaoEndpoint::descrever).toList();
+    }
+
+    /**
+     * Encerra a gravação e grava o arquivo. Gravações já encerradas são descartadas da lista; o
+     * arquivo permanece.
+     *
+     * @return a gravação encerrada, ou {@code null} (404) se não foi iniciada por este endpoint
+     */
+    @DeleteOperation
+    public Gravacao parar(@Selector long id) {
+        for (Recording gravacao : gravacoes()) {
+            if (gravacao.getId() == id) {
+                if (gravacao.getState() == RecordingState.RUNNING) {
+                    gravacao.stop();
+                }
+                Gravacao descricao = descrever(gravacao);
+                gravacao.close();
+                logger.info("Gravação JFR {} encerrada em {}", id, descricao.arquivo());
+                return descricao;
+            }
+        }
+        return null;
+    }
+
+    private static List<Recording> gravacoes() {
+        return FlightRecorder.getFlightRecorder().getRecordings().stream()
+                .filter(gravacao -> gravacao.getName().startsWith(PREFIXO))
+                .toList();
+    }
+
+    private static Gravacao descrever(Recording gravacao) {
+        Path destino = gravacao.getDestination();
+        return new Gravacao(gravacao.getId(), gravacao.getState().name(),
+                            destino != null ? destino.toString() : null, gravacao.getDuration());
+    }
+}
@@ -0,0 +1,161 @@
+package com.santander.agencia.metrics;
+
+import com.santander.agencia.event.AgenciaCadastradaEvent;
+import com.santander.agencia.repository.ArmazemAgencias;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.lang.management.ManagementFactory;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Métricas de latência do cadastro e da busca por proximidade, por etapa, expostas pelo actuator
+ * em {@code /actuator/metrics} e {@code /actuator/prometheus}. Percentis e histogramas são
+ * configurados em {@code management.metrics.distribution} para o prefixo {@code agencia}.
+ */
+@Component
+public class MetricasAgencia {
+
+    public static final String CADASTRO = "agencia.cadastro";
+    public static final String CONSULTA = "agencia.consulta";
+    public static final String TOTAL_AGENCIAS = "agencia.total";
+    public static final String TAMANHO_RESULTADO = "agencia.consulta.resultados";
+    public static final String ULTIMO_TAMANHO_RESULTADO = "agencia.consulta.resultados.ultimo";
+    public static final String INICIALIZACAO = "agencia.inicializacao";
+
+    public enum Etapa {
+
+        /**
+         * Verificação de distância mínima para as agências existentes.
+         */
+        VERIFICACAO_PROXIMIDADE(CADASTRO, "verificacao_proximidade"),
+
+        /**
+         * Reserva de um bloco de identificadores na sequência {@code agencias_seq}.
+         */
+        RESERVA_IDENTIFICADORES(CADASTRO, "reserva_identificadores"),
+
+        /**
+         * Insert da agência, incluindo a atribuição do identificador.
+         */
+        INSERCAO(CADASTRO, "insercao"),
+
+        /**
+         * Consulta nativa no banco ou busca no índice espacial.
+         */
+        CONSULTA(MetricasAgencia.CONSULTA, "consulta"),
+
+        /**
+         * Montagem da resposta a partir do resultado da consulta. As distâncias são formatadas
+         * depois, na escrita da resposta.
+         */
+        MAPEAMENTO(MetricasAgencia.CONSULTA, "mapeamento"),
+
+        /**
+         * Carga do índice espacial, do instantâneo binário ou do banco.
+         */
+        CARGA_INDICE(INICIALIZACAO, "carga_indice"),
+
+        /**
+         * Consultas sintéticas executadas antes de a aplicação ficar pronta.
+         */
+        AQUECIMENTO(INICIALIZACAO, "aquecimento");
+
+        private final String operacao;
+        private final String nome;
+
+        Etapa(String operacao, String nome) {
+            this.operacao = operacao;
+            this.nome = nome;
+        }
+    }
+
+    @Autowired
+    private ArmazemAgencias armazemAgencias;
+
+    private final Timer cadastro;
+    private final Timer consulta;
+    private final Map<Etapa, Timer> etapas = new EnumMap<>(Etapa.class);
+    private final DistributionSummary tamanhoResultado;
+    private final AtomicLong totalAgencias = new AtomicLong();
+    private final AtomicInteger ultimoTamanhoResultado = new AtomicInteger();
+    private final AtomicLong inicializacaoMillis = new AtomicLong();
+
+    public MetricasAgencia(MeterRegistry registro) {
+        cadastro = Timer.builder(CADASTRO)
+                .description("Duração do cadastro de uma agência")
+                .register(registro);
+        consulta = Timer.builder(CONSULTA)
+                .description("Duração da busca de agências próximas")
+                .register(registro);
+        for (Etapa etapa : Etapa.values()) {
+            etapas.put(etapa, Timer.builder(etapa.operacao + ".etapa")
+                    .tag("etapa", etapa.nome)
+                    .register(registro));
+        }
+        tamanhoResultado = DistributionSummary.builder(TAMANHO_RESULTADO)
+                .description("Quantidade de agências retornadas por busca")
+                .register(registro);
+        Gauge.builder(TOTAL_AGENCIAS, totalAgencias, AtomicLong::get)
+                .description("Agências cadastradas")
+                .register(registro);
+        Gauge.builder(ULTIMO_TAMANHO_RESULTADO, ultimoTamanhoResultado, AtomicInteger::get)
+                .description("Quantidade de agências retornadas pela última busca")
+                .register(registro);
+        TimeGauge.builder(INICIALIZACAO, inicializacaoMillis, TimeUnit.MILLISECONDS, AtomicLong::get)
+                .description("Tempo da partida da JVM até a aplicação ficar pronta, incluindo o aquecimento")
+                .register(registro);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void carregarTotalAgencias() {
+        totalAgencias.set(armazemAgencias.count());
+    }
+
+    /**
+     * O evento é publicado depois de todos os {@code ApplicationRunner}, incluindo o aquecimento,
+     * e imediatamente antes de a prontidão passar a aceitar tráfego.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void registrarInicializacao() {
+        inicializacaoMillis.set(ManagementFactory.getRuntimeMXBean().getUptime());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void aoCadastrarAgencia(AgenciaCadastradaEvent evento) {
+        totalAgencias.incrementAndGet();
+    }
+
+    /**
+     * Registra a etapa iniciada em {@code inicioNanos}, obtido de {@link System#nanoTime()}.
+     */
+    public void registrar(Etapa etapa, long inicioNanos) {
+        registrarDuracao(etapa, System.nanoTime() - inicioNanos);
+    }
+
+    public void registrarDuracao(Etapa etapa, long duracaoNanos) {
+        etapas.get(etapa).record(duracaoNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void registrarCadastro(long inicioNanos) {
+        cadastro.record(System.nanoTime() - inicioNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void registrarConsulta(long inicioNanos, int agenciasRetornadas) {
+        consulta.record(System.nanoTime() - inicioNanos, TimeUnit.NANOSECONDS);
+        tamanhoResultado.record(agenciasRetornadas);
+        ultimoTamanhoResultado.set(agenciasRetornadas);
+    }
+}
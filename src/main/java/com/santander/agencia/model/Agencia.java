@@ -1,5 +1,6 @@
 package com.santander.agencia.model;
 
+import com.santander.agencia.index.CodigoMorton;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotNull;
 import lombok.AllArgsConstructor;
@@ -9,9 +10,11 @@ import lombok.NoArgsConstructor;
 import java.time.LocalDateTime;
 
 @Entity
+@EntityListeners(AgenciaListener.class)
 @Table(name = "agencias", indexes = {
     @Index(name = "idx_posicao", columnList = "pos_x, pos_y"),
-    @Index(name = "idx_data_criacao", columnList = "data_criacao")
+    @Index(name = "idx_data_criacao", columnList = "data_criacao"),
+    @Index(name = "idx_codigo_espacial", columnList = "codigo_espacial")
 })
 @Data
 @NoArgsConstructor
@@ -19,8 +22,10 @@ import java.time.LocalDateTime;
 @Builder
 public class Agencia {
 
+    /**
+     * Atribuído por {@link AgenciaListener} a partir da sequência {@code agencias_seq}.
+     */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
     @Column(name = "pos_x", nullable = false)
@@ -31,6 +36,14 @@ public class Agencia {
     @NotNull(message = "Posição Y é obrigatória")
     private Double posY;
 
+    /**
+     * Código Z-order da posição ({@link CodigoMorton}), atribuído por {@link AgenciaListener}.
+     * Linhas anteriores à coluna são preenchidas por
+     * {@code com.santander.agencia.repository.MigracaoCodigoEspacial}.
+     */
+    @Column(name = "codigo_espacial")
+    private Long codigoEspacial;
+
     @Column(name = "nome", nullable = true, length = 100)
     private String nome;
 
@@ -0,0 +1,30 @@
+package com.santander.agencia.model;
+
+import com.santander.agencia.index.CodigoMorton;
+import com.santander.agencia.repository.AlocadorIdentificadores;
+import jakarta.persistence.PrePersist;
+import org.springframework.beans.factory.annotation.Autowired;
+
+/**
+ * Atribui identificador, nome e código espacial às agências novas antes do insert. O nome é
+ * sempre derivado do identificador persistido ({@code AGENCIA_<id>}), e o código da posição
+ * ({@link CodigoMorton}).
+ */
+public class AgenciaListener {
+
+    @Autowired
+    private AlocadorIdentificadores alocadorIdentificadores;
+
+    @PrePersist
+    public void atribuirIdentificador(Agencia agencia) {
+        if (agencia.getId() == null) {
+            agencia.setId(alocadorIdentificadores.proximoId());
+        }
+        if (agencia.getNome() == null) {
+            agencia.setNome(AlocadorIdentificadores.nomeAgencia(agencia.getId()));
+        }
+        if (agencia.getPosX() != null && agencia.getPosY() != null) {
+            agencia.setCodigoEspacial(CodigoMorton.codigo(agencia.getPosX(), agencia.getPosY()));
+        }
+    }
+}
@@ -1,24 +1,72 @@
 package com.santander.agencia.repository;
 
+import com.santander.agencia.index.CodigoMorton;
+import com.santander.agencia.index.Geometria;
 import com.santander.agencia.model.Agencia;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import jakarta.persistence.QueryHint;
 import java.util.List;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
 
 
 @Repository
 public interface AgenciaRepository extends JpaRepository<Agencia, Long> {
 
-    @Query(value = """
+    String CONSULTA_AGENCIAS_PROXIMAS = """
         SELECT a.id, a.nome, a.pos_x, a.pos_y, a.data_criacao,
                SQRT(POWER(a.pos_x - :posX, 2) + POWER(a.pos_y - :posY, 2)) as distancia
         FROM agencias a 
         ORDER BY distancia ASC 
         LIMIT :limite
-        """, nativeQuery = true)
+        """;
+
+    String CONSULTA_AGENCIAS_PROXIMAS_NA_CAIXA = """
+        SELECT t.id, t.nome, t.pos_x, t.pos_y, t.data_criacao,
+               SQRT(t.distancia_quadrada) as distancia
+        FROM (
+            SELECT a.id, a.nome, a.pos_x, a.pos_y, a.data_criacao,
+                   (a.pos_x - :posX) * (a.pos_x - :posX) + (a.pos_y - :posY) * (a.pos_y - :posY) as distancia_quadrada
+            FROM agencias a
+            WHERE a.pos_x BETWEEN :posX - :raio AND :posX + :raio
+              AND a.pos_y BETWEEN :posY - :raio AND :posY + :raio
+              AND (a.pos_x - :posX) * (a.pos_x - :posX) + (a.pos_y - :posY) * (a.pos_y - :posY) <= :raio * :raio
+            ORDER BY distancia_quadrada ASC
+            LIMIT :limite
+        ) t
+        ORDER BY t.distancia_quadrada ASC
+        """;
+
+    /**
+     * Distância de círculo máximo em quilômetros (fórmula de haversine), com {@code pos_x} como
+     * longitude e {@code pos_y} como latitude em graus, sobre o mesmo raio de
+     * {@link Geometria#RAIO_TERRA_KM}. A fórmula só é calculada para as agências do quadrado de
+     * lado {@code 2 * raioGraus} graus centrado na posição, que pode usar {@code idx_posicao}.
+     */
+    String CONSULTA_AGENCIAS_PROXIMAS_GEODESICA = """
+        SELECT t.id, t.nome, t.pos_x, t.pos_y, t.data_criacao, t.distancia
+        FROM (
+            SELECT a.id, a.nome, a.pos_x, a.pos_y, a.data_criacao,
+                   2 * 6371.0088 * ASIN(LEAST(1.0, SQRT(
+                       POWER(SIN(RADIANS(a.pos_y - :posY) / 2), 2)
+                       + COS(RADIANS(:posY)) * COS(RADIANS(a.pos_y)) * POWER(SIN(RADIANS(a.pos_x - :posX) / 2), 2)
+                   ))) as distancia
+            FROM agencias a
+            WHERE a.pos_x BETWEEN :posX - :raioGraus AND :posX + :raioGraus
+              AND a.pos_y BETWEEN :posY - :raioGraus AND :posY + :raioGraus
+        ) t
+        WHERE t.distancia <= :raio
+        ORDER BY t.distancia ASC
+        LIMIT :limite
+        """;
+
+    @Query(value = CONSULTA_AGENCIAS_PROXIMAS, nativeQuery = true)
     List<Object[]> findAgenciasProximasComDistancia(@Param("posX") Double posX, 
                                                    @Param("posY") Double posY, 
                                                    @Param("limite") Integer limite);
@@ -32,4 +80,178 @@ public interface AgenciaRepository extends JpaRepository<Agencia, Long> {
                                 @Param("posY") Double posY, 
                                 @Param("distanciaMinima") Double distanciaMinima);
 
+    /**
+     * Variante de {@link #findAgenciasProximasComDistancia} restrita ao quadrado de lado
+     * {@code 2 * raio} centrado na posição, o que permite ao banco usar {@code idx_posicao}.
+     * A ordenação usa a distância ao quadrado e a raiz é calculada apenas para as linhas
+     * retornadas. Só considera agências a uma distância menor ou igual a {@code raio}.
+     */
+    @Query(value = CONSULTA_AGENCIAS_PROXIMAS_NA_CAIXA, nativeQuery = true)
+    List<Object[]> findAgenciasProximasNaCaixa(@Param("posX") Double posX,
+                                               @Param("posY") Double posY,
+                                               @Param("raio") Double raio,
+                                               @Param("limite") Integer limite);
+
+    /**
+     * Mesma consulta de {@link #findAgenciasProximasComDistancia}, lida sob demanda. Deve ser
+     * consumida e fechada dentro de uma transação.
+     */
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "100"))
+    @Query(value = CONSULTA_AGENCIAS_PROXIMAS, nativeQuery = true)
+    Stream<Object[]> streamAgenciasProximasComDistancia(@Param("posX") Double posX,
+                                                       @Param("posY") Double posY,
+                                                       @Param("limite") Integer limite);
+
+    /**
+     * Mesma consulta de {@link #findAgenciasProximasNaCaixa}, lida sob demanda. Deve ser
+     * consumida e fechada dentro de uma transação.
+     */
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "100"))
+    @Query(value = CONSULTA_AGENCIAS_PROXIMAS_NA_CAIXA, nativeQuery = true)
+    Stream<Object[]> streamAgenciasProximasNaCaixa(@Param("posX") Double posX,
+                                                   @Param("posY") Double posY,
+                                                   @Param("raio") Double raio,
+                                                   @Param("limite") Integer limite);
+
+    /**
+     * Agências a uma distância geodésica menor ou igual a {@code raio} quilômetros, em ordem
+     * crescente de distância. Antes da fórmula de haversine, a consulta descarta as agências fora
+     * do quadrado em graus que contém o círculo ({@link Geometria#raioEmGraus}); perto dos polos
+     * ou do antimeridiano, ou com raio muito grande, o quadrado cobre todas as agências.
+     */
+    default List<Object[]> findAgenciasProximasGeodesicas(Double posX, Double posY, Double raio, Integer limite) {
+        return findAgenciasProximasGeodesicasNaCaixa(posX, posY, raio, limite, raioEmGraus(posX, posY, raio));
+    }
+
+    /**
+     * Mesma consulta de {@link #findAgenciasProximasGeodesicas}, lida sob demanda. Deve ser
+     * consumida e fechada dentro de uma transação.
+     */
+    default Stream<Object[]> streamAgenciasProximasGeodesicas(Double posX, Double posY, Double raio, Integer limite) {
+        return streamAgenciasProximasGeodesicasNaCaixa(posX, posY, raio, limite, raioEmGraus(posX, posY, raio));
+    }
+
+    @Query(value = CONSULTA_AGENCIAS_PROXIMAS_GEODESICA, nativeQuery = true)
+    List<Object[]> findAgenciasProximasGeodesicasNaCaixa(@Param("posX") Double posX,
+                                                        @Param("posY") Double posY,
+                                                        @Param("raio") Double raio,
+                                                        @Param("limite") Integer limite,
+                                                        @Param("raioGraus") Double raioGraus);
+
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "100"))
+    @Query(value = CONSULTA_AGENCIAS_PROXIMAS_GEODESICA, nativeQuery = true)
+    Stream<Object[]> streamAgenciasProximasGeodesicasNaCaixa(@Param("posX") Double posX,
+                                                            @Param("posY") Double posY,
+                                                            @Param("raio") Double raio,
+                                                            @Param("limite") Integer limite,
+                                                            @Param("raioGraus") Double raioGraus);
+
+    @Query(value = """
+        SELECT COUNT(*) > 0
+        FROM agencias a
+        WHERE a.pos_x BETWEEN :posX - :distanciaMinima AND :posX + :distanciaMinima
+          AND a.pos_y BETWEEN :posY - :distanciaMinima AND :posY + :distanciaMinima
+          AND (a.pos_x - :posX) * (a.pos_x - :posX) + (a.pos_y - :posY) * (a.pos_y - :posY)
+              <= :distanciaMinima * :distanciaMinima
+        """, nativeQuery = true)
+    boolean existsAgenciaProximaNaCaixa(@Param("posX") Double posX,
+                                        @Param("posY") Double posY,
+                                        @Param("distanciaMinima") Double distanciaMinima);
+
+    /**
+     * Mesmo resultado de {@link #findAgenciasProximasNaCaixa}, lendo apenas as faixas de
+     * {@code codigo_espacial} que cobrem o quadrado ao redor da posição ({@link CodigoMorton#faixas}).
+     * Agências sem código (anteriores à migração) não são consideradas.
+     */
+    default List<Object[]> findAgenciasProximasNasCelulas(Double posX, Double posY, Double raio, Integer limite) {
+        return findAgenciasProximasNasFaixas(posX, posY, raio, limite, CodigoMorton.faixas(posX, posY, raio));
+    }
+
+    /**
+     * Mesmo resultado de {@link #existsAgenciaProximaNaCaixa}, lendo apenas as faixas de
+     * {@code codigo_espacial} ao redor da posição.
+     */
+    default boolean existsAgenciaProximaNasCelulas(Double posX, Double posY, Double distanciaMinima) {
+        return existsAgenciaProximaNasFaixas(posX, posY, distanciaMinima,
+                                             CodigoMorton.faixas(posX, posY, distanciaMinima));
+    }
+
+    /**
+     * Agências cujo {@code codigo_espacial} está em uma das {@link CodigoMorton#FAIXAS} faixas de
+     * {@code faixas}, filtradas pelo círculo de raio {@code raio}. Cada faixa é uma leitura por
+     * intervalo em {@code idx_codigo_espacial}.
+     */
+    @Query(value = """
+        SELECT t.id, t.nome, t.pos_x, t.pos_y, t.data_criacao,
+               SQRT(t.distancia_quadrada) as distancia
+        FROM (
+            SELECT a.id, a.nome, a.pos_x, a.pos_y, a.data_criacao,
+                   (a.pos_x - :posX) * (a.pos_x - :posX) + (a.pos_y - :posY) * (a.pos_y - :posY) as distancia_quadrada
+            FROM agencias a
+            WHERE a.codigo_espacial BETWEEN :#{#faixas[0]} AND :#{#faixas[1]}
+            UNION ALL
+            SELECT a.id, a.nome, a.pos_x, a.pos_y, a.data_criacao,
+                   (a.pos_x - :posX) * (a.pos_x - :posX) + (a.pos_y - :posY) * (a.pos_y - :posY) as distancia_quadrada
+            FROM agencias a
+            WHERE a.codigo_espacial BETWEEN :#{#faixas[2]} AND :#{#faixas[3]}
+            UNION ALL
+            SELECT a.id, a.nome, a.pos_x, a.pos_y, a.data_criacao,
+                   (a.pos_x - :posX) * (a.pos_x - :posX) + (a.pos_y - :posY) * (a.pos_y - :posY) as distancia_quadrada
+            FROM agencias a
+            WHERE a.codigo_espacial BETWEEN :#{#faixas[4]} AND :#{#faixas[5]}
+            UNION ALL
+            SELECT a.id, a.nome, a.pos_x, a.pos_y, a.data_criacao,
+                   (a.pos_x - :posX) * (a.pos_x - :posX) + (a.pos_y - :posY) * (a.pos_y - :posY) as distancia_quadrada
+            FROM agencias a
+            WHERE a.codigo_espacial BETWEEN :#{#faixas[6]} AND :#{#faixas[7]}
+        ) t
+        WHERE t.distancia_quadrada <= :raio * :raio
+        ORDER BY t.distancia_quadrada ASC
+        LIMIT :limite
+        """, nativeQuery = true)
+    List<Object[]> findAgenciasProximasNasFaixas(@Param("posX") Double posX,
+                                                 @Param("posY") Double posY,
+                                                 @Param("raio") Double raio,
+                                                 @Param("limite") Integer limite,
+                                                 @Param("faixas") long[] faixas);
+
+    /**
+     * Variante de {@link #findAgenciasProximasNasFaixas} para a verificação de distância mínima do
+     * cadastro.
+     */
+    @Query(value = """
+        SELECT COUNT(*) > 0
+        FROM (
+            SELECT a.pos_x, a.pos_y
+            FROM agencias a
+            WHERE a.codigo_espacial BETWEEN :#{#faixas[0]} AND :#{#faixas[1]}
+            UNION ALL
+            SELECT a.pos_x, a.pos_y
+            FROM agencias a
+            WHERE a.codigo_espacial BETWEEN :#{#faixas[2]} AND :#{#faixas[3]}
+            UNION ALL
+            SELECT a.pos_x, a.pos_y
+            FROM agencias a
+            WHERE a.codigo_espacial BETWEEN :#{#faixas[4]} AND :#{#faixas[5]}
+            UNION ALL
+            SELECT a.pos_x, a.pos_y
+            FROM agencias a
+            WHERE a.codigo_espacial BETWEEN :#{#faixas[6]} AND :#{#faixas[7]}
+        ) t
+        WHERE (t.pos_x - :posX) * (t.pos_x - :posX) + (t.pos_y - :posY) * (t.pos_y - :posY)
+              <= :distanciaMinima * :distanciaMinima
+        """, nativeQuery = true)
+    boolean existsAgenciaProximaNasFaixas(@Param("posX") Double posX,
+                                          @Param("posY") Double posY,
+                                          @Param("distanciaMinima") Double distanciaMinima,
+                                          @Param("faixas") long[] faixas);
+
+    /**
+     * Meia largura, em graus, do quadrado que contém o círculo geodésico; sem limite (todas as
+     * agências) quando {@link Geometria#raioEmGraus} é infinito.
+     */
+    private static double raioEmGraus(Double posX, Double posY, Double raio) {
+        return Math.min(Geometria.ESFERICA.raioEmGraus(posX, posY, raio), Double.MAX_VALUE);
+    }
+
 }
@@ -0,0 +1,114 @@
+package com.santander.agencia.repository;
+
+import com.santander.agencia.metrics.EventosAgencia;
+import com.santander.agencia.metrics.MetricasAgencia;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Distribui identificadores de agência a partir de blocos reservados na sequência
+ * {@code agencias_seq}. Cada valor lido da sequência reserva o bloco
+ * {@code [valor, valor + TAMANHO_BLOCO - 1]}; dentro do bloco, a alocação é um único
+ * {@code getAndIncrement}, e apenas a troca de bloco é serializada.
+ *
+ * <p>Como os blocos vêm da sequência do banco, instâncias diferentes da aplicação nunca
+ * recebem o mesmo identificador.
+ */
+@Component
+public class AlocadorIdentificadores {
+
+    static final int TAMANHO_BLOCO = 50;
+
+    private static final Bloco ESGOTADO = new Bloco(1, 0);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectProvider<MetricasAgencia> metricas;
+
+    private final ReentrantLock travaReserva = new ReentrantLock();
+    private volatile Bloco blocoAtual = ESGOTADO;
+
+    @PostConstruct
+    public void criarSequencia() {
+        jdbcTemplate.execute("CREATE SEQUENCE IF NOT EXISTS agencias_seq START WITH 1 INCREMENT BY " + TAMANHO_BLOCO);
+    }
+
+    public long proximoId() {
+        while (true) {
+            Bloco bloco = blocoAtual;
+            long id = bloco.proximo.getAndIncrement();
+            if (id <= bloco.ultimo) {
+                return id;
+            }
+            reservarBloco(bloco);
+        }
+    }
+
+    /**
+     * Garante que os próximos identificadores sejam maiores que {@code ultimoId}, avançando a
+     * sequência se necessário. Usado quando as agências ficam fora do banco que guarda a sequência.
+     */
+    public void reservarAcimaDe(long ultimoId) {
+        travaReserva.lock();
+        try {
+            long inicio = jdbcTemplate.queryForObject("SELECT NEXT VALUE FOR agencias_seq", Long.class);
+            if (inicio <= ultimoId) {
+                inicio = ultimoId + 1;
+                jdbcTemplate.execute("ALTER SEQUENCE agencias_seq RESTART WITH " + (inicio + TAMANHO_BLOCO));
+            }
+            blocoAtual = new Bloco(inicio, inicio + TAMANHO_BLOCO - 1);
+        } finally {
+            travaReserva.unlock();
+        }
+    }
+
+    public static String nomeAgencia(long id) {
+        return "AGENCIA_" + id;
+    }
+
+    /**
+     * Usa {@link ReentrantLock} em vez de {@code synchronized} para não fixar a thread portadora
+     * durante a chamada JDBC quando as requisições rodam em threads virtuais.
+     */
+    private void reservarBloco(Bloco esgotado) {
+        travaReserva.lock();
+        try {
+            if (blocoAtual != esgotado) {
+                return;
+            }
+            EventosAgencia.ReservaIdentificadores evento = new EventosAgencia.ReservaIdentificadores();
+            evento.begin();
+            long inicioReserva = System.nanoTime();
+            Long inicio = jdbcTemplate.queryForObject("SELECT NEXT VALUE FOR agencias_seq", Long.class);
+            blocoAtual = new Bloco(inicio, inicio + TAMANHO_BLOCO - 1);
+            metricas.ifAvailable(m -> m.registrar(MetricasAgencia.Etapa.RESERVA_IDENTIFICADORES, inicioReserva));
+            evento.end();
+            if (evento.shouldCommit()) {
+                evento.primeiro = inicio;
+                evento.quantidade = TAMANHO_BLOCO;
+                evento.commit();
+            }
+        } finally {
+            travaReserva.unlock();
+        }
+    }
+
+    private static final class Bloco {
+
+        private final AtomicLong proximo;
+        private final long ultimo;
+
+        private Bloco(long primeiro, long ultimo) {
+            this.proximo = new AtomicLong(primeiro);
+            this.ultimo = ultimo;
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.santander.agencia.repository;
+
+import com.santander.agencia.model.Agencia;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * Operações de armazenamento usadas pela aplicação, com uma implementação sobre o banco
+ * ({@link ArmazemBancoAgencias}) e outra sobre um arquivo mapeado em memória
+ * ({@link ArmazemArquivoAgencias}), escolhida por {@code agencia.armazenamento.tipo}.
+ *
+ * <p>As consultas por proximidade devolvem linhas no formato
+ * {@code id, nome, pos_x, pos_y, data_criacao, distancia}, em ordem crescente de distância.
+ * Agências não são alteradas nem removidas.
+ */
+public interface ArmazemAgencias {
+
+    /**
+     * Inclui a agência, atribuindo identificador, nome e data de criação.
+     */
+    Agencia save(Agencia agencia);
+
+    /**
+     * Inclui as agências, na ordem da lista.
+     */
+    List<Agencia> saveAll(List<Agencia> agencias);
+
+    Optional<Agencia> findById(Long id);
+
+    List<Agencia> findAll();
+
+    long count();
+
+    /**
+     * As {@code limite} agências mais próximas, calculando a distância para todas.
+     */
+    List<Object[]> findAgenciasProximasComDistancia(Double posX, Double posY, Integer limite);
+
+    /**
+     * As {@code limite} agências mais próximas a uma distância menor ou igual a {@code raio},
+     * pré-filtradas pelo quadrado de lado {@code 2 * raio} centrado na posição.
+     */
+    List<Object[]> findAgenciasProximasNaCaixa(Double posX, Double posY, Double raio, Integer limite);
+
+    /**
+     * Mesmo resultado de {@link #findAgenciasProximasNaCaixa}, lendo o quadrado como faixas do
+     * código Z-order das agências.
+     */
+    List<Object[]> findAgenciasProximasNasCelulas(Double posX, Double posY, Double raio, Integer limite);
+
+    /**
+     * As {@code limite} agências a uma distância geodésica menor ou igual a {@code raio}
+     * quilômetros.
+     */
+    List<Object[]> findAgenciasProximasGeodesicas(Double posX, Double posY, Double raio, Integer limite);
+
+    /**
+     * Mesmo resultado de {@link #findAgenciasProximasComDistancia}, lido sob demanda. Deve ser
+     * consumido e fechado dentro de uma transação.
+     */
+    Stream<Object[]> streamAgenciasProximasComDistancia(Double posX, Double posY, Integer limite);
+
+    /**
+     * Mesmo resultado de {@link #findAgenciasProximasNaCaixa}, lido sob demanda. Deve ser
+     * consumido e fechado dentro de uma transação.
+     */
+    Stream<Object[]> streamAgenciasProximasNaCaixa(Double posX, Double posY, Double raio, Integer limite);
+
+    /**
+     * Mesmo resultado de {@link #findAgenciasProximasGeodesicas}, lido sob demanda. Deve ser
+     * consumido e fechado dentro de uma transação.
+     */
+    Stream<Object[]> streamAgenciasProximasGeodesicas(Double posX, Double posY, Double raio, Integer limite);
+
+    /**
+     * Se há agência a uma distância menor ou igual a {@code distanciaMinima}, pré-filtrando pelo
+     * quadrado ao redor da posição.
+     */
+    boolean existsAgenciaProximaNaCaixa(Double posX, Double posY, Double distanciaMinima);
+
+    /**
+     * Mesmo resultado de {@link #existsAgenciaProximaNaCaixa}, lendo o quadrado como faixas do
+     * código Z-order das agências.
+     */
+    boolean existsAgenciaProximaNasCelulas(Double posX, Double posY, Double distanciaMinima);
+}
@@ -0,0 +1,558 @@
+package com.santander.agencia.repository;
+
+import com.santander.agencia.config.AgenciaProperties;
+import com.santander.agencia.index.Geometria;
+import com.santander.agencia.model.Agencia;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.DoubleUnaryOperator;
+import java.util.stream.Stream;
+
+/**
+ * Implementação de {@link ArmazemAgencias} sobre um arquivo mapeado em memória, usada quando
+ * {@code agencia.armazenamento.tipo=arquivo}. As agências sobrevivem a reinícios sem depender do
+ * banco, e a abertura apenas mapeia o arquivo: as consultas leem os registros diretamente do
+ * mapeamento, sem carregá-los no heap.
+ *
+ * <p>Formato do arquivo (little-endian): um cabeçalho de {@value #TAMANHO_CABECALHO} bytes com
+ * identificação, versão, tamanho do registro e quantidade de registros confirmados, seguido de
+ * registros de {@value #TAMANHO_REGISTRO} bytes ({@code id}, {@code pos_x}, {@code pos_y} e
+ * {@code data_criacao} em microssegundos UTC). O nome não é gravado, pois é sempre
+ * {@code AGENCIA_<id>}, nem o código espacial, que só serve às consultas do banco.
+ *
+ * <p>Os registros formam um log apenas de inclusão: cada cadastro grava o registro depois do
+ * último confirmado e só então atualiza a quantidade no cabeçalho, de modo que um registro
+ * interrompido no meio nunca é lido. Os cadastros são serializados entre si; as consultas leem
+ * um estado imutável publicado a cada cadastro e não usam travas.
+ *
+ * <p>Dentro de uma transação, {@link #save} e {@link #saveAll} apenas atribuem o identificador:
+ * os registros são gravados e publicados no commit, antes da atualização do índice, da
+ * invalidação do cache e da nova versão das agências, e descartados no rollback. Até o commit,
+ * nem a própria transação os lê. Uma falha ao gravar no commit (arquivo cheio ou erro de E/S)
+ * chega a quem chamou, mas a transação do banco, se houver, já foi confirmada.
+ *
+ * <p>As consultas têm o mesmo resultado das consultas nativas de {@link AgenciaRepository}. Como
+ * agências não são alteradas, {@link #save} sempre inclui.
+ */
+@Repository
+@ConditionalOnProperty(prefix = "agencia.armazenamento", name = "tipo", havingValue = "arquivo")
+public class ArmazemArquivoAgencias implements ArmazemAgencias {
+
+    private static final Logger logger = LoggerFactory.getLogger(ArmazemArquivoAgencias.class);
+
+    static final int TAMANHO_CABECALHO = 64;
+    static final int TAMANHO_REGISTRO = 32;
+
+    private static final int IDENTIFICACAO = 0x4147454E;
+    private static final int VERSAO = 1;
+    private static final int POSICAO_IDENTIFICACAO = 0;
+    private static final int POSICAO_VERSAO = 4;
+    private static final int POSICAO_TAMANHO_REGISTRO = 8;
+    private static final int POSICAO_TOTAL = 16;
+
+    private static final int CAMPO_ID = 0;
+    private static final int CAMPO_X = 8;
+    private static final int CAMPO_Y = 16;
+    private static final int CAMPO_DATA_CRIACAO = 24;
+
+    private static final int CAPACIDADE_MAXIMA = (Integer.MAX_VALUE - TAMANHO_CABECALHO) / TAMANHO_REGISTRO;
+
+    @Autowired
+    private AgenciaProperties propriedades;
+
+    @Autowired
+    private AlocadorIdentificadores alocadorIdentificadores;
+
+    private final ReentrantLock travaEscrita = new ReentrantLock();
+
+    private FileChannel canal;
+    private FileLock travaArquivo;
+    private volatile Estado estado;
+
+    /**
+     * Mapeamento atual e quantidade de registros visíveis. Um novo estado é publicado a cada
+     * cadastro; os registros abaixo de {@code total} nunca mudam.
+     */
+    private record Estado(MappedByteBuffer registros, int capacidade, int total) {
+    }
+
+    @PostConstruct
+    public void abrir() {
+        AgenciaProperties.Armazenamento configuracao = propriedades.getArmazenamento();
+        Path arquivo = Path.of(configuracao.getArquivo()).toAbsolutePath();
+        try {
+            if (arquivo.getParent() != null) {
+                Files.createDirectories(arquivo.getParent());
+            }
+            canal = FileChannel.open(arquivo, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                                     StandardOpenOption.WRITE);
+            try {
+                travaArquivo = canal.tryLock();
+            } catch (OverlappingFileLockException e) {
+                travaArquivo = null;
+            }
+            if (travaArquivo == null) {
+                canal.close();
+                throw new IllegalStateException("Arquivo de agências em uso por outro processo: " + arquivo);
+            }
+
+            boolean novo = canal.size() == 0;
+            if (!novo && canal.size() < TAMANHO_CABECALHO) {
+                canal.close();
+                throw new IllegalStateException("Arquivo não é um arquivo de agências válido: " + arquivo);
+            }
+            long capacidadeArquivo = novo ? 0 : (canal.size() - TAMANHO_CABECALHO) / TAMANHO_REGISTRO;
+            int capacidade = (int) Math.min(CAPACIDADE_MAXIMA,
+                                            Math.max(configuracao.getCapacidadeInicial(), capacidadeArquivo));
+            MappedByteBuffer registros = mapear(capacidade);
+            if (novo) {
+                registros.putInt(POSICAO_IDENTIFICACAO, IDENTIFICACAO);
+                registros.putInt(POSICAO_VERSAO, VERSAO);
+                registros.putInt(POSICAO_TAMANHO_REGISTRO, TAMANHO_REGISTRO);
+                registros.putLong(POSICAO_TOTAL, 0);
+                registros.force();
+            } else if (!cabecalhoValido(registros)) {
+                canal.close();
+                throw new IllegalStateException("Arquivo não é um arquivo de agências válido: " + arquivo);
+            }
+            int total = (int) registros.getLong(POSICAO_TOTAL);
+            estado = new Estado(registros, capacidade, total);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Erro ao abrir o arquivo de agências " + arquivo, e);
+        }
+
+        alocadorIdentificadores.reservarAcimaDe(maiorId());
+        logger.info("Arquivo de agências {} aberto com {} agências", arquivo, estado.total());
+    }
+
+    @PreDestroy
+    public void fechar() throws IOException {
+        if (canal == null) {
+            return;
+        }
+        travaEscrita.lock();
+        try {
+            estado.registros().force();
+            travaArquivo.release();
+            canal.close();
+        } finally {
+            travaEscrita.unlock();
+        }
+    }
+
+    @Override
+    public List<Object[]> findAgenciasProximasComDistancia(Double posX, Double posY, Integer limite) {
+        return selecionar(posX, posY, Double.POSITIVE_INFINITY, limite);
+    }
+
+    @Override
+    public List<Object[]> findAgenciasProximasNaCaixa(Double posX, Double posY, Double raio, Integer limite) {
+        return selecionar(posX, posY, raio * raio, limite);
+    }
+
+    @Override
+    public Stream<Object[]> streamAgenciasProximasComDistancia(Double posX, Double posY, Integer limite) {
+        return findAgenciasProximasComDistancia(posX, posY, limite).stream();
+    }
+
+    @Override
+    public Stream<Object[]> streamAgenciasProximasNaCaixa(Double posX, Double posY, Double raio, Integer limite) {
+        return findAgenciasProximasNaCaixa(posX, posY, raio, limite).stream();
+    }
+
+    /**
+     * O arquivo não guarda o código espacial; as faixas apenas restringem as agências lidas, então
+     * a consulta na caixa tem o mesmo resultado.
+     */
+    @Override
+    public List<Object[]> findAgenciasProximasNasCelulas(Double posX, Double posY, Double raio, Integer limite) {
+        return findAgenciasProximasNaCaixa(posX, posY, raio, limite);
+    }
+
+    /**
+     * Como a consulta do banco, só calcula a distância geodésica das agências dentro do quadrado
+     * em graus que contém o círculo ({@link Geometria#raioEmGraus}).
+     */
+    @Override
+    public List<Object[]> findAgenciasProximasGeodesicas(Double posX, Double posY, Double raio, Integer limite) {
+        double raioGraus = Geometria.ESFERICA.raioEmGraus(posX, posY, raio);
+        return selecionar(limite, raio, (x, y) -> Math.abs(x - posX) > raioGraus || Math.abs(y - posY) > raioGraus
+                                                  ? Double.POSITIVE_INFINITY
+                                                  : Geometria.ESFERICA.distancia(posX, posY, x, y),
+                          distancia -> distancia);
+    }
+
+    @Override
+    public Stream<Object[]> streamAgenciasProximasGeodesicas(Double posX, Double posY, Double raio, Integer limite) {
+        return findAgenciasProximasGeodesicas(posX, posY, raio, limite).stream();
+    }
+
+    @Override
+    public boolean existsAgenciaProximaNaCaixa(Double posX, Double posY, Double distanciaMinima) {
+        Estado atual = estado;
+        MappedByteBuffer registros = atual.registros();
+        double distanciaMinima2 = distanciaMinima * distanciaMinima;
+        for (int i = 0; i < atual.total(); i++) {
+            double deltaX = registros.getDouble(posicao(i) + CAMPO_X) - posX;
+            double deltaY = registros.getDouble(posicao(i) + CAMPO_Y) - posY;
+            if (deltaX * deltaX + deltaY * deltaY <= distanciaMinima2) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public boolean existsAgenciaProximaNasCelulas(Double posX, Double posY, Double distanciaMinima) {
+        return existsAgenciaProximaNaCaixa(posX, posY, distanciaMinima);
+    }
+
+    @Override
+    public Agencia save(Agencia agencia) {
+        preparar(agencia);
+        gravarAoConfirmar(List.of(agencia));
+        return agencia;
+    }
+
+    @Override
+    public List<Agencia> saveAll(List<Agencia> agencias) {
+        for (Agencia agencia : agencias) {
+            preparar(agencia);
+        }
+        gravarAoConfirmar(agencias);
+        return agencias;
+    }
+
+    @Override
+    public List<Agencia> findAll() {
+        Estado atual = estado;
+        List<Agencia> agencias = new ArrayList<>(atual.total());
+        for (int i = 0; i < atual.total(); i++) {
+            agencias.add(ler(atual.registros(), i));
+        }
+        return agencias;
+    }
+
+    @Override
+    public Optional<Agencia> findById(Long id) {
+        Estado atual = estado;
+        int indice = indiceDe(atual, id);
+        return indice >= 0 ? Optional.of(ler(atual.registros(), indice)) : Optional.empty();
+    }
+
+    @Override
+    public long count() {
+        return estado.total();
+    }
+
+    /**
+     * Atribui identificador, nome e data de criação, como o insert do banco.
+     */
+    private void preparar(Agencia agencia) {
+        if (agencia.getId() == null) {
+            agencia.setId(alocadorIdentificadores.proximoId());
+        }
+        if (agencia.getNome() == null) {
+            agencia.setNome(AlocadorIdentificadores.nomeAgencia(agencia.getId()));
+        }
+        if (agencia.getDataCriacao() == null) {
+            agencia.setDataCriacao(LocalDateTime.now());
+        }
+    }
+
+    /**
+     * Grava as agências imediatamente fora de transação ou, dentro dela, no commit, antes dos
+     * ouvintes de {@code AgenciaCadastradaEvent} (registrados depois, com a mesma precedência).
+     * Com rollback, as agências são descartadas sem chegar ao arquivo.
+     */
+    private void gravarAoConfirmar(List<? extends Agencia> agencias) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            gravar(agencias);
+            return;
+        }
+        @SuppressWarnings("unchecked")
+        List<Agencia> pendentes = (List<Agencia>) TransactionSynchronizationManager.getResource(this);
+        if (pendentes == null) {
+            List<Agencia> novas = new ArrayList<>();
+            pendentes = novas;
+            TransactionSynchronizationManager.bindResource(this, novas);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public int getOrder() {
+                    return Ordered.HIGHEST_PRECEDENCE;
+                }
+
+                @Override
+                public void afterCommit() {
+                    gravar(novas);
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(ArmazemArquivoAgencias.this);
+                }
+            });
+        }
+        pendentes.addAll(agencias);
+    }
+
+    private void gravar(List<? extends Agencia> agencias) {
+        travaEscrita.lock();
+        try {
+            for (Agencia agencia : agencias) {
+                incluir(agencia);
+            }
+        } finally {
+            travaEscrita.unlock();
+        }
+    }
+
+    /**
+     * Grava o registro na posição seguinte ao último confirmado e o confirma atualizando a
+     * quantidade no cabeçalho. Deve ser chamado com {@link #travaEscrita}.
+     */
+    private void incluir(Agencia agencia) {
+        Estado atual = estado;
+        if (atual.total() == atual.capacidade()) {
+            atual = ampliar(atual);
+        }
+        MappedByteBuffer registros = atual.registros();
+        int posicao = posicao(atual.total());
+        registros.putLong(posicao + CAMPO_ID, agencia.getId());
+        registros.putDouble(posicao + CAMPO_X, agencia.getPosX());
+        registros.putDouble(posicao + CAMPO_Y, agencia.getPosY());
+        registros.putLong(posicao + CAMPO_DATA_CRIACAO, paraMicrossegundos(agencia.getDataCriacao()));
+        if (propriedades.getArmazenamento().isSincronizar()) {
+            registros.force(posicao, TAMANHO_REGISTRO);
+        }
+        registros.putLong(POSICAO_TOTAL, atual.total() + 1);
+        if (propriedades.getArmazenamento().isSincronizar()) {
+            registros.force(POSICAO_TOTAL, Long.BYTES);
+        }
+        estado = new Estado(registros, atual.capacidade(), atual.total() + 1);
+    }
+
+    private Estado ampliar(Estado atual) {
+        if (atual.capacidade() == CAPACIDADE_MAXIMA) {
+            throw new IllegalStateException("Arquivo de agências atingiu a capacidade máxima de "
+                                            + CAPACIDADE_MAXIMA + " registros");
+        }
+        int capacidade = (int) Math.min(CAPACIDADE_MAXIMA, 2L * Math.max(1, atual.capacidade()));
+        try {
+            return new Estado(mapear(capacidade), capacidade, atual.total());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Erro ao ampliar o arquivo de agências", e);
+        }
+    }
+
+    private MappedByteBuffer mapear(int capacidade) throws IOException {
+        MappedByteBuffer registros = canal.map(FileChannel.MapMode.READ_WRITE, 0,
+                                               TAMANHO_CABECALHO + (long) capacidade * TAMANHO_REGISTRO);
+        registros.order(ByteOrder.LITTLE_ENDIAN);
+        return registros;
+    }
+
+    private static boolean cabecalhoValido(MappedByteBuffer registros) {
+        return registros.getInt(POSICAO_IDENTIFICACAO) == IDENTIFICACAO
+            && registros.getInt(POSICAO_VERSAO) == VERSAO
+            && registros.getInt(POSICAO_TAMANHO_REGISTRO) == TAMANHO_REGISTRO;
+    }
+
+    /**
+     * Mesma seleção das consultas nativas: as {@code limite} agências mais próximas com distância
+     * ao quadrado menor ou igual a {@code raio2}, em ordem crescente de distância. Empates ficam
+     * na ordem de cadastro.
+     */
+    private List<Object[]> selecionar(double posX, double posY, double raio2, int limite) {
+        return selecionar(limite, raio2, (x, y) -> {
+            double deltaX = x - posX;
+            double deltaY = y - posY;
+            return deltaX * deltaX + deltaY * deltaY;
+        }, Math::sqrt);
+    }
+
+    /**
+     * Seleciona as {@code limite} agências de menor {@code chave}, entre as que têm chave menor ou
+     * igual a {@code chaveMaxima}, e devolve as linhas com a distância obtida da chave.
+     */
+    private List<Object[]> selecionar(int limite, double chaveMaxima, DoubleBinaryOperator chave,
+                                      DoubleUnaryOperator distancia) {
+        Estado atual = estado;
+        MappedByteBuffer registros = atual.registros();
+        SelecaoRegistros selecao = new SelecaoRegistros(Math.min(limite, atual.total()));
+        for (int i = 0; i < atual.total(); i++) {
+            double valor = chave.applyAsDouble(registros.getDouble(posicao(i) + CAMPO_X),
+                                               registros.getDouble(posicao(i) + CAMPO_Y));
+            if (valor <= chaveMaxima) {
+                selecao.oferecer(valor, i);
+            }
+        }
+
+        int[] indices = selecao.emOrdem();
+        List<Object[]> linhas = new ArrayList<>(indices.length);
+        for (int indice : indices) {
+            Agencia agencia = ler(registros, indice);
+            linhas.add(new Object[] {
+                agencia.getId(), agencia.getNome(), agencia.getPosX(), agencia.getPosY(), agencia.getDataCriacao(),
+                distancia.applyAsDouble(chave.applyAsDouble(agencia.getPosX(), agencia.getPosY()))
+            });
+        }
+        return linhas;
+    }
+
+    private long maiorId() {
+        Estado atual = estado;
+        long maior = 0;
+        for (int i = 0; i < atual.total(); i++) {
+            maior = Math.max(maior, atual.registros().getLong(posicao(i) + CAMPO_ID));
+        }
+        return maior;
+    }
+
+    private static int indiceDe(Estado atual, Long id) {
+        if (id == null) {
+            return -1;
+        }
+        for (int i = 0; i < atual.total(); i++) {
+            if (atual.registros().getLong(posicao(i) + CAMPO_ID) == id) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static Agencia ler(MappedByteBuffer registros, int indice) {
+        int posicao = posicao(indice);
+        long id = registros.getLong(posicao + CAMPO_ID);
+        return Agencia.builder()
+                .id(id)
+                .nome(AlocadorIdentificadores.nomeAgencia(id))
+                .posX(registros.getDouble(posicao + CAMPO_X))
+                .posY(registros.getDouble(posicao + CAMPO_Y))
+                .dataCriacao(deMicrossegundos(registros.getLong(posicao + CAMPO_DATA_CRIACAO)))
+                .build();
+    }
+
+    private static int posicao(int indice) {
+        return TAMANHO_CABECALHO + indice * TAMANHO_REGISTRO;
+    }
+
+    private static long paraMicrossegundos(LocalDateTime data) {
+        return data.toEpochSecond(ZoneOffset.UTC) * 1_000_000 + data.getNano() / 1_000;
+    }
+
+    private static LocalDateTime deMicrossegundos(long microssegundos) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(microssegundos, 1_000_000),
+                                           (int) Math.floorMod(microssegundos, 1_000_000) * 1_000,
+                                           ZoneOffset.UTC);
+    }
+
+    /**
+     * Heap de máximo com capacidade fixa sobre os índices dos registros, desempatando pelo índice
+     * para manter a ordem de cadastro entre agências à mesma distância.
+     */
+    private static final class SelecaoRegistros {
+
+        private final double[] distancias2;
+        private final int[] indices;
+        private int tamanho;
+
+        private SelecaoRegistros(int capacidade) {
+            this.distancias2 = new double[capacidade];
+            this.indices = new int[capacidade];
+        }
+
+        private void oferecer(double distancia2, int indice) {
+            if (tamanho < indices.length) {
+                distancias2[tamanho] = distancia2;
+                indices[tamanho] = indice;
+                subir(tamanho++);
+            } else if (tamanho > 0 && distancia2 < distancias2[0]) {
+                distancias2[0] = distancia2;
+                indices[0] = indice;
+                descer(0, tamanho);
+            }
+        }
+
+        private int[] emOrdem() {
+            int[] ordenados = new int[tamanho];
+            for (int fim = tamanho - 1; fim >= 0; fim--) {
+                ordenados[fim] = indices[0];
+                trocar(0, fim);
+                descer(0, fim);
+            }
+            tamanho = 0;
+            return ordenados;
+        }
+
+        private boolean maior(int a, int b) {
+            return distancias2[a] > distancias2[b]
+                || (distancias2[a] == distancias2[b] && indices[a] > indices[b]);
+        }
+
+        private void subir(int posicao) {
+            while (posicao > 0) {
+                int pai = (posicao - 1) >>> 1;
+                if (!maior(posicao, pai)) {
+                    return;
+                }
+                trocar(pai, posicao);
+                posicao = pai;
+            }
+        }
+
+        private void descer(int posicao, int limite) {
+            while (true) {
+                int maior = posicao;
+                int esquerda = 2 * posicao + 1;
+                int direita = esquerda + 1;
+                if (esquerda < limite && maior(esquerda, maior)) {
+                    maior = esquerda;
+                }
+                if (direita < limite && maior(direita, maior)) {
+                    maior = direita;
+                }
+                if (maior == posicao) {
+                    return;
+                }
+                trocar(posicao, maior);
+                posicao = maior;
+            }
+        }
+
+        private void trocar(int a, int b) {
+            double distancia2 = distancias2[a];
+            distancias2[a] = distancias2[b];
+            distancias2[b] = distancia2;
+            int indice = indices[a];
+            indices[a] = indices[b];
+            indices[b] = indice;
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.santander.agencia.repository;
+
+import com.santander.agencia.model.Agencia;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * Implementação de {@link ArmazemAgencias} sobre o banco, delegando ao {@link AgenciaRepository}.
+ * Usada quando {@code agencia.armazenamento.tipo=banco}, o padrão.
+ */
+@Repository
+@ConditionalOnProperty(prefix = "agencia.armazenamento", name = "tipo", havingValue = "banco", matchIfMissing = true)
+public class ArmazemBancoAgencias implements ArmazemAgencias {
+
+    private final AgenciaRepository agenciaRepository;
+
+    public ArmazemBancoAgencias(AgenciaRepository agenciaRepository) {
+        this.agenciaRepository = agenciaRepository;
+    }
+
+    @Override
+    public Agencia save(Agencia agencia) {
+        return agenciaRepository.save(agencia);
+    }
+
+    @Override
+    public List<Agencia> saveAll(List<Agencia> agencias) {
+        return agenciaRepository.saveAll(agencias);
+    }
+
+    @Override
+    public Optional<Agencia> findById(Long id) {
+        return agenciaRepository.findById(id);
+    }
+
+    @Override
+    public List<Agencia> findAll() {
+        return agenciaRepository.findAll();
+    }
+
+    @Override
+    public long count() {
+        return agenciaRepository.count();
+    }
+
+    @Override
+    public List<Object[]> findAgenciasProximasComDistancia(Double posX, Double posY, Integer limite) {
+        return agenciaRepository.findAgenciasProximasComDistancia(posX, posY, limite);
+    }
+
+    @Override
+    public List<Object[]> findAgenciasProximasNaCaixa(Double posX, Double posY, Double raio, Integer limite) {
+        return agenciaRepository.findAgenciasProximasNaCaixa(posX, posY, raio, limite);
+    }
+
+    @Override
+    public List<Object[]> findAgenciasProximasNasCelulas(Double posX, Double posY, Double raio, Integer limite) {
+        return agenciaRepository.findAgenciasProximasNasCelulas(posX, posY, raio, limite);
+    }
+
+    @Override
+    public List<Object[]> findAgenciasProximasGeodesicas(Double posX, Double posY, Double raio, Integer limite) {
+        return agenciaRepository.findAgenciasProximasGeodesicas(posX, posY, raio, limite);
+    }
+
+    @Override
+    public Stream<Object[]> streamAgenciasProximasComDistancia(Double posX, Double posY, Integer limite) {
+        return agenciaRepository.streamAgenciasProximasComDistancia(posX, posY, limite);
+    }
+
+    @Override
+    public Stream<Object[]> streamAgenciasProximasNaCaixa(Double posX, Double posY, Double raio, Integer limite) {
+        return agenciaRepository.streamAgenciasProximasNaCaixa(posX, posY, raio, limite);
+    }
+
+    @Override
+    public Stream<Object[]> streamAgenciasProximasGeodesicas(Double posX, Double posY, Double raio, Integer limite) {
+        return agenciaRepository.streamAgenciasProximasGeodesicas(posX, posY, raio, limite);
+    }
+
+    @Override
+    public boolean existsAgenciaProximaNaCaixa(Double posX, Double posY, Double distanciaMinima) {
+        return agenciaRepository.existsAgenciaProximaNaCaixa(posX, posY, distanciaMinima);
+    }
+
+    @Override
+    public boolean existsAgenciaProximaNasCelulas(Double posX, Double posY, Double distanciaMinima) {
+        return agenciaRepository.existsAgenciaProximaNasCelulas(posX, posY, distanciaMinima);
+    }
+}
@@ -0,0 +1,72 @@
+package com.santander.agencia.repository;
+
+import com.santander.agencia.index.CodigoMorton;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Cria a coluna {@code codigo_espacial} e o índice {@code idx_codigo_espacial} em bancos cujo
+ * esquema é anterior a eles e preenche o código das agências que ainda não o têm. Roda na
+ * inicialização, depois que o Hibernate prepara o esquema; com {@code ddl-auto=create-drop} a
+ * coluna já existe e não há linhas a preencher.
+ *
+ * <p>O preenchimento lê as linhas sem código em blocos de {@value #LINHAS_POR_BLOCO}, na ordem do
+ * identificador, e as atualiza com um update em lote por bloco, cada bloco confirmado por conta
+ * própria. Como só toca linhas sem código, pode ser interrompido e retomado.
+ */
+@Component
+@DependsOn("entityManagerFactory")
+@ConditionalOnProperty(prefix = "agencia.armazenamento", name = "tipo", havingValue = "banco", matchIfMissing = true)
+public class MigracaoCodigoEspacial {
+
+    private static final Logger logger = LoggerFactory.getLogger(MigracaoCodigoEspacial.class);
+
+    static final int LINHAS_POR_BLOCO = 1000;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @PostConstruct
+    public void migrar() {
+        jdbcTemplate.execute("ALTER TABLE agencias ADD COLUMN IF NOT EXISTS codigo_espacial BIGINT");
+        jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS idx_codigo_espacial ON agencias (codigo_espacial)");
+        long total = preencher();
+        if (total > 0) {
+            logger.info("Código espacial preenchido em {} agências", total);
+        }
+    }
+
+    /**
+     * Preenche {@code codigo_espacial} das agências que não o têm.
+     *
+     * @return quantidade de agências atualizadas
+     */
+    public long preencher() {
+        long total = 0;
+        while (true) {
+            List<Object[]> linhas = jdbcTemplate.query(
+                "SELECT id, pos_x, pos_y FROM agencias WHERE codigo_espacial IS NULL ORDER BY id LIMIT ?",
+                (resultado, linha) -> new Object[] {
+                    CodigoMorton.codigo(resultado.getDouble("pos_x"), resultado.getDouble("pos_y")),
+                    resultado.getLong("id")
+                },
+                LINHAS_POR_BLOCO);
+            if (linhas.isEmpty()) {
+                return total;
+            }
+            jdbcTemplate.batchUpdate("UPDATE agencias SET codigo_espacial = ? WHERE id = ?", linhas);
+            total += linhas.size();
+            if (linhas.size() < LINHAS_POR_BLOCO) {
+                return total;
+            }
+        }
+    }
+}
@@ -1,30 +1,96 @@
 package com.santander.agencia.service;
 
+import com.santander.agencia.cache.CacheAgenciasProximas;
+import com.santander.agencia.cache.ResultadoProximidade;
+import com.santander.agencia.config.AgenciaProperties;
+import com.santander.agencia.config.ModoConsulta;
 import com.santander.agencia.dto.CadastroAgenciaRequest;
 import com.santander.agencia.dto.CadastroAgenciaResponse;
+import com.santander.agencia.dto.CadastroLoteRequest;
+import com.santander.agencia.dto.CadastroLoteResponse;
+import com.santander.agencia.dto.CadastroLoteResponse.ItemCadastroLote;
+import com.santander.agencia.dto.CadastroLoteResponse.StatusItem;
+import com.santander.agencia.dto.ConsultaLoteRequest;
+import com.santander.agencia.dto.ConsultaLoteResponse;
 import com.santander.agencia.dto.DistanciaResponse;
+import com.santander.agencia.dto.FormatadorDistancia;
+import com.santander.agencia.dto.MapaDistancias;
+import com.santander.agencia.event.AgenciaCadastradaEvent;
+import com.santander.agencia.index.AgenciaProxima;
+import com.santander.agencia.index.Geometria;
+import com.santander.agencia.index.GradeEspacial;
+import com.santander.agencia.index.IndiceEspacialAgencias;
+import com.santander.agencia.index.InstantaneoAgencias;
+import com.santander.agencia.index.TravasRegiao;
+import com.santander.agencia.metrics.MetricasAgencia;
+import com.santander.agencia.metrics.EventosAgencia;
+import com.santander.agencia.metrics.MetricasAgencia.Etapa;
 import com.santander.agencia.model.Agencia;
-import com.santander.agencia.repository.AgenciaRepository;
+import com.santander.agencia.repository.ArmazemAgencias;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Isolation;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.stream.Stream;
 
 @Service
 @Transactional
 public class AgenciaService {
 
     private static final Logger logger = LoggerFactory.getLogger(AgenciaService.class);
+
+    /**
+     * Distância mínima do cadastro, sempre plana e nas unidades das coordenadas, qualquer que seja
+     * {@code agencia.consulta.distancia}.
+     */
     private static final Double DISTANCIA_MINIMA_ENTRE_AGENCIAS = 1.0;
+    private static final int LIMITE_AGENCIAS_PROXIMAS = 1000;
+    private static final int POSICOES_POR_BLOCO = 1024;
+    private static final int POSICOES_POR_TAREFA = 32;
+    private static final int LIMITE_POSICOES_LOTE_BANCO = 500;
+
+    @Autowired
+    private ArmazemAgencias armazemAgencias;
+
+    @Autowired
+    private IndiceEspacialAgencias indiceEspacial;
+
+    @Autowired
+    private TravasRegiao travasRegiao;
+
+    @Autowired
+    private CacheAgenciasProximas cacheAgenciasProximas;
 
     @Autowired
-    private AgenciaRepository agenciaRepository;
+    private MetricasAgencia metricas;
+
+    @Autowired
+    private AgenciaProperties propriedades;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private Validator validator;
 
     @Transactional
     public CadastroAgenciaResponse cadastrarAgencia(CadastroAgenciaRequest request) {
@@ -33,26 +99,50 @@ public class AgenciaService {
         }
         
         logger.info("Iniciando cadastro de agência na posição ({}, {})", request.posX(), request.posY());
+        long inicioCadastro = System.nanoTime();
+        EventosAgencia.Cadastro eventoCadastro = new EventosAgencia.Cadastro();
+        eventoCadastro.begin();
 
-        if (agenciaRepository.existsAgenciaProxima(request.posX(), request.posY(), DISTANCIA_MINIMA_ENTRE_AGENCIAS)) {
-            logger.warn("Tentativa de cadastro de agência muito próxima a uma existente na posição ({}, {})", 
-                       request.posX(), request.posY());
-            throw new IllegalArgumentException(
-                String.format("Já existe uma agência próxima a esta posição. Distância mínima permitida: %.1f unidades", 
-                             DISTANCIA_MINIMA_ENTRE_AGENCIAS)
-            );
-        }
-
-        long proximoId = agenciaRepository.count() + 1;
-        String nomeAgencia = "AGENCIA_" + proximoId;
+        TravasRegiao.Travamento travamento = travasRegiao.travar(
+                request.posX(), request.posY(), DISTANCIA_MINIMA_ENTRE_AGENCIAS);
+        Agencia agencia;
+        try {
+            EventosAgencia.VerificacaoProximidade eventoVerificacao = new EventosAgencia.VerificacaoProximidade();
+            eventoVerificacao.begin();
+            long inicio = System.nanoTime();
+            boolean existeProxima = existeAgenciaProxima(request.posX(), request.posY());
+            metricas.registrar(Etapa.VERIFICACAO_PROXIMIDADE, inicio);
+            eventoVerificacao.concluir(request.posX(), request.posY(), existeProxima ? 1 : 0);
+            if (existeProxima) {
+                logger.warn("Tentativa de cadastro de agência muito próxima a uma existente na posição ({}, {})", 
+                           request.posX(), request.posY());
+                throw new IllegalArgumentException(
+                    String.format("Já existe uma agência próxima a esta posição. Distância mínima permitida: %.1f unidades", 
+                                 DISTANCIA_MINIMA_ENTRE_AGENCIAS)
+                );
+            }
 
-        Agencia agencia = Agencia.builder()
-                .nome(nomeAgencia)
-                .posX(request.posX())
-                .posY(request.posY())
-                .build();
-        agencia = agenciaRepository.save(agencia);
+            agencia = Agencia.builder()
+                    .posX(request.posX())
+                    .posY(request.posY())
+                    .build();
+            EventosAgencia.Insercao eventoInsercao = new EventosAgencia.Insercao();
+            eventoInsercao.begin();
+            inicio = System.nanoTime();
+            agencia = armazemAgencias.save(agencia);
+            metricas.registrar(Etapa.INSERCAO, inicio);
+            eventoInsercao.concluir(request.posX(), request.posY(), 1);
+            eventPublisher.publishEvent(new AgenciaCadastradaEvent(
+                    agencia.getId(), agencia.getNome(), agencia.getPosX(), agencia.getPosY()));
+        } catch (RuntimeException e) {
+            travamento.close();
+            eventoCadastro.concluir(request.posX(), request.posY(), 0);
+            throw e;
+        }
+        liberarAoConcluirTransacao(travamento);
 
+        metricas.registrarCadastro(inicioCadastro);
+        eventoCadastro.concluir(request.posX(), request.posY(), 1);
         logger.info("Agência cadastrada com sucesso - ID: {}, Nome: {}", agencia.getId(), agencia.getNome());
 
         return new CadastroAgenciaResponse(
@@ -65,20 +155,158 @@ public class AgenciaService {
         );
     }
 
-    @Transactional(readOnly = true)
-    public DistanciaResponse buscarAgenciasProximas(Double posX, Double posY) {
-        if (posX == null || posY == null) {
-            throw new IllegalArgumentException("Parâmetros posX e posY são obrigatórios");
+    /**
+     * Cadastra várias agências em uma única transação. Cada item é validado individualmente
+     * (campos, distância mínima para agências existentes e para itens anteriores do mesmo lote) e
+     * rejeitado sem interromper os demais. Nos modos {@code sql} e {@code caixa}, a verificação
+     * contra as agências existentes usa sempre a consulta pré-filtrada por caixa. As agências
+     * aceitas são persistidas com inserts em lote e recebem identificador e nome de
+     * {@link com.santander.agencia.repository.AlocadorIdentificadores}.
+     */
+    @Transactional
+    public CadastroLoteResponse cadastrarAgenciasEmLote(CadastroLoteRequest request) {
+        if (request == null || request.agencias() == null || request.agencias().isEmpty()) {
+            throw new IllegalArgumentException("A lista de agências é obrigatória");
         }
-        
+        List<CadastroAgenciaRequest> itens = request.agencias();
+
+        logger.info("Iniciando cadastro em lote de {} agências", itens.size());
+
+        TravasRegiao.Travamento travamento = travasRegiao.travarTudo();
+        List<Agencia> aceitas = new ArrayList<>();
+        Map<Integer, String> rejeicoes = new LinkedHashMap<>();
+        try {
+            GradeEspacial gradeLote = new GradeEspacial(GradeEspacial.TAMANHO_CELULA_PADRAO);
+
+            for (int indice = 0; indice < itens.size(); indice++) {
+                CadastroAgenciaRequest item = itens.get(indice);
+                String motivo = validarItemLote(item, gradeLote);
+                if (motivo != null) {
+                    rejeicoes.put(indice, motivo);
+                    continue;
+                }
+                gradeLote.adicionar(item.posX(), item.posY());
+                aceitas.add(Agencia.builder()
+                        .posX(item.posX())
+                        .posY(item.posY())
+                        .build());
+            }
+
+            aceitas = armazemAgencias.saveAll(aceitas);
+            for (Agencia agencia : aceitas) {
+                eventPublisher.publishEvent(new AgenciaCadastradaEvent(
+                        agencia.getId(), agencia.getNome(), agencia.getPosX(), agencia.getPosY()));
+            }
+        } catch (RuntimeException e) {
+            travamento.close();
+            throw e;
+        }
+        liberarAoConcluirTransacao(travamento);
+
+        List<ItemCadastroLote> resultado = new ArrayList<>(itens.size());
+        Iterator<Agencia> agenciasAceitas = aceitas.iterator();
+        for (int indice = 0; indice < itens.size(); indice++) {
+            CadastroAgenciaRequest item = itens.get(indice);
+            String motivo = rejeicoes.get(indice);
+            if (motivo != null) {
+                resultado.add(new ItemCadastroLote(indice, StatusItem.REJEITADA, null, null,
+                        item != null ? item.posX() : null, item != null ? item.posY() : null, motivo));
+            } else {
+                Agencia agencia = agenciasAceitas.next();
+                resultado.add(new ItemCadastroLote(indice, StatusItem.CADASTRADA, agencia.getId(), agencia.getNome(),
+                        agencia.getPosX(), agencia.getPosY(), "Agência cadastrada com sucesso!"));
+            }
+        }
+
+        logger.info("Cadastro em lote concluído - {} cadastradas, {} rejeitadas", aceitas.size(), rejeicoes.size());
+
+        return new CadastroLoteResponse(itens.size(), aceitas.size(), rejeicoes.size(), resultado);
+    }
+
+    private String validarItemLote(CadastroAgenciaRequest item, GradeEspacial gradeLote) {
+        if (item == null) {
+            return "Parâmetros posX e posY são obrigatórios";
+        }
+        Set<ConstraintViolation<CadastroAgenciaRequest>> violacoes = validator.validate(item);
+        if (!violacoes.isEmpty()) {
+            return violacoes.iterator().next().getMessage();
+        }
+        if (gradeLote.existeProximo(item.posX(), item.posY(), DISTANCIA_MINIMA_ENTRE_AGENCIAS)) {
+            return String.format("Já existe uma agência do lote próxima a esta posição. Distância mínima permitida: %.1f unidades",
+                                 DISTANCIA_MINIMA_ENTRE_AGENCIAS);
+        }
+        boolean existeProxima = switch (propriedades.getConsulta().getModo()) {
+            case INDICE -> indiceEspacial.existeAgenciaProxima(
+                item.posX(), item.posY(), DISTANCIA_MINIMA_ENTRE_AGENCIAS);
+            case CELULA -> armazemAgencias.existsAgenciaProximaNasCelulas(
+                item.posX(), item.posY(), DISTANCIA_MINIMA_ENTRE_AGENCIAS);
+            case SQL, CAIXA -> armazemAgencias.existsAgenciaProximaNaCaixa(
+                item.posX(), item.posY(), DISTANCIA_MINIMA_ENTRE_AGENCIAS);
+        };
+        if (existeProxima) {
+            return String.format("Já existe uma agência próxima a esta posição. Distância mínima permitida: %.1f unidades",
+                                 DISTANCIA_MINIMA_ENTRE_AGENCIAS);
+        }
+        return null;
+    }
+
+    /**
+     * Mantém a região travada até o fim da transação, para que um cadastro concorrente na mesma
+     * região só verifique a distância mínima depois do commit deste. Registrada após a publicação
+     * do {@link AgenciaCadastradaEvent}, de modo que os ouvintes do evento atualizam o índice
+     * antes da liberação.
+     */
+    private void liberarAoConcluirTransacao(TravasRegiao.Travamento travamento) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            travamento.close();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                travamento.close();
+            }
+        });
+    }
+
+    boolean existeAgenciaProxima(Double posX, Double posY) {
+        return switch (propriedades.getConsulta().getModo()) {
+            case INDICE -> indiceEspacial.existeAgenciaProxima(posX, posY, DISTANCIA_MINIMA_ENTRE_AGENCIAS);
+            case CELULA -> armazemAgencias.existsAgenciaProximaNasCelulas(
+                posX, posY, DISTANCIA_MINIMA_ENTRE_AGENCIAS);
+            case SQL, CAIXA -> armazemAgencias.existsAgenciaProximaNaCaixa(
+                posX, posY, DISTANCIA_MINIMA_ENTRE_AGENCIAS);
+        };
+    }
+
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
+    public DistanciaResponse buscarAgenciasProximas(Double posX, Double posY) {
+        return buscarAgenciasProximas(posX, posY, null, null);
+    }
+
+    /**
+     * Busca as agências mais próximas da posição. Não abre transação própria: no modo
+     * {@code indice} a busca lê apenas o instantâneo em memória, e nos demais cada consulta do
+     * repositório roda na sua própria transação somente leitura.
+     *
+     * @param k    quantidade máxima de agências retornadas; {@code null} usa o limite padrão de 1000
+     * @param raio distância máxima das agências retornadas; {@code null} não limita a distância
+     */
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
+    public DistanciaResponse buscarAgenciasProximas(Double posX, Double posY, Integer k, Double raio) {
+        int limite = validarParametrosBusca(posX, posY, k, raio);
+
         logger.info("Buscando agências próximas à posição ({}, {})", posX, posY);
+        long inicioConsulta = System.nanoTime();
+        EventosAgencia.Busca eventoBusca = new EventosAgencia.Busca();
+        eventoBusca.begin();
 
         try {
-            List<Object[]> resultados = agenciaRepository.findAgenciasProximasComDistancia(
-                posX, posY, 1000
+            DistanciaResponse response = cacheAgenciasProximas.obter(
+                posX, posY, limite, raio, () -> consultarAgenciasProximas(posX, posY, limite, raio)
             );
-
-            DistanciaResponse response = processarResultadosAgencias(resultados, posX, posY);
+            metricas.registrarConsulta(inicioConsulta, response.totalAgencias());
+            eventoBusca.concluir(posX, posY, response.totalAgencias());
 
             logger.info("Encontradas {} agências próximas à posição ({}, {})", 
                        response.totalAgencias(), posX, posY);
@@ -91,54 +319,364 @@ public class AgenciaService {
         }
     }
 
+    /**
+     * Mesma busca de {@link #buscarAgenciasProximas(Double, Double, Integer, Double)} sem passar
+     * pelo cache nem registrar a duração total da consulta. Usada no aquecimento da aplicação,
+     * para exercitar o caminho completo da consulta sem preencher o cache com posições sintéticas.
+     */
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
+    public DistanciaResponse consultarSemCache(Double posX, Double posY, Integer k, Double raio) {
+        int limite = validarParametrosBusca(posX, posY, k, raio);
+        return consultarAgenciasProximas(posX, posY, limite, raio).resposta();
+    }
 
-    private DistanciaResponse processarResultadosAgencias(List<Object[]> resultados, Double posX, Double posY) {
-        Map<String, String> agencias = new LinkedHashMap<>();
-        String agenciaMaisProxima = null;
-        Double menorDistancia = null;
+    private ResultadoProximidade consultarAgenciasProximas(Double posX, Double posY, int limite, Double raio) {
+        EventosAgencia.Consulta eventoConsulta = new EventosAgencia.Consulta();
+        eventoConsulta.begin();
+        long inicio = System.nanoTime();
+        if (propriedades.getConsulta().getModo() == ModoConsulta.INDICE) {
+            List<AgenciaProxima> proximas = indiceEspacial.buscarMaisProximas(
+                posX, posY, limite, raio != null ? raio : Double.POSITIVE_INFINITY
+            );
+            metricas.registrar(Etapa.CONSULTA, inicio);
+            eventoConsulta.concluir(posX, posY, proximas.size());
+            EventosAgencia.Mapeamento eventoMapeamento = new EventosAgencia.Mapeamento();
+            eventoMapeamento.begin();
+            inicio = System.nanoTime();
+            DistanciaResponse resposta = processarAgenciasIndice(proximas, posX, posY);
+            metricas.registrar(Etapa.MAPEAMENTO, inicio);
+            eventoMapeamento.concluir(posX, posY, resposta.totalAgencias());
+            return new ResultadoProximidade(
+                resposta, proximas.isEmpty() ? 0.0 : proximas.get(proximas.size() - 1).distancia()
+            );
+        }
 
-        for (Object[] resultado : resultados) {
-            Agencia agencia = construirAgencia(resultado);
-            Double distancia = ((Number) resultado[5]).doubleValue();
-            
-            String distanciaFormatada = formatarDistancia(distancia);
-            String nomeAgencia = agencia.getNome();
-            agencias.put(nomeAgencia, distanciaFormatada);
-            
-            if (agenciaMaisProxima == null || distancia < menorDistancia) {
-                agenciaMaisProxima = nomeAgencia;
-                menorDistancia = distancia;
+        List<Object[]> resultados;
+        if (geometria() == Geometria.ESFERICA) {
+            resultados = armazemAgencias.findAgenciasProximasGeodesicas(posX, posY, raioGeodesico(raio), limite);
+        } else if (raio != null) {
+            resultados = buscarNoRaio(posX, posY, raio, limite);
+        } else if (ampliaRaio()) {
+            resultados = buscarAmpliandoRaio(posX, posY, limite);
+        } else {
+            resultados = armazemAgencias.findAgenciasProximasComDistancia(posX, posY, limite);
+        }
+        metricas.registrar(Etapa.CONSULTA, inicio);
+        eventoConsulta.concluir(posX, posY, resultados.size());
+        EventosAgencia.Mapeamento eventoMapeamento = new EventosAgencia.Mapeamento();
+        eventoMapeamento.begin();
+        inicio = System.nanoTime();
+        DistanciaResponse resposta = processarResultadosAgencias(resultados, posX, posY);
+        metricas.registrar(Etapa.MAPEAMENTO, inicio);
+        eventoMapeamento.concluir(posX, posY, resposta.totalAgencias());
+        return new ResultadoProximidade(
+            resposta,
+            resultados.isEmpty() ? 0.0 : ((Number) resultados.get(resultados.size() - 1)[5]).doubleValue()
+        );
+    }
+
+    /**
+     * Variante de {@link #buscarAgenciasProximas(Double, Double, Integer, Double)} que entrega cada
+     * agência ao consumidor assim que é lida, sem montar a resposta completa em memória. Nos modos
+     * que consultam o banco sem ampliar a caixa e fora do modo {@code celula}, as linhas são lidas
+     * sob demanda do cursor.
+     *
+     * @return quantidade de agências entregues
+     */
+    @Transactional(readOnly = true)
+    public int transmitirAgenciasProximas(Double posX, Double posY, Integer k, Double raio,
+                                          ConsumidorAgenciaProxima consumidor) throws IOException {
+        int limite = validarParametrosBusca(posX, posY, k, raio);
+
+        logger.info("Transmitindo agências próximas à posição ({}, {})", posX, posY);
+
+        int total = 0;
+        ModoConsulta modo = propriedades.getConsulta().getModo();
+        if (modo == ModoConsulta.INDICE) {
+            for (AgenciaProxima proxima : indiceEspacial.buscarMaisProximas(
+                    posX, posY, limite, raio != null ? raio : Double.POSITIVE_INFINITY)) {
+                consumidor.aceitar(proxima.nome(), proxima.distancia());
+                total++;
+            }
+        } else if (geometria() == Geometria.PLANA
+                && (modo == ModoConsulta.CELULA || modo == ModoConsulta.CAIXA && raio == null)) {
+            for (Object[] resultado : raio != null
+                    ? buscarNoRaio(posX, posY, raio, limite)
+                    : buscarAmpliandoRaio(posX, posY, limite)) {
+                consumidor.aceitar((String) resultado[1], ((Number) resultado[5]).doubleValue());
+                total++;
+            }
+        } else {
+            try (Stream<Object[]> resultados = geometria() == Geometria.ESFERICA
+                    ? armazemAgencias.streamAgenciasProximasGeodesicas(posX, posY, raioGeodesico(raio), limite)
+                    : raio != null
+                    ? armazemAgencias.streamAgenciasProximasNaCaixa(posX, posY, raio, limite)
+                    : armazemAgencias.streamAgenciasProximasComDistancia(posX, posY, limite)) {
+                Iterator<Object[]> iterador = resultados.iterator();
+                while (iterador.hasNext()) {
+                    Object[] resultado = iterador.next();
+                    consumidor.aceitar((String) resultado[1], ((Number) resultado[5]).doubleValue());
+                    total++;
+                }
+            }
+        }
+
+        logger.info("Transmitidas {} agências próximas à posição ({}, {})", total, posX, posY);
+        return total;
+    }
+
+    @Transactional(readOnly = true, isolation = Isolation.REPEATABLE_READ)
+    public ConsultaLoteResponse buscarAgenciasProximasEmLote(ConsultaLoteRequest request) {
+        List<DistanciaResponse> resultados = new ArrayList<>(request != null && request.posicoes() != null
+                ? request.posicoes().size() : 0);
+        try {
+            transmitirAgenciasProximasEmLote(request, resultados::add);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return new ConsultaLoteResponse(resultados.size(), resultados);
+    }
+
+    /**
+     * Busca as agências mais próximas de cada posição do lote e entrega os resultados ao
+     * consumidor na ordem das posições.
+     *
+     * <p>No modo índice, todas as posições são respondidas sobre o mesmo
+     * {@link InstantaneoAgencias} do índice espacial, em blocos de {@value #POSICOES_POR_BLOCO}
+     * posições avaliadas em paralelo no {@link ForkJoinPool#commonPool()}. Nos demais modos, as
+     * posições são consultadas uma após a outra, na thread da requisição e nesta transação, com a
+     * mesma consulta limitada de {@code GET /desafio/distancia} (caixa, células ou consulta nativa);
+     * o isolamento {@code REPEATABLE_READ} faz todas lerem o mesmo estado do banco sem carregar a
+     * tabela em memória. Como a transação ocupa uma conexão do pool até a última posição, esses
+     * modos aceitam no máximo {@value #LIMITE_POSICOES_LOTE_BANCO} posições por lote.
+     *
+     * @return quantidade de posições respondidas
+     */
+    @Transactional(readOnly = true, isolation = Isolation.REPEATABLE_READ)
+    public int transmitirAgenciasProximasEmLote(ConsultaLoteRequest request,
+                                                ConsumidorResultadoLote consumidor) throws IOException {
+        int limite = validarConsultaLote(request);
+        List<DistanciaResponse.PosicaoUsuario> posicoes = request.posicoes();
+
+        logger.info("Buscando agências próximas de {} posições em lote", posicoes.size());
+
+        if (propriedades.getConsulta().getModo() == ModoConsulta.INDICE) {
+            InstantaneoAgencias instantaneo = indiceEspacial.instantaneo();
+            double raioMaximo = request.raio() != null ? request.raio() : Double.POSITIVE_INFINITY;
+            DistanciaResponse[] bloco = new DistanciaResponse[Math.min(POSICOES_POR_BLOCO, posicoes.size())];
+            for (int inicio = 0; inicio < posicoes.size(); inicio += bloco.length) {
+                int fim = Math.min(inicio + bloco.length, posicoes.size());
+                ForkJoinPool.commonPool().invoke(new BuscaLoteTarefa(
+                    instantaneo, posicoes, inicio, fim, inicio, bloco, limite, raioMaximo));
+                for (int i = 0; i < fim - inicio; i++) {
+                    consumidor.aceitar(bloco[i]);
+                }
+            }
+        } else {
+            for (DistanciaResponse.PosicaoUsuario posicao : posicoes) {
+                consumidor.aceitar(
+                    consultarAgenciasProximas(posicao.posX(), posicao.posY(), limite, request.raio()).resposta());
+            }
+        }
+
+        logger.info("Consulta em lote concluída - {} posições", posicoes.size());
+        return posicoes.size();
+    }
+
+    /**
+     * Valida os parâmetros da busca em lote.
+     *
+     * @return quantidade máxima de agências a retornar por posição
+     */
+    public int validarConsultaLote(ConsultaLoteRequest request) {
+        if (request == null || request.posicoes() == null || request.posicoes().isEmpty()) {
+            throw new IllegalArgumentException("A lista de posições é obrigatória");
+        }
+        if (propriedades.getConsulta().getModo() != ModoConsulta.INDICE
+                && request.posicoes().size() > LIMITE_POSICOES_LOTE_BANCO) {
+            throw new IllegalArgumentException(String.format(
+                "Fora do modo indice o lote deve ter no máximo %d posições", LIMITE_POSICOES_LOTE_BANCO));
+        }
+        int limite = LIMITE_AGENCIAS_PROXIMAS;
+        for (DistanciaResponse.PosicaoUsuario posicao : request.posicoes()) {
+            if (posicao == null) {
+                throw new IllegalArgumentException("Parâmetros posX e posY são obrigatórios");
+            }
+            limite = validarParametrosBusca(posicao.posX(), posicao.posY(), request.k(), request.raio());
+        }
+        return limite;
+    }
+
+    /**
+     * Valida os parâmetros de busca por proximidade.
+     *
+     * @return quantidade máxima de agências a retornar
+     */
+    public int validarParametrosBusca(Double posX, Double posY, Integer k, Double raio) {
+        if (posX == null || posY == null) {
+            throw new IllegalArgumentException("Parâmetros posX e posY são obrigatórios");
+        }
+        if (k != null && (k < 1 || k > LIMITE_AGENCIAS_PROXIMAS)) {
+            throw new IllegalArgumentException(
+                String.format("Parâmetro k deve estar entre 1 e %d", LIMITE_AGENCIAS_PROXIMAS));
+        }
+        if (raio != null && !(raio > 0 && Double.isFinite(raio))) {
+            throw new IllegalArgumentException("Parâmetro raio deve ser maior que zero");
+        }
+        return k != null ? k : LIMITE_AGENCIAS_PROXIMAS;
+    }
+
+    private Geometria geometria() {
+        return Geometria.de(propriedades.getConsulta().getDistancia());
+    }
+
+    /**
+     * A consulta geodésica sempre filtra pelo raio; sem raio, usa um valor que nenhuma distância
+     * na superfície da Terra alcança.
+     */
+    private static double raioGeodesico(Double raio) {
+        return raio != null ? raio : Double.MAX_VALUE;
+    }
+
+    private boolean ampliaRaio() {
+        ModoConsulta modo = propriedades.getConsulta().getModo();
+        return modo == ModoConsulta.CAIXA || modo == ModoConsulta.CELULA;
+    }
+
+    /**
+     * Agências a até {@code raio} da posição, pela consulta do modo: as faixas do código espacial
+     * no modo {@code celula} e a caixa nos demais.
+     */
+    private List<Object[]> buscarNoRaio(Double posX, Double posY, double raio, int limite) {
+        return propriedades.getConsulta().getModo() == ModoConsulta.CELULA
+                ? armazemAgencias.findAgenciasProximasNasCelulas(posX, posY, raio, limite)
+                : armazemAgencias.findAgenciasProximasNaCaixa(posX, posY, raio, limite);
+    }
+
+    /**
+     * Consulta quadrados cada vez maiores até obter {@code limite} agências. Como a consulta no
+     * raio só retorna agências dentro do círculo de raio {@code raio}, qualquer agência fora do
+     * resultado está mais distante que todas as retornadas.
+     *
+     * <p>O raio ao menos dobra a cada tentativa; quando a tentativa anterior encontrou agências,
+     * cresce conforme a densidade observada para chegar ao limite em poucas consultas.
+     */
+    private List<Object[]> buscarAmpliandoRaio(Double posX, Double posY, int limite) {
+        AgenciaProperties.Caixa caixa = propriedades.getConsulta().getCaixa();
+        double raio = caixa.getRaioInicial();
+        while (raio <= caixa.getRaioMaximo()) {
+            List<Object[]> resultados = buscarNoRaio(posX, posY, raio, limite);
+            if (resultados.size() >= limite) {
+                return resultados;
+            }
+            raio *= resultados.isEmpty() ? 2.0 : Math.max(2.0, Math.sqrt((double) limite / resultados.size()));
+        }
+        return armazemAgencias.findAgenciasProximasComDistancia(posX, posY, limite);
+    }
+
+    /**
+     * Monta a resposta a partir das linhas da consulta nativa ({@code id, nome, pos_x, pos_y,
+     * data_criacao, distancia}), lendo apenas o nome e a distância de cada linha.
+     */
+    DistanciaResponse processarResultadosAgencias(List<Object[]> resultados, Double posX, Double posY) {
+        int tamanho = resultados.size();
+        String[] nomes = new String[tamanho];
+        double[] distancias = new double[tamanho];
+        int maisProxima = -1;
+
+        for (int i = 0; i < tamanho; i++) {
+            Object[] resultado = resultados.get(i);
+            nomes[i] = (String) resultado[1];
+            distancias[i] = ((Number) resultado[5]).doubleValue();
+            if (maisProxima < 0 || distancias[i] < distancias[maisProxima]) {
+                maisProxima = i;
             }
         }
 
         return new DistanciaResponse(
             new DistanciaResponse.PosicaoUsuario(posX, posY),
-            agencias,
-            agencias.size(),
-            agenciaMaisProxima,
-            menorDistancia
+            new MapaDistancias(nomes, distancias, tamanho),
+            tamanho,
+            maisProxima >= 0 ? nomes[maisProxima] : null,
+            maisProxima >= 0 ? distancias[maisProxima] : null
         );
     }
 
-    private Agencia construirAgencia(Object[] resultado) {
-        return Agencia.builder()
-            .id(((Number) resultado[0]).longValue())
-            .nome((String) resultado[1])
-            .posX(((Number) resultado[2]).doubleValue())
-            .posY(((Number) resultado[3]).doubleValue())
-            .dataCriacao(((java.sql.Timestamp) resultado[4]).toLocalDateTime())
-            .build();
+    private DistanciaResponse processarAgenciasIndice(List<AgenciaProxima> proximas, Double posX, Double posY) {
+        int tamanho = proximas.size();
+        String[] nomes = new String[tamanho];
+        double[] distancias = new double[tamanho];
+        for (int i = 0; i < tamanho; i++) {
+            AgenciaProxima proxima = proximas.get(i);
+            nomes[i] = proxima.nome();
+            distancias[i] = proxima.distancia();
+        }
+
+        return new DistanciaResponse(
+            new DistanciaResponse.PosicaoUsuario(posX, posY),
+            new MapaDistancias(nomes, distancias, tamanho),
+            tamanho,
+            tamanho > 0 ? nomes[0] : null,
+            tamanho > 0 ? distancias[0] : null
+        );
     }
 
-    private String formatarDistancia(Double distancia) {
-        return String.format("distancia = %.2f", distancia).replace(",", ".");
+    /**
+     * Preenche {@code resultados[i - deslocamento]} para as posições {@code [inicio, fim)} a partir
+     * do instantâneo, dividindo o intervalo ao meio até {@value #POSICOES_POR_TAREFA} posições.
+     */
+    private final class BuscaLoteTarefa extends RecursiveAction {
+
+        private final InstantaneoAgencias instantaneo;
+        private final List<DistanciaResponse.PosicaoUsuario> posicoes;
+        private final int inicio;
+        private final int fim;
+        private final int deslocamento;
+        private final DistanciaResponse[] resultados;
+        private final int limite;
+        private final double raioMaximo;
+
+        private BuscaLoteTarefa(InstantaneoAgencias instantaneo, List<DistanciaResponse.PosicaoUsuario> posicoes,
+                                int inicio, int fim, int deslocamento, DistanciaResponse[] resultados,
+                                int limite, double raioMaximo) {
+            this.instantaneo = instantaneo;
+            this.posicoes = posicoes;
+            this.inicio = inicio;
+            this.fim = fim;
+            this.deslocamento = deslocamento;
+            this.resultados = resultados;
+            this.limite = limite;
+            this.raioMaximo = raioMaximo;
+        }
+
+        @Override
+        protected void compute() {
+            if (fim - inicio <= POSICOES_POR_TAREFA) {
+                for (int i = inicio; i < fim; i++) {
+                    DistanciaResponse.PosicaoUsuario posicao = posicoes.get(i);
+                    resultados[i - deslocamento] = processarAgenciasIndice(
+                        instantaneo.buscarMaisProximas(posicao.posX(), posicao.posY(), limite, raioMaximo),
+                        posicao.posX(), posicao.posY());
+                }
+                return;
+            }
+            int meio = (inicio + fim) >>> 1;
+            invokeAll(
+                new BuscaLoteTarefa(instantaneo, posicoes, inicio, meio, deslocamento, resultados, limite, raioMaximo),
+                new BuscaLoteTarefa(instantaneo, posicoes, meio, fim, deslocamento, resultados, limite, raioMaximo));
+        }
     }
 
+    String formatarDistancia(Double distancia) {
+        return FormatadorDistancia.formatar(distancia);
+    }
 
+    /**
+     * Distância entre a agência e a posição, na medida configurada em
+     * {@code agencia.consulta.distancia}.
+     */
     public double calcularDistancia(Agencia agencia, double posX, double posY) {
-        double deltaX = agencia.getPosX() - posX;
-        double deltaY = agencia.getPosY() - posY;
-        return Math.sqrt(deltaX * deltaX + deltaY * deltaY);
+        return geometria().distancia(agencia.getPosX(), agencia.getPosY(), posX, posY);
     }
 
     public String obterNomeAgencia(Agencia agencia) {
@@ -153,7 +691,7 @@ public class AgenciaService {
         
         logger.info("Buscando agência com ID: {}", id);
         
-        Optional<Agencia> agenciaOptional = agenciaRepository.findById(id);
+        Optional<Agencia> agenciaOptional = armazemAgencias.findById(id);
         
         if (agenciaOptional.isEmpty()) {
             logger.warn("Agência não encontrada com ID: {}", id);
@@ -0,0 +1,52 @@
+package com.santander.agencia.service;
+
+import com.santander.agencia.dto.CadastroAgenciaRequest;
+import com.santander.agencia.dto.CadastroAgenciaResponse;
+import com.santander.agencia.dto.DistanciaResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Variantes não bloqueantes das operações de {@link AgenciaService}: cada chamada é executada na
+ * {@link PonteBloqueante} e o resultado é entregue por um {@link CompletableFuture}, completado
+ * excepcionalmente com a mesma exceção que a operação síncrona lançaria.
+ */
+@Service
+public class AgenciaServiceAssincrono {
+
+    @Autowired
+    private AgenciaService agenciaService;
+
+    @Autowired
+    private PonteBloqueante ponte;
+
+    public CompletableFuture<CadastroAgenciaResponse> cadastrarAgencia(CadastroAgenciaRequest request) {
+        return ponte.executar(() -> agenciaService.cadastrarAgencia(request));
+    }
+
+    public CompletableFuture<DistanciaResponse> buscarAgenciasProximas(Double posX, Double posY, Integer k, Double raio) {
+        return ponte.executar(() -> agenciaService.buscarAgenciasProximas(posX, posY, k, raio));
+    }
+
+    /**
+     * Entrega as agências ao consumidor a partir de uma thread da ponte. Se o consumidor escreve
+     * na conexão, uma escrita lenta segura a leitura do cursor: o cliente determina o ritmo da
+     * consulta, ocupando uma thread da ponte e não uma thread da requisição.
+     *
+     * @return quantidade de agências entregues
+     */
+    public CompletableFuture<Integer> transmitirAgenciasProximas(Double posX, Double posY, Integer k, Double raio,
+                                                                 ConsumidorAgenciaProxima consumidor) {
+        return ponte.executar(() -> {
+            try {
+                return agenciaService.transmitirAgenciasProximas(posX, posY, k, raio, consumidor);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+}
@@ -0,0 +1,78 @@
+package com.santander.agencia.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.santander.agencia.config.AgenciaProperties;
+import com.santander.agencia.dto.DistanciaResponse;
+import com.santander.agencia.metrics.MetricasAgencia;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.availability.AvailabilityChangeEvent;
+import org.springframework.boot.availability.ReadinessState;
+import org.springframework.context.ApplicationContext;
+import org.springframework.stereotype.Component;
+
+import java.util.Random;
+
+/**
+ * Etapa de inicialização que executa consultas sintéticas de proximidade, incluindo a serialização
+ * da resposta, para que a compilação JIT, o pool de conexões e as consultas preparadas já estejam
+ * aquecidos quando o tráfego real chegar.
+ *
+ * <p>Roda como {@link ApplicationRunner}: o Spring Boot só passa a prontidão para
+ * {@link ReadinessState#ACCEPTING_TRAFFIC} depois de todos os runners, então
+ * {@code /actuator/health/readiness} responde {@code OUT_OF_SERVICE} até o aquecimento terminar.
+ */
+@Component
+public class AquecimentoConsultas implements ApplicationRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(AquecimentoConsultas.class);
+
+    /**
+     * Limite das coordenadas sintéticas, o mesmo intervalo usado pelos benchmarks.
+     */
+    private static final double EXTENSAO = 180.0;
+
+    @Autowired
+    private AgenciaService agenciaService;
+
+    @Autowired
+    private AgenciaProperties propriedades;
+
+    @Autowired
+    private MetricasAgencia metricas;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ApplicationContext contexto;
+
+    @Override
+    public void run(ApplicationArguments argumentos) throws Exception {
+        AgenciaProperties.Aquecimento configuracao = propriedades.getInicializacao().getAquecimento();
+        if (configuracao.getConsultas() <= 0) {
+            return;
+        }
+        AvailabilityChangeEvent.publish(contexto, ReadinessState.REFUSING_TRAFFIC);
+
+        long inicio = System.nanoTime();
+        long limite = inicio + configuracao.getDuracaoMaxima().toNanos();
+        Random random = new Random(42);
+        int executadas = 0;
+        while (executadas < configuracao.getConsultas() && System.nanoTime() < limite) {
+            double posX = random.nextDouble() * 2 * EXTENSAO - EXTENSAO;
+            double posY = random.nextDouble() * EXTENSAO - EXTENSAO / 2;
+            Integer k = executadas % 2 == 0 ? null : 10;
+            Double raio = executadas % 4 == 3 ? 10.0 : null;
+            DistanciaResponse resposta = agenciaService.consultarSemCache(posX, posY, k, raio);
+            objectMapper.writeValueAsBytes(resposta);
+            executadas++;
+        }
+        metricas.registrar(MetricasAgencia.Etapa.AQUECIMENTO, inicio);
+        logger.info("Aquecimento concluído com {} consultas em {} ms",
+                   executadas, (System.nanoTime() - inicio) / 1_000_000);
+    }
+}
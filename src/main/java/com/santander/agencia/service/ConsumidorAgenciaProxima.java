@@ -0,0 +1,13 @@
+package com.santander.agencia.service;
+
+import java.io.IOException;
+
+/**
+ * Recebe, em ordem crescente de distância, cada agência encontrada por
+ * {@link AgenciaService#transmitirAgenciasProximas}.
+ */
+@FunctionalInterface
+public interface ConsumidorAgenciaProxima {
+
+    void aceitar(String nomeAgencia, double distancia) throws IOException;
+}
@@ -0,0 +1,14 @@
+package com.santander.agencia.service;
+
+import com.santander.agencia.dto.DistanciaResponse;
+
+import java.io.IOException;
+
+/**
+ * Recebe, na ordem das posições do lote, o resultado da busca de cada posição.
+ */
+@FunctionalInterface
+public interface ConsumidorResultadoLote {
+
+    void aceitar(DistanciaResponse resultado) throws IOException;
+}
@@ -0,0 +1,56 @@
+package com.santander.agencia.service;
+
+import com.santander.agencia.config.AgenciaProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import jakarta.annotation.PreDestroy;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Ponte entre os endpoints assíncronos e o serviço, que bloqueia no banco. As chamadas rodam em
+ * um pool fixo de {@code agencia.assincrono.threads} threads com fila de
+ * {@code agencia.assincrono.fila} posições: a thread da requisição é liberada assim que a
+ * chamada é enfileirada, de modo que a quantidade de conexões abertas não determina a
+ * quantidade de threads. Com a fila cheia, {@link #executar} lança
+ * {@link java.util.concurrent.RejectedExecutionException}, respondida com 503.
+ *
+ * <p>Ocupação e fila são expostas como métricas {@value #METRICA} ({@link ExecutorServiceMetrics}).
+ */
+@Component
+public class PonteBloqueante {
+
+    public static final String METRICA = "agencia.ponte";
+
+    private final ThreadPoolExecutor executor;
+
+    public PonteBloqueante(AgenciaProperties propriedades, MeterRegistry registro) {
+        AgenciaProperties.Assincrono configuracao = propriedades.getAssincrono();
+        AtomicInteger contador = new AtomicInteger();
+        ThreadFactory fabrica = tarefa -> {
+            Thread thread = new Thread(tarefa, "ponte-bloqueante-" + contador.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        executor = new ThreadPoolExecutor(configuracao.getThreads(), configuracao.getThreads(), 0L, TimeUnit.MILLISECONDS,
+                                          new ArrayBlockingQueue<>(configuracao.getFila()), fabrica,
+                                          new ThreadPoolExecutor.AbortPolicy());
+        ExecutorServiceMetrics.monitor(registro, executor, METRICA);
+    }
+
+    public <T> CompletableFuture<T> executar(Supplier<T> chamada) {
+        return CompletableFuture.supplyAsync(chamada, executor);
+    }
+
+    @PreDestroy
+    public void encerrar() {
+        executor.shutdown();
+    }
+}
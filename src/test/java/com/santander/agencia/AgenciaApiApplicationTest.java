@@ -1,14 +1,51 @@
 package com.santander.agencia;
 
 import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @SpringBootTest
+@AutoConfigureMockMvc
+@AutoConfigureObservability
 @ActiveProfiles("test")
 class AgenciaApiApplicationTest {
 
+    @Autowired
+    private MockMvc mockMvc;
+
     @Test
     void contextLoads() {
     }
+
+    @Test
+    void deveEstarProntoAposOAquecimento() throws Exception {
+        mockMvc.perform(get("/actuator/health/readiness"))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("\"UP\"")));
+
+        mockMvc.perform(get("/actuator/prometheus"))
+                .andExpect(content().string(containsString("agencia_inicializacao_seconds")))
+                .andExpect(content().string(containsString("agencia_inicializacao_etapa_seconds_count{etapa=\"aquecimento\"")));
+    }
+
+    @Test
+    void deveExporMetricasNoFormatoPrometheus() throws Exception {
+        mockMvc.perform(get("/desafio/distancia").param("posX", "0.0").param("posY", "0.0"))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/actuator/prometheus"))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("agencia_consulta_seconds_bucket")))
+                .andExpect(content().string(containsString("agencia_consulta_etapa_seconds{etapa=\"consulta\"")))
+                .andExpect(content().string(containsString("agencia_total")));
+    }
 }
@@ -0,0 +1,136 @@
+package com.santander.agencia.admissao;
+
+import com.santander.agencia.admissao.ControleAdmissao.Permissao;
+import com.santander.agencia.admissao.ControleAdmissao.Prioridade;
+import com.santander.agencia.config.AgenciaProperties;
+import com.santander.agencia.config.TipoLimiteAdmissao;
+import com.santander.agencia.exception.ServicoSobrecarregadoException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Testes do ControleAdmissao")
+class ControleAdmissaoTest {
+
+    private AgenciaProperties propriedades;
+    private SimpleMeterRegistry registro;
+
+    @BeforeEach
+    void setUp() {
+        propriedades = new AgenciaProperties();
+        propriedades.getAdmissao().setLimite(TipoLimiteAdmissao.FIXO);
+        propriedades.getAdmissao().setLimiteInicial(2);
+        propriedades.getAdmissao().setFila(1);
+        propriedades.getAdmissao().setEsperaMaxima(Duration.ofSeconds(5));
+        registro = new SimpleMeterRegistry();
+    }
+
+    @Test
+    @DisplayName("Deve recusar de imediato quando o limite e a fila estão ocupados")
+    void deveRecusarQuandoLimiteEFilaEstaoOcupados() throws Exception {
+        ControleAdmissao controle = new ControleAdmissao(propriedades, registro);
+        Permissao primeira = controle.adquirir(Prioridade.LEITURA);
+        Permissao segunda = controle.adquirir(Prioridade.LEITURA);
+        CompletableFuture<Permissao> naFila = CompletableFuture.supplyAsync(() -> controle.adquirir(Prioridade.LEITURA));
+        aguardarFila(controle, Prioridade.LEITURA, 1);
+
+        ServicoSobrecarregadoException recusa = assertThrows(ServicoSobrecarregadoException.class,
+                                                             () -> controle.adquirir(Prioridade.LEITURA));
+
+        assertEquals(1, recusa.getTentarNovamenteAposSegundos());
+        assertEquals(1.0, registro.get(ControleAdmissao.RECUSAS).tag("prioridade", "leitura").counter().count());
+        assertEquals(2.0, registro.get(ControleAdmissao.EM_USO).gauge().value());
+        controle.liberar(primeira);
+        controle.liberar(naFila.get(5, TimeUnit.SECONDS));
+        controle.liberar(segunda);
+        assertEquals(0, controle.emUso());
+    }
+
+    @Test
+    @DisplayName("Deve recusar quando a espera por vaga se esgota")
+    void deveRecusarQuandoEsperaSeEsgota() {
+        propriedades.getAdmissao().setEsperaMaxima(Duration.ofMillis(20));
+        ControleAdmissao controle = new ControleAdmissao(propriedades, registro);
+        controle.adquirir(Prioridade.LEITURA);
+        controle.adquirir(Prioridade.LEITURA);
+
+        assertThrows(ServicoSobrecarregadoException.class, () -> controle.adquirir(Prioridade.CADASTRO));
+        assertEquals(0, controle.aguardando(Prioridade.CADASTRO));
+    }
+
+    @Test
+    @DisplayName("Deve entregar a vaga liberada a um cadastro antes das buscas")
+    void deveEntregarVagaAoCadastroAntesDasBuscas() throws Exception {
+        ControleAdmissao controle = new ControleAdmissao(propriedades, registro);
+        Permissao primeira = controle.adquirir(Prioridade.LEITURA);
+        Permissao segunda = controle.adquirir(Prioridade.LEITURA);
+        CompletableFuture<Permissao> busca = CompletableFuture.supplyAsync(() -> controle.adquirir(Prioridade.LEITURA));
+        aguardarFila(controle, Prioridade.LEITURA, 1);
+        CompletableFuture<Permissao> cadastro = CompletableFuture.supplyAsync(() -> controle.adquirir(Prioridade.CADASTRO));
+        aguardarFila(controle, Prioridade.CADASTRO, 1);
+
+        controle.liberar(primeira);
+
+        Permissao vagaCadastro = cadastro.get(5, TimeUnit.SECONDS);
+        assertFalse(busca.isDone());
+        controle.liberar(segunda);
+        controle.liberar(busca.get(5, TimeUnit.SECONDS));
+        controle.liberar(vagaCadastro);
+    }
+
+    @Test
+    @DisplayName("Deve aumentar o limite adaptativo com respostas rápidas e reduzi-lo com respostas lentas")
+    void deveAjustarLimiteAdaptativoPelaLatencia() throws Exception {
+        propriedades.getAdmissao().setLimite(TipoLimiteAdmissao.ADAPTATIVO);
+        propriedades.getAdmissao().setLimiteInicial(4);
+        propriedades.getAdmissao().setLatenciaAlvo(Duration.ofMillis(20));
+        ControleAdmissao controle = new ControleAdmissao(propriedades, registro);
+
+        for (int rodada = 0; rodada < 20; rodada++) {
+            List<Permissao> permissoes = new ArrayList<>();
+            for (int i = 0; i < (int) controle.limite(); i++) {
+                permissoes.add(controle.adquirir(Prioridade.LEITURA));
+            }
+            permissoes.forEach(controle::liberar);
+        }
+        double aumentado = controle.limite();
+        assertTrue(aumentado > 4.0, "limite " + aumentado);
+        assertEquals(aumentado, registro.get(ControleAdmissao.LIMITE).gauge().value());
+
+        Permissao lenta = controle.adquirir(Prioridade.LEITURA);
+        Thread.sleep(30);
+        controle.liberar(lenta);
+
+        assertEquals(aumentado * 0.9, controle.limite(), 1e-9);
+    }
+
+    @Test
+    @DisplayName("Deve executar sem limite quando a admissão está desligada")
+    void deveExecutarSemLimiteQuandoDesligada() {
+        propriedades.getAdmissao().setHabilitado(false);
+        propriedades.getAdmissao().setLimiteInicial(1);
+        ControleAdmissao controle = new ControleAdmissao(propriedades, registro);
+
+        String resultado = controle.executar(Prioridade.LEITURA,
+                () -> controle.executar(Prioridade.LEITURA, () -> "ok"));
+
+        assertEquals("ok", resultado);
+    }
+
+    private static void aguardarFila(ControleAdmissao controle, Prioridade prioridade, int quantidade) throws InterruptedException {
+        long limite = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (controle.aguardando(prioridade) < quantidade) {
+            assertTrue(System.nanoTime() < limite, "fila não atingiu " + quantidade);
+            Thread.sleep(1);
+        }
+    }
+}
@@ -0,0 +1,281 @@
+package com.santander.agencia.assinatura;
+
+import com.santander.agencia.config.AgenciaProperties;
+import com.santander.agencia.controller.AgenciaController;
+import com.santander.agencia.event.AgenciaCadastradaEvent;
+import com.santander.agencia.exception.GlobalExceptionHandler;
+import com.santander.agencia.exception.ServicoSobrecarregadoException;
+import com.santander.agencia.service.AgenciaService;
+import com.santander.agencia.service.ConsumidorAgenciaProxima;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("Testes do AssinaturasProximidade")
+class AssinaturasProximidadeTest {
+
+    @Mock
+    private AgenciaService agenciaService;
+
+    private AgenciaProperties propriedades;
+    private SimpleMeterRegistry registro;
+    private AssinaturasProximidade assinaturas;
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        propriedades = new AgenciaProperties();
+        registro = new SimpleMeterRegistry();
+        assinaturas = new AssinaturasProximidade(agenciaService, propriedades, registro);
+
+        AgenciaController controller = new AgenciaController();
+        ReflectionTestUtils.setField(controller, "agenciaService", agenciaService);
+        ReflectionTestUtils.setField(controller, "assinaturas", assinaturas);
+        mockMvc = MockMvcBuilders.standaloneSetup(controller)
+                .setControllerAdvice(new GlobalExceptionHandler())
+                .build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        assinaturas.encerrar();
+    }
+
+    @Test
+    @DisplayName("Deve enviar a lista inicial e depois apenas as alterações causadas por cadastros")
+    void deveEnviarListaInicialEAlteracoes() throws Exception {
+        carregarAgencias(2, "AGENCIA_1", 1.0, "AGENCIA_2", 3.0);
+
+        MockHttpServletResponse resposta = assinar(0.0, 0.0, 2);
+        aguardarConteudo(resposta,
+            "[{\"agencia\":\"AGENCIA_1\",\"distancia\":\"distancia = 1.00\"},"
+            + "{\"agencia\":\"AGENCIA_2\",\"distancia\":\"distancia = 3.00\"}]");
+
+        assinaturas.aoCadastrarAgencia(new AgenciaCadastradaEvent(3L, "AGENCIA_3", 2.0, 0.0));
+        aguardarConteudo(resposta,
+            "{\"entrou\":{\"agencia\":\"AGENCIA_3\",\"distancia\":\"distancia = 2.00\"},\"posicao\":1,\"saiu\":\"AGENCIA_2\"}");
+
+        assinaturas.aoCadastrarAgencia(new AgenciaCadastradaEvent(4L, "AGENCIA_4", 2.5, 0.0));
+        assinaturas.aoCadastrarAgencia(new AgenciaCadastradaEvent(5L, "AGENCIA_5", 0.0, 0.5));
+        aguardarConteudo(resposta, "AGENCIA_5");
+        assertFalse(resposta.getContentAsString().contains("AGENCIA_4"));
+        assertEquals(2.0, registro.get(AssinaturasProximidade.ALTERACOES).counter().count());
+        assertEquals(1.0, registro.get(AssinaturasProximidade.METRICA).gauge().value());
+    }
+
+    @Test
+    @DisplayName("Deve aplicar os cadastros confirmados durante a consulta inicial")
+    void deveAplicarCadastrosDuranteConsultaInicial() throws Exception {
+        when(agenciaService.validarParametrosBusca(any(), any(), any(), any())).thenReturn(2);
+        when(agenciaService.transmitirAgenciasProximas(anyDouble(), anyDouble(), any(), any(), any()))
+            .thenAnswer(invocacao -> {
+                ConsumidorAgenciaProxima consumidor = invocacao.getArgument(4);
+                assinaturas.aoCadastrarAgencia(new AgenciaCadastradaEvent(7L, "AGENCIA_7", 0.5, 0.0));
+                consumidor.aceitar("AGENCIA_1", 1.0);
+                return 1;
+            });
+
+        MockHttpServletResponse resposta = assinar(0.0, 0.0, 2);
+
+        aguardarConteudo(resposta,
+            "[{\"agencia\":\"AGENCIA_7\",\"distancia\":\"distancia = 0.50\"},"
+            + "{\"agencia\":\"AGENCIA_1\",\"distancia\":\"distancia = 1.00\"}]");
+    }
+
+    @Test
+    @DisplayName("Deve avaliar apenas as assinaturas cujo alcance pode conter o cadastro")
+    void deveAvaliarApenasAssinaturasAlcancadas() throws Exception {
+        when(agenciaService.validarParametrosBusca(any(), any(), any(), any())).thenReturn(1);
+        when(agenciaService.transmitirAgenciasProximas(anyDouble(), anyDouble(), any(), any(), any()))
+            .thenAnswer(invocacao -> {
+                ConsumidorAgenciaProxima consumidor = invocacao.getArgument(4);
+                consumidor.aceitar("AGENCIA_PERTO", 0.5);
+                return 1;
+            });
+        for (int x = -100; x <= 100; x += 10) {
+            for (int y = -50; y <= 50; y += 10) {
+                assinaturas.assinar((double) x, (double) y, 1, null);
+            }
+        }
+
+        assertEquals(21 * 11, assinaturas.total());
+        assertEquals(1, assinaturas.candidatas(10.2, 20.1).size());
+        assertTrue(assinaturas.candidatas(15.0, 25.0).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Deve manter a assinatura sem k agências no nível de todo o plano")
+    void deveManterAssinaturaIncompletaEmTodoOPlano() throws Exception {
+        when(agenciaService.validarParametrosBusca(any(), any(), any(), any())).thenReturn(5);
+        when(agenciaService.transmitirAgenciasProximas(anyDouble(), anyDouble(), any(), any(), any())).thenReturn(0);
+
+        assinaturas.assinar(0.0, 0.0, 5, null);
+
+        assertEquals(1, assinaturas.candidatas(179.0, -89.0).size());
+    }
+
+    @Test
+    @DisplayName("Deve recusar assinaturas acima do máximo")
+    void deveRecusarAssinaturasAcimaDoMaximo() throws Exception {
+        propriedades.getAssinaturas().setMaximo(1);
+        when(agenciaService.validarParametrosBusca(any(), any(), any(), any())).thenReturn(1);
+
+        assinaturas.assinar(0.0, 0.0, 1, null);
+
+        assertThrows(ServicoSobrecarregadoException.class, () -> assinaturas.assinar(1.0, 1.0, 1, null));
+        assertEquals(1, assinaturas.total());
+    }
+
+    @Test
+    @DisplayName("Deve remover a assinatura quando a consulta inicial falha")
+    void deveRemoverAssinaturaQuandoConsultaFalha() throws Exception {
+        when(agenciaService.validarParametrosBusca(any(), any(), any(), any())).thenReturn(1);
+        when(agenciaService.transmitirAgenciasProximas(anyDouble(), anyDouble(), any(), any(), any()))
+            .thenThrow(new IllegalStateException("falha"));
+
+        assertThrows(IllegalStateException.class, () -> assinaturas.assinar(0.0, 0.0, 1, null));
+        assertEquals(0, assinaturas.total());
+        assertTrue(assinaturas.candidatas(0.0, 0.0).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Deve continuar enviando às demais assinaturas com um cliente parado e encerrar o parado")
+    void deveContinuarEnviandoComClienteParado() throws Exception {
+        when(agenciaService.validarParametrosBusca(any(), any(), any(), any())).thenReturn(1);
+        propriedades.getAssinaturas().setFila(3);
+        propriedades.getAssinaturas().setThreadsEnvio(2);
+        CountDownLatch liberarParado = new CountDownLatch(1);
+        EmissorRegistrado parado = new EmissorRegistrado(liberarParado);
+        EmissorRegistrado ativo = new EmissorRegistrado(null);
+        Iterator<EmissorRegistrado> emissores = List.of(parado, ativo).iterator();
+        AssinaturasProximidade comClienteParado = new AssinaturasProximidade(agenciaService, propriedades, registro) {
+            @Override
+            SseEmitter criarEmissor(long tempoLimite) {
+                return emissores.next();
+            }
+        };
+        try {
+            comClienteParado.assinar(0.0, 0.0, 1, null);
+            comClienteParado.assinar(0.0, 0.0, 1, null);
+            assertTrue(parado.enviando.await(5, TimeUnit.SECONDS));
+
+            aguardarEventos(ativo, 1);
+            for (int i = 1; i <= 5; i++) {
+                comClienteParado.aoCadastrarAgencia(new AgenciaCadastradaEvent((long) i, "AGENCIA_" + i, 10.0 - i, 0.0));
+                aguardarEventos(ativo, i + 1);
+            }
+
+            assertEquals(1, comClienteParado.total());
+            assertEquals(1.0, registro.get(AssinaturasProximidade.DESCARTADAS).counter().count());
+            assertFalse(parado.concluido.await(50, TimeUnit.MILLISECONDS));
+
+            liberarParado.countDown();
+            assertTrue(parado.concluido.await(5, TimeUnit.SECONDS));
+            assertEquals(1, parado.eventos.size());
+            assertFalse(ativo.concluido.await(0, TimeUnit.SECONDS));
+        } finally {
+            liberarParado.countDown();
+            comClienteParado.encerrar();
+        }
+    }
+
+    private static void aguardarEventos(EmissorRegistrado emissor, int quantidade) throws Exception {
+        long limite = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (emissor.eventos.size() < quantidade) {
+            assertTrue(System.nanoTime() < limite, "eventos recebidos: " + emissor.eventos.size());
+            Thread.sleep(5);
+        }
+    }
+
+    /**
+     * Emissor que registra os eventos enviados e, com {@code liberar}, bloqueia cada envio até a
+     * liberação, como um cliente que parou de ler.
+     */
+    private static final class EmissorRegistrado extends SseEmitter {
+
+        private final CountDownLatch liberar;
+        private final CountDownLatch enviando = new CountDownLatch(1);
+        private final CountDownLatch concluido = new CountDownLatch(1);
+        private final List<SseEventBuilder> eventos = new CopyOnWriteArrayList<>();
+
+        private EmissorRegistrado(CountDownLatch liberar) {
+            this.liberar = liberar;
+        }
+
+        @Override
+        public void send(SseEventBuilder evento) throws IOException {
+            enviando.countDown();
+            if (liberar != null) {
+                try {
+                    liberar.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException(e);
+                }
+            }
+            eventos.add(evento);
+        }
+
+        @Override
+        public void complete() {
+            concluido.countDown();
+        }
+    }
+
+    private void carregarAgencias(int k, Object... nomesEDistancias) throws Exception {
+        when(agenciaService.validarParametrosBusca(any(), any(), any(), any())).thenReturn(k);
+        when(agenciaService.transmitirAgenciasProximas(anyDouble(), anyDouble(), any(), any(), any()))
+            .thenAnswer(invocacao -> {
+                ConsumidorAgenciaProxima consumidor = invocacao.getArgument(4);
+                for (int i = 0; i < nomesEDistancias.length; i += 2) {
+                    consumidor.aceitar((String) nomesEDistancias[i], (Double) nomesEDistancias[i + 1]);
+                }
+                return nomesEDistancias.length / 2;
+            });
+    }
+
+    private MockHttpServletResponse assinar(double posX, double posY, int k) throws Exception {
+        MvcResult resultado = mockMvc.perform(get("/desafio/distancia")
+                .accept(MediaType.TEXT_EVENT_STREAM)
+                .param("posX", String.valueOf(posX))
+                .param("posY", String.valueOf(posY))
+                .param("k", String.valueOf(k)))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        return resultado.getResponse();
+    }
+
+    private static void aguardarConteudo(MockHttpServletResponse resposta, String trecho) throws Exception {
+        long limite = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!resposta.getContentAsString().contains(trecho)) {
+            assertTrue(System.nanoTime() < limite, "resposta sem " + trecho + ": " + resposta.getContentAsString());
+            Thread.sleep(5);
+        }
+    }
+}
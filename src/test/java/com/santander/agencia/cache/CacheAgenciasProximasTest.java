@@ -0,0 +1,148 @@
+package com.santander.agencia.cache;
+
+import com.santander.agencia.config.AgenciaProperties;
+import com.santander.agencia.config.InvalidacaoCache;
+import com.santander.agencia.dto.DistanciaResponse;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Testes do CacheAgenciasProximas")
+class CacheAgenciasProximasTest {
+
+    private AgenciaProperties.Cache configuracao;
+    private CacheAgenciasProximas cache;
+    private AtomicInteger consultas;
+
+    @BeforeEach
+    void setUp() {
+        configuracao = new AgenciaProperties.Cache();
+        configuracao.setPrecisao(0.01);
+        cache = new CacheAgenciasProximas(configuracao);
+        consultas = new AtomicInteger();
+    }
+
+    @Test
+    @DisplayName("Deve consultar apenas uma vez por célula")
+    void deveConsultarApenasUmaVezPorCelula() {
+        obter(10.0, 10.0, 2, null, 3.0);
+        obter(10.004, 9.996, 2, null, 3.0);
+        obter(10.02, 10.0, 2, null, 3.0);
+
+        assertEquals(2, consultas.get());
+        assertEquals(2, cache.tamanho());
+    }
+
+    @Test
+    @DisplayName("Deve diferenciar limite e raio na chave")
+    void deveDiferenciarLimiteERaioNaChave() {
+        obter(0.0, 0.0, 2, null, 3.0);
+        obter(0.0, 0.0, 5, null, 3.0);
+        obter(0.0, 0.0, 2, 4.0, 3.0);
+
+        assertEquals(3, consultas.get());
+    }
+
+    @Test
+    @DisplayName("Deve invalidar apenas entradas ao alcance da nova agência")
+    void deveInvalidarApenasEntradasAoAlcanceDaNovaAgencia() {
+        obter(0.0, 0.0, 2, null, 3.0);
+        obter(100.0, 0.0, 2, null, 3.0);
+
+        cache.invalidar(2.5, 0.0);
+
+        assertEquals(1, cache.tamanho());
+        obter(100.0, 0.0, 2, null, 3.0);
+        assertEquals(2, consultas.get());
+    }
+
+    @Test
+    @DisplayName("Deve avaliar na invalidação apenas as entradas das células da nova agência")
+    void deveAvaliarNaInvalidacaoApenasEntradasDasCelulasDaNovaAgencia() {
+        obter(0.0, 0.0, 2, null, 3.0);
+        obter(100.0, 0.0, 2, null, 3.0);
+        obter(-100.0, 50.0, 2, null, 3.0);
+
+        assertEquals(1, cache.candidatas(2.5, 0.0));
+        assertEquals(0, cache.candidatas(-150.0, -80.0));
+
+        cache.invalidar(2.5, 0.0);
+
+        assertEquals(0, cache.candidatas(2.5, 0.0));
+        assertEquals(1, cache.candidatas(100.0, 0.0));
+    }
+
+    @Test
+    @DisplayName("Deve invalidar qualquer entrada com menos agências que o limite e sem raio")
+    void deveInvalidarEntradaIncompletaSemRaio() {
+        obter(0.0, 0.0, 5, null, 3.0);
+        obter(100.0, 0.0, 5, 10.0, 3.0);
+
+        cache.invalidar(-150.0, 80.0);
+
+        assertEquals(1, cache.tamanho());
+    }
+
+    @Test
+    @DisplayName("Deve esvaziar o cache na invalidação total")
+    void deveEsvaziarCacheNaInvalidacaoTotal() {
+        configuracao.setInvalidacao(InvalidacaoCache.TOTAL);
+        obter(0.0, 0.0, 2, null, 3.0);
+        obter(100.0, 0.0, 2, null, 3.0);
+
+        cache.invalidar(-150.0, 80.0);
+
+        assertEquals(0, cache.tamanho());
+    }
+
+    @Test
+    @DisplayName("Não deve guardar resposta de consulta concorrente a um cadastro")
+    void naoDeveGuardarRespostaDeConsultaConcorrenteAUmCadastro() {
+        cache.obter(0.0, 0.0, 2, null, () -> {
+            cache.invalidar(50.0, 50.0);
+            return resultado(2, 3.0);
+        });
+
+        assertEquals(0, cache.tamanho());
+    }
+
+    @Test
+    @DisplayName("Deve expor acertos e falhas como métricas")
+    void deveExporAcertosEFalhasComoMetricas() {
+        SimpleMeterRegistry registro = new SimpleMeterRegistry();
+        AgenciaProperties propriedades = new AgenciaProperties();
+        propriedades.setCache(configuracao);
+        cache = new CacheAgenciasProximas(propriedades,
+            new StaticListableBeanFactory(Map.of("registro", registro)).getBeanProvider(MeterRegistry.class));
+
+        obter(0.0, 0.0, 2, null, 3.0);
+        obter(0.0, 0.0, 2, null, 3.0);
+
+        assertEquals(1.0, registro.get("cache.gets").tag("cache", CacheAgenciasProximas.NOME).tag("result", "hit")
+                .functionCounter().count());
+        assertEquals(1.0, registro.get("cache.gets").tag("cache", CacheAgenciasProximas.NOME).tag("result", "miss")
+                .functionCounter().count());
+    }
+
+    private DistanciaResponse obter(double posX, double posY, int limite, Double raio, double maiorDistancia) {
+        return cache.obter(posX, posY, limite, raio, () -> {
+            consultas.incrementAndGet();
+            return resultado(limite == 2 ? 2 : 1, maiorDistancia);
+        });
+    }
+
+    private ResultadoProximidade resultado(int total, double maiorDistancia) {
+        return new ResultadoProximidade(
+            new DistanciaResponse(new DistanciaResponse.PosicaoUsuario(0.0, 0.0), Map.of(), total, null, null),
+            maiorDistancia
+        );
+    }
+}
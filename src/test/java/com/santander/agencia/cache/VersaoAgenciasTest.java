@@ -0,0 +1,45 @@
+package com.santander.agencia.cache;
+
+import com.santander.agencia.config.AgenciaProperties;
+import com.santander.agencia.event.AgenciaCadastradaEvent;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Testes do VersaoAgencias")
+class VersaoAgenciasTest {
+
+    private final VersaoAgencias versao = new VersaoAgencias(new AgenciaProperties());
+
+    @Test
+    @DisplayName("Deve manter o ETag enquanto nenhuma agência é cadastrada")
+    void deveManterEtagEnquantoNenhumaAgenciaEhCadastrada() {
+        String etag = versao.etag(1.0, 2.0, 10, null);
+
+        assertEquals(etag, versao.etag(1.0, 2.0, 10, null));
+        assertTrue(etag.startsWith("W/\""));
+        assertTrue(etag.endsWith("\""));
+    }
+
+    @Test
+    @DisplayName("Deve mudar o ETag a cada cadastro")
+    void deveMudarEtagACadaCadastro() {
+        String etag = versao.etag(1.0, 2.0, 10, null);
+
+        versao.aoCadastrarAgencia(new AgenciaCadastradaEvent(1L, "AGENCIA_1", 50.0, 50.0));
+
+        assertEquals(1, versao.atual());
+        assertNotEquals(etag, versao.etag(1.0, 2.0, 10, null));
+    }
+
+    @Test
+    @DisplayName("Deve diferenciar posição, limite e raio no ETag")
+    void deveDiferenciarPosicaoLimiteERaioNoEtag() {
+        String etag = versao.etag(1.0, 2.0, 10, null);
+
+        assertNotEquals(etag, versao.etag(2.0, 1.0, 10, null));
+        assertNotEquals(etag, versao.etag(1.0, 2.0, 5, null));
+        assertNotEquals(etag, versao.etag(1.0, 2.0, 10, 3.0));
+    }
+}
@@ -0,0 +1,176 @@
+package com.santander.agencia.controller;
+
+import com.santander.agencia.config.AgenciaProperties;
+import com.santander.agencia.dto.CadastroAgenciaRequest;
+import com.santander.agencia.dto.CadastroAgenciaResponse;
+import com.santander.agencia.dto.DistanciaResponse;
+import com.santander.agencia.exception.GlobalExceptionHandler;
+import com.santander.agencia.service.AgenciaService;
+import com.santander.agencia.service.AgenciaServiceAssincrono;
+import com.santander.agencia.service.ConsumidorAgenciaProxima;
+import com.santander.agencia.service.PonteBloqueante;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.MediaType;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("Testes do Controller AgenciaAssincronaController")
+class AgenciaAssincronaControllerTest {
+
+    @Mock
+    private AgenciaService agenciaService;
+
+    private PonteBloqueante ponte;
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        AgenciaProperties propriedades = new AgenciaProperties();
+        propriedades.getAssincrono().setThreads(1);
+        propriedades.getAssincrono().setFila(1);
+        ponte = new PonteBloqueante(propriedades, new SimpleMeterRegistry());
+
+        AgenciaServiceAssincrono agenciaServiceAssincrono = new AgenciaServiceAssincrono();
+        ReflectionTestUtils.setField(agenciaServiceAssincrono, "agenciaService", agenciaService);
+        ReflectionTestUtils.setField(agenciaServiceAssincrono, "ponte", ponte);
+        AgenciaAssincronaController controller = new AgenciaAssincronaController();
+        ReflectionTestUtils.setField(controller, "agenciaServiceAssincrono", agenciaServiceAssincrono);
+        ReflectionTestUtils.setField(controller, "agenciaService", agenciaService);
+
+        mockMvc = MockMvcBuilders.standaloneSetup(controller)
+                .setControllerAdvice(new GlobalExceptionHandler())
+                .build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        ponte.encerrar();
+    }
+
+    @Test
+    @DisplayName("Deve cadastrar agência de forma assíncrona")
+    void deveCadastrarAgenciaDeFormaAssincrona() throws Exception {
+        when(agenciaService.cadastrarAgencia(any(CadastroAgenciaRequest.class))).thenReturn(new CadastroAgenciaResponse(
+            1L, "AGENCIA_1", 10.0, -5.0, LocalDateTime.now(), "Agência cadastrada com sucesso!"));
+
+        MvcResult resultado = mockMvc.perform(post("/desafio/assincrono/cadastrar")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"posX\":10.0,\"posY\":-5.0}"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(resultado))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.nome").value("AGENCIA_1"));
+    }
+
+    @Test
+    @DisplayName("Deve responder 400 quando o cadastro assíncrono falha por agência próxima")
+    void deveResponder400QuandoCadastroAssincronoFalha() throws Exception {
+        when(agenciaService.cadastrarAgencia(any(CadastroAgenciaRequest.class)))
+            .thenThrow(new IllegalArgumentException("Já existe uma agência próxima a esta posição"));
+
+        MvcResult resultado = mockMvc.perform(post("/desafio/assincrono/cadastrar")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"posX\":10.0,\"posY\":-5.0}"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(resultado))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("Já existe uma agência próxima a esta posição"));
+    }
+
+    @Test
+    @DisplayName("Deve buscar agências próximas de forma assíncrona")
+    void deveBuscarAgenciasProximasDeFormaAssincrona() throws Exception {
+        when(agenciaService.buscarAgenciasProximas(0.0, 0.0, 1, null)).thenReturn(new DistanciaResponse(
+            new DistanciaResponse.PosicaoUsuario(0.0, 0.0), Map.of("AGENCIA_1", "distancia = 1.00"), 1, "AGENCIA_1", 1.0));
+
+        MvcResult resultado = mockMvc.perform(get("/desafio/assincrono/distancia")
+                .param("posX", "0.0")
+                .param("posY", "0.0")
+                .param("k", "1"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(resultado))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.agenciaMaisProxima").value("AGENCIA_1"));
+    }
+
+    @Test
+    @DisplayName("Deve transmitir agências próximas em NDJSON a partir da ponte")
+    void deveTransmitirAgenciasProximasEmNdjson() throws Exception {
+        when(agenciaService.transmitirAgenciasProximas(eq(0.0), eq(0.0), isNull(), isNull(), any()))
+            .thenAnswer(invocacao -> {
+                assertTrue(Thread.currentThread().getName().startsWith("ponte-bloqueante-"));
+                ConsumidorAgenciaProxima consumidor = invocacao.getArgument(4);
+                consumidor.aceitar("AGENCIA_1", 1.0);
+                consumidor.aceitar("AGENCIA_2", 2.5);
+                return 2;
+            });
+
+        MvcResult resultado = mockMvc.perform(get("/desafio/assincrono/distancia")
+                .param("posX", "0.0")
+                .param("posY", "0.0")
+                .accept(MediaType.APPLICATION_NDJSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        resultado.getAsyncResult(5000);
+
+        assertEquals("{\"agencia\":\"AGENCIA_1\",\"distancia\":\"distancia = 1.00\"}\n"
+                     + "{\"agencia\":\"AGENCIA_2\",\"distancia\":\"distancia = 2.50\"}\n",
+                     resultado.getResponse().getContentAsString());
+    }
+
+    @Test
+    @DisplayName("Deve recusar com 503 e Retry-After quando a fila da ponte está cheia")
+    void deveRecusarCom503QuandoFilaDaPonteEstaCheia() throws Exception {
+        CountDownLatch liberar = new CountDownLatch(1);
+        CountDownLatch ocupada = new CountDownLatch(1);
+        ponte.executar(() -> {
+            ocupada.countDown();
+            try {
+                return liberar.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        assertTrue(ocupada.await(5, TimeUnit.SECONDS));
+        ponte.executar(() -> List.of());
+
+        try {
+            mockMvc.perform(get("/desafio/assincrono/distancia")
+                    .param("posX", "0.0")
+                    .param("posY", "0.0"))
+                    .andExpect(status().isServiceUnavailable())
+                    .andExpect(header().string("Retry-After", "1"));
+        } finally {
+            liberar.countDown();
+        }
+        verify(agenciaService, never()).buscarAgenciasProximas(any(), any(), any(), any());
+    }
+}
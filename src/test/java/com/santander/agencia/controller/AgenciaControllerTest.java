@@ -1,22 +1,37 @@
 package com.santander.agencia.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.santander.agencia.admissao.ControleAdmissao;
+import com.santander.agencia.cache.VersaoAgencias;
+import com.santander.agencia.config.AgenciaProperties;
 import com.santander.agencia.dto.CadastroAgenciaRequest;
 import com.santander.agencia.dto.CadastroAgenciaResponse;
+import com.santander.agencia.dto.CadastroLoteRequest;
+import com.santander.agencia.dto.CadastroLoteResponse;
+import com.santander.agencia.dto.ConsultaLoteRequest;
+import com.santander.agencia.dto.ConsultaLoteResponse;
 import com.santander.agencia.dto.DistanciaResponse;
+import com.santander.agencia.event.AgenciaCadastradaEvent;
+import com.santander.agencia.exception.ServicoSobrecarregadoException;
 import com.santander.agencia.service.AgenciaService;
+import com.santander.agencia.service.ConsumidorAgenciaProxima;
+import com.santander.agencia.service.ConsumidorResultadoLote;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 
 import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Map;
 
 import static org.mockito.ArgumentMatchers.*;
@@ -31,18 +46,25 @@ class AgenciaControllerTest {
     @Mock
     private AgenciaService agenciaService;
 
+    @Spy
+    private ObjectMapper objectMapper = new ObjectMapper();
+
+    @Spy
+    private ControleAdmissao controleAdmissao = new ControleAdmissao(new AgenciaProperties(), new SimpleMeterRegistry());
+
+    @Spy
+    private VersaoAgencias versaoAgencias = new VersaoAgencias(new AgenciaProperties());
+
     @InjectMocks
     private AgenciaController agenciaController;
 
     private MockMvc mockMvc;
-    private ObjectMapper objectMapper;
 
     @BeforeEach
     void setUp() {
         mockMvc = MockMvcBuilders.standaloneSetup(agenciaController)
                 .setControllerAdvice(new com.santander.agencia.exception.GlobalExceptionHandler())
                 .build();
-        objectMapper = new ObjectMapper();
     }
 
     @Test
@@ -86,6 +108,47 @@ class AgenciaControllerTest {
         verify(agenciaService, never()).cadastrarAgencia(any());
     }
 
+    @Test
+    @DisplayName("Deve cadastrar agências em lote")
+    void deveCadastrarAgenciasEmLote() throws Exception {
+        CadastroLoteRequest request = new CadastroLoteRequest(List.of(
+            new CadastroAgenciaRequest(10.0, -5.0),
+            new CadastroAgenciaRequest(10.2, -5.0)
+        ));
+        CadastroLoteResponse response = new CadastroLoteResponse(2, 1, 1, List.of(
+            new CadastroLoteResponse.ItemCadastroLote(0, CadastroLoteResponse.StatusItem.CADASTRADA,
+                1L, "AGENCIA_1", 10.0, -5.0, "Agência cadastrada com sucesso!"),
+            new CadastroLoteResponse.ItemCadastroLote(1, CadastroLoteResponse.StatusItem.REJEITADA,
+                null, null, 10.2, -5.0, "Já existe uma agência do lote próxima a esta posição")
+        ));
+
+        when(agenciaService.cadastrarAgenciasEmLote(any(CadastroLoteRequest.class))).thenReturn(response);
+
+        mockMvc.perform(post("/desafio/cadastrar/lote")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.total").value(2))
+                .andExpect(jsonPath("$.cadastradas").value(1))
+                .andExpect(jsonPath("$.rejeitadas").value(1))
+                .andExpect(jsonPath("$.itens[0].status").value("CADASTRADA"))
+                .andExpect(jsonPath("$.itens[0].nome").value("AGENCIA_1"))
+                .andExpect(jsonPath("$.itens[1].status").value("REJEITADA"));
+
+        verify(agenciaService).cadastrarAgenciasEmLote(any(CadastroLoteRequest.class));
+    }
+
+    @Test
+    @DisplayName("Deve retornar erro 400 para lote vazio")
+    void deveRetornarErro400ParaLoteVazio() throws Exception {
+        mockMvc.perform(post("/desafio/cadastrar/lote")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"agencias\":[]}"))
+                .andExpect(status().isBadRequest());
+
+        verify(agenciaService, never()).cadastrarAgenciasEmLote(any());
+    }
+
     @Test
     @DisplayName("Deve buscar agências próximas com sucesso")
     void deveBuscarAgenciasProximasComSucesso() throws Exception {
@@ -101,7 +164,7 @@ class AgenciaControllerTest {
             2.2
         );
 
-        when(agenciaService.buscarAgenciasProximas(-10.0, 5.0)).thenReturn(response);
+        when(agenciaService.buscarAgenciasProximas(-10.0, 5.0, null, null)).thenReturn(response);
 
         mockMvc.perform(get("/desafio/distancia")
                 .param("posX", "-10.0")
@@ -116,13 +179,96 @@ class AgenciaControllerTest {
                 .andExpect(jsonPath("$.agencias.AGENCIA_1").value("distancia = 10.00"))
                 .andExpect(jsonPath("$.agencias.AGENCIA_3").value("distancia = 37.42"));
 
-        verify(agenciaService).buscarAgenciasProximas(-10.0, 5.0);
+        verify(agenciaService).buscarAgenciasProximas(-10.0, 5.0, null, null);
+    }
+
+    @Test
+    @DisplayName("Deve repassar k e raio para o serviço")
+    void deveRepassarKERaioParaOServico() throws Exception {
+        DistanciaResponse response = new DistanciaResponse(
+            new DistanciaResponse.PosicaoUsuario(0.0, 0.0),
+            Map.of("AGENCIA_1", "distancia = 1.50"),
+            1,
+            "AGENCIA_1",
+            1.5
+        );
+
+        when(agenciaService.buscarAgenciasProximas(0.0, 0.0, 5, 2.5)).thenReturn(response);
+
+        mockMvc.perform(get("/desafio/distancia")
+                .param("posX", "0.0")
+                .param("posY", "0.0")
+                .param("k", "5")
+                .param("raio", "2.5"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.totalAgencias").value(1));
+
+        verify(agenciaService).buscarAgenciasProximas(0.0, 0.0, 5, 2.5);
+    }
+
+    @Test
+    @DisplayName("Deve responder 304 sem buscar quando o ETag ainda é o da versão atual")
+    void deveResponder304QuandoEtagEhDaVersaoAtual() throws Exception {
+        DistanciaResponse response = new DistanciaResponse(
+            new DistanciaResponse.PosicaoUsuario(0.0, 0.0),
+            Map.of("AGENCIA_1", "distancia = 1.50"),
+            1,
+            "AGENCIA_1",
+            1.5
+        );
+        when(agenciaService.validarParametrosBusca(0.0, 0.0, 5, null)).thenReturn(5);
+        when(agenciaService.buscarAgenciasProximas(0.0, 0.0, 5, null)).thenReturn(response);
+
+        String etag = mockMvc.perform(get("/desafio/distancia")
+                .param("posX", "0.0")
+                .param("posY", "0.0")
+                .param("k", "5"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Cache-Control", "no-cache"))
+                .andReturn().getResponse().getHeader("ETag");
+
+        mockMvc.perform(get("/desafio/distancia")
+                .param("posX", "0.0")
+                .param("posY", "0.0")
+                .param("k", "5")
+                .header("If-None-Match", etag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", etag))
+                .andExpect(content().string(""));
+
+        verify(agenciaService, times(1)).buscarAgenciasProximas(0.0, 0.0, 5, null);
+        verify(controleAdmissao, times(1)).executar(eq(ControleAdmissao.Prioridade.LEITURA), any());
+    }
+
+    @Test
+    @DisplayName("Deve buscar de novo quando uma agência foi cadastrada depois do ETag")
+    void deveBuscarDeNovoQuandoAgenciaFoiCadastradaDepoisDoEtag() throws Exception {
+        DistanciaResponse response = new DistanciaResponse(
+            new DistanciaResponse.PosicaoUsuario(0.0, 0.0),
+            Map.of(),
+            0,
+            null,
+            null
+        );
+        when(agenciaService.buscarAgenciasProximas(0.0, 0.0, null, null)).thenReturn(response);
+        String etag = versaoAgencias.etag(0.0, 0.0, 0, null);
+
+        versaoAgencias.aoCadastrarAgencia(new AgenciaCadastradaEvent(1L, "AGENCIA_1", 1.0, 1.0));
+
+        mockMvc.perform(get("/desafio/distancia")
+                .param("posX", "0.0")
+                .param("posY", "0.0")
+                .header("If-None-Match", etag))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", versaoAgencias.etag(0.0, 0.0, 0, null)));
+
+        verify(agenciaService).buscarAgenciasProximas(0.0, 0.0, null, null);
     }
 
     @Test
     @DisplayName("Deve retornar erro 500 para exceção interna")
     void deveRetornarErro500ParaExcecaoInterna() throws Exception {
-        when(agenciaService.buscarAgenciasProximas(anyDouble(), anyDouble()))
+        when(agenciaService.buscarAgenciasProximas(anyDouble(), anyDouble(), isNull(), isNull()))
             .thenThrow(new RuntimeException("Erro interno"));
 
         mockMvc.perform(get("/desafio/distancia")
@@ -130,7 +276,7 @@ class AgenciaControllerTest {
                 .param("posY", "0.0"))
                 .andExpect(status().isInternalServerError());
 
-        verify(agenciaService).buscarAgenciasProximas(0.0, 0.0);
+        verify(agenciaService).buscarAgenciasProximas(0.0, 0.0, null, null);
     }
 
     @Test
@@ -148,4 +294,138 @@ class AgenciaControllerTest {
 
         verify(agenciaService).cadastrarAgencia(any(CadastroAgenciaRequest.class));
     }
+
+    @Test
+    @DisplayName("Deve recusar a busca com 503 e Retry-After quando o limite de admissão é atingido")
+    void deveRecusarBuscaQuandoLimiteDeAdmissaoEhAtingido() throws Exception {
+        doThrow(new ServicoSobrecarregadoException("Limite de requisições simultâneas atingido", 2))
+            .when(controleAdmissao).executar(eq(ControleAdmissao.Prioridade.LEITURA), any());
+
+        mockMvc.perform(get("/desafio/distancia")
+                .param("posX", "0.0")
+                .param("posY", "0.0"))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string("Retry-After", "2"))
+                .andExpect(jsonPath("$.error").value("Serviço sobrecarregado"));
+
+        verify(agenciaService, never()).buscarAgenciasProximas(any(), any(), any(), any());
+    }
+
+    @Test
+    @DisplayName("Deve transmitir agências próximas em NDJSON")
+    void deveTransmitirAgenciasProximasEmNdjson() throws Exception {
+        when(agenciaService.transmitirAgenciasProximas(eq(0.0), eq(0.0), eq(2), isNull(), any()))
+            .thenAnswer(invocacao -> {
+                ConsumidorAgenciaProxima consumidor = invocacao.getArgument(4);
+                consumidor.aceitar("AGENCIA_1", 1.0);
+                consumidor.aceitar("AGENCIA_2", 2.5);
+                return 2;
+            });
+
+        MvcResult resultado = mockMvc.perform(get("/desafio/distancia")
+                .param("posX", "0.0")
+                .param("posY", "0.0")
+                .param("k", "2")
+                .accept(MediaType.APPLICATION_NDJSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(resultado))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andExpect(content().string(
+                    "{\"agencia\":\"AGENCIA_1\",\"distancia\":\"distancia = 1.00\"}\n"
+                    + "{\"agencia\":\"AGENCIA_2\",\"distancia\":\"distancia = 2.50\"}\n"));
+
+        verify(agenciaService).validarParametrosBusca(0.0, 0.0, 2, null);
+    }
+
+    @Test
+    @DisplayName("Deve retornar erro 400 antes de transmitir quando parâmetros são inválidos")
+    void deveRetornarErro400AntesDeTransmitirQuandoParametrosSaoInvalidos() throws Exception {
+        when(agenciaService.validarParametrosBusca(0.0, 0.0, 0, null))
+            .thenThrow(new IllegalArgumentException("Parâmetro k deve estar entre 1 e 1000"));
+
+        mockMvc.perform(get("/desafio/distancia")
+                .param("posX", "0.0")
+                .param("posY", "0.0")
+                .param("k", "0")
+                .accept(MediaType.APPLICATION_NDJSON))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("Parâmetro k deve estar entre 1 e 1000"));
+
+        verify(agenciaService, never()).transmitirAgenciasProximas(any(), any(), any(), any(), any());
+    }
+
+    @Test
+    @DisplayName("Deve buscar agências próximas de um lote de posições")
+    void deveBuscarAgenciasProximasDeUmLoteDePosicoes() throws Exception {
+        ConsultaLoteRequest request = new ConsultaLoteRequest(List.of(
+            new DistanciaResponse.PosicaoUsuario(0.0, 0.0),
+            new DistanciaResponse.PosicaoUsuario(10.0, 10.0)
+        ), 1, null);
+        when(agenciaService.buscarAgenciasProximasEmLote(request)).thenReturn(new ConsultaLoteResponse(2, List.of(
+            new DistanciaResponse(new DistanciaResponse.PosicaoUsuario(0.0, 0.0),
+                Map.of("AGENCIA_1", "distancia = 1.00"), 1, "AGENCIA_1", 1.0),
+            new DistanciaResponse(new DistanciaResponse.PosicaoUsuario(10.0, 10.0),
+                Map.of("AGENCIA_2", "distancia = 0.50"), 1, "AGENCIA_2", 0.5)
+        )));
+
+        mockMvc.perform(post("/desafio/distancia/lote")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.total").value(2))
+                .andExpect(jsonPath("$.resultados[0].agenciaMaisProxima").value("AGENCIA_1"))
+                .andExpect(jsonPath("$.resultados[1].posicaoUsuario.posX").value(10.0))
+                .andExpect(jsonPath("$.resultados[1].agencias.AGENCIA_2").value("distancia = 0.50"));
+
+        verify(agenciaService).buscarAgenciasProximasEmLote(request);
+    }
+
+    @Test
+    @DisplayName("Deve transmitir resultados do lote em NDJSON")
+    void deveTransmitirResultadosDoLoteEmNdjson() throws Exception {
+        ConsultaLoteRequest request = new ConsultaLoteRequest(List.of(
+            new DistanciaResponse.PosicaoUsuario(0.0, 0.0),
+            new DistanciaResponse.PosicaoUsuario(10.0, 10.0)
+        ), null, null);
+        when(agenciaService.transmitirAgenciasProximasEmLote(eq(request), any())).thenAnswer(invocacao -> {
+            ConsumidorResultadoLote consumidor = invocacao.getArgument(1);
+            consumidor.aceitar(new DistanciaResponse(new DistanciaResponse.PosicaoUsuario(0.0, 0.0),
+                Map.of("AGENCIA_1", "distancia = 1.00"), 1, "AGENCIA_1", 1.0));
+            consumidor.aceitar(new DistanciaResponse(new DistanciaResponse.PosicaoUsuario(10.0, 10.0),
+                Map.of(), 0, null, null));
+            return 2;
+        });
+
+        MvcResult resultado = mockMvc.perform(post("/desafio/distancia/lote")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(request))
+                .accept(MediaType.APPLICATION_NDJSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(resultado))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andExpect(content().string(
+                    "{\"posicaoUsuario\":{\"posX\":0.0,\"posY\":0.0},\"agencias\":{\"AGENCIA_1\":\"distancia = 1.00\"},"
+                    + "\"totalAgencias\":1,\"agenciaMaisProxima\":\"AGENCIA_1\",\"menorDistancia\":1.0}\n"
+                    + "{\"posicaoUsuario\":{\"posX\":10.0,\"posY\":10.0},\"agencias\":{},"
+                    + "\"totalAgencias\":0,\"agenciaMaisProxima\":null,\"menorDistancia\":null}\n"));
+
+        verify(agenciaService).validarConsultaLote(request);
+    }
+
+    @Test
+    @DisplayName("Deve retornar erro 400 quando o lote de posições está vazio")
+    void deveRetornarErro400QuandoLoteDePosicoesEstaVazio() throws Exception {
+        mockMvc.perform(post("/desafio/distancia/lote")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"posicoes\":[]}"))
+                .andExpect(status().isBadRequest());
+
+        verifyNoInteractions(agenciaService);
+    }
 }
@@ -0,0 +1,53 @@
+package com.santander.agencia.dto;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Testes do FormatadorDistancia")
+class FormatadorDistanciaTest {
+
+    @Test
+    @DisplayName("Deve formatar como String.format com ponto decimal")
+    void deveFormatarComoStringFormat() {
+        Random aleatorio = new Random(42);
+        for (int i = 0; i < 200_000; i++) {
+            double distancia = switch (i % 4) {
+                case 0 -> aleatorio.nextDouble() * 10;
+                case 1 -> aleatorio.nextDouble() * 1_000;
+                case 2 -> aleatorio.nextDouble() * 2e9;
+                default -> Math.round(aleatorio.nextDouble() * 100_000) / 1000.0;
+            };
+            assertEquals(esperado(distancia), FormatadorDistancia.formatar(distancia), "distancia " + distancia);
+        }
+    }
+
+    @Test
+    @DisplayName("Deve arredondar empates e limites como String.format")
+    void deveArredondarEmpatesComoStringFormat() {
+        double[] valores = {0.0, 0.005, 0.015, 0.125, 1.005, 1.0, 2.5, 2.675, 9.995, 99.995,
+            999_999_999.994, 999_999_999.995, 1e9, 1e12, -1.0, Double.MIN_VALUE, Double.MAX_VALUE};
+        for (double distancia : valores) {
+            assertEquals(esperado(distancia), FormatadorDistancia.formatar(distancia), "distancia " + distancia);
+        }
+    }
+
+    @Test
+    @DisplayName("Deve escrever no buffer sem recorrer ao String.format")
+    void deveEscreverNoBuffer() {
+        char[] buffer = new char[FormatadorDistancia.TAMANHO_BUFFER];
+
+        int tamanho = FormatadorDistancia.escrever(12.3456, buffer);
+
+        assertEquals("distancia = 12.35", new String(buffer, 0, tamanho));
+        assertEquals(-1, FormatadorDistancia.escrever(0.125, buffer));
+        assertEquals(-1, FormatadorDistancia.escrever(Double.NaN, buffer));
+    }
+
+    private static String esperado(double distancia) {
+        return String.format("distancia = %.2f", distancia).replace(",", ".");
+    }
+}
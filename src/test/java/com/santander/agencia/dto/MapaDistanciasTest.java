@@ -0,0 +1,51 @@
+package com.santander.agencia.dto;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Testes do MapaDistancias")
+class MapaDistanciasTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final String[] nomes = {"AGENCIA_3", "AGENCIA_1", "AGENCIA_2"};
+    private final double[] distancias = {1.0, 2.675, 123.4567};
+
+    @Test
+    @DisplayName("Deve serializar com os mesmos bytes de um LinkedHashMap")
+    void deveSerializarComOsMesmosBytesDeUmLinkedHashMap() throws Exception {
+        DistanciaResponse.PosicaoUsuario posicao = new DistanciaResponse.PosicaoUsuario(0.0, 0.0);
+        DistanciaResponse comMapa = new DistanciaResponse(posicao,
+            new MapaDistancias(nomes, distancias, 3), 3, "AGENCIA_3", 1.0);
+        DistanciaResponse comLinkedHashMap = new DistanciaResponse(posicao,
+            comoLinkedHashMap(), 3, "AGENCIA_3", 1.0);
+
+        assertArrayEquals(objectMapper.writeValueAsBytes(comLinkedHashMap), objectMapper.writeValueAsBytes(comMapa));
+    }
+
+    @Test
+    @DisplayName("Deve se comportar como um mapa ordenado de distâncias formatadas")
+    void deveSeComportarComoMapaOrdenado() {
+        MapaDistancias mapa = new MapaDistancias(nomes, distancias, 2);
+
+        assertEquals(2, mapa.size());
+        assertEquals("distancia = 2.68", mapa.get("AGENCIA_1"));
+        assertFalse(mapa.containsKey("AGENCIA_2"));
+        assertEquals(Map.of("AGENCIA_3", "distancia = 1.00", "AGENCIA_1", "distancia = 2.68"), mapa);
+        assertEquals("AGENCIA_3", mapa.keySet().iterator().next());
+    }
+
+    private Map<String, String> comoLinkedHashMap() {
+        Map<String, String> agencias = new LinkedHashMap<>();
+        for (int i = 0; i < nomes.length; i++) {
+            agencias.put(nomes[i], String.format("distancia = %.2f", distancias[i]).replace(",", "."));
+        }
+        return agencias;
+    }
+}
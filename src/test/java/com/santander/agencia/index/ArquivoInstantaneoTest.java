@@ -0,0 +1,82 @@
+package com.santander.agencia.index;
+
+import com.santander.agencia.model.Agencia;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Testes do ArquivoInstantaneo")
+class ArquivoInstantaneoTest {
+
+    @TempDir
+    Path diretorio;
+
+    @ParameterizedTest
+    @EnumSource(Geometria.class)
+    @DisplayName("Deve ler o mesmo índice que foi gravado, incluindo as agências pendentes")
+    void deveLerOMesmoIndiceGravado(Geometria geometria) throws Exception {
+        Random random = new Random(42);
+        List<Agencia> agencias = new ArrayList<>();
+        for (long id = 1; id <= 3000; id++) {
+            agencias.add(Agencia.builder().id(id).posX(random.nextDouble() * 360 - 180).posY(random.nextDouble() * 180 - 90).build());
+        }
+        IndiceEspacialAgencias indice = new IndiceEspacialAgencias(geometria);
+        indice.carregar(agencias);
+        for (long id = 3001; id <= 3100; id++) {
+            indice.adicionar(id, random.nextDouble() * 360 - 180, random.nextDouble() * 180 - 90);
+        }
+        Path arquivo = diretorio.resolve("indice.bin");
+
+        ArquivoInstantaneo.gravar(indice.instantaneo(), arquivo);
+        InstantaneoAgencias lido = ArquivoInstantaneo.ler(arquivo, geometria);
+
+        assertEquals(3100, lido.tamanho());
+        assertEquals(geometria, lido.geometria());
+        assertEquals(Files.size(arquivo), 24 + 24L * 3100);
+        for (int consulta = 0; consulta < 100; consulta++) {
+            double posX = random.nextDouble() * 360 - 180;
+            double posY = random.nextDouble() * 180 - 90;
+            assertEquals(indice.buscarMaisProximas(posX, posY, 20), lido.buscarMaisProximas(posX, posY, 20, Double.POSITIVE_INFINITY));
+        }
+
+        IndiceEspacialAgencias recarregado = new IndiceEspacialAgencias(geometria);
+        recarregado.carregar(lido);
+        Agencia primeira = agencias.get(0);
+        assertTrue(recarregado.existeAgenciaProxima(primeira.getPosX(), primeira.getPosY(), 0.0));
+    }
+
+    @Test
+    @DisplayName("Deve recusar arquivo incompleto")
+    void deveRecusarArquivoIncompleto() throws Exception {
+        Path arquivo = diretorio.resolve("indice.bin");
+        ArquivoInstantaneo.gravar(InstantaneoAgencias.de(List.of(
+            Agencia.builder().id(1L).posX(0.0).posY(0.0).build())), arquivo);
+        byte[] conteudo = Files.readAllBytes(arquivo);
+        Files.write(arquivo, Arrays.copyOf(conteudo, conteudo.length - 8));
+
+        assertThrows(IOException.class, () -> ArquivoInstantaneo.ler(arquivo, Geometria.PLANA));
+    }
+
+    @Test
+    @DisplayName("Deve recusar instantâneo gravado com outra geometria")
+    void deveRecusarInstantaneoDeOutraGeometria() throws Exception {
+        Path arquivo = diretorio.resolve("indice.bin");
+        ArquivoInstantaneo.gravar(InstantaneoAgencias.de(Geometria.ESFERICA, List.of(
+            Agencia.builder().id(1L).posX(0.0).posY(0.0).build())), arquivo);
+
+        assertThrows(IOException.class, () -> ArquivoInstantaneo.ler(arquivo, Geometria.PLANA));
+        assertEquals(1, ArquivoInstantaneo.ler(arquivo, Geometria.ESFERICA).tamanho());
+    }
+}
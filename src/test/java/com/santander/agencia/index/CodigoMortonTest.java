@@ -0,0 +1,94 @@
+package com.santander.agencia.index;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Testes do CodigoMorton")
+class CodigoMortonTest {
+
+    @Test
+    @DisplayName("Deve intercalar os bits da coluna e da linha")
+    void deveIntercalarBitsDaColunaEDaLinha() {
+        assertEquals(0b01, CodigoMorton.intercalar(1, 0));
+        assertEquals(0b10, CodigoMorton.intercalar(0, 1));
+        assertEquals(0b111001, CodigoMorton.intercalar(0b101, 0b110));
+        assertEquals(0L, CodigoMorton.codigo(-180.0, -90.0));
+        assertEquals((1L << 2 * CodigoMorton.BITS_POR_EIXO) - 1, CodigoMorton.codigo(180.0, 90.0));
+        assertEquals(CodigoMorton.codigo(180.0, 90.0), CodigoMorton.codigo(500.0, 500.0));
+    }
+
+    @Test
+    @DisplayName("Deve cobrir com as faixas todas as posições do quadrado ao redor da posição")
+    void deveCobrirComAsFaixasTodoOQuadrado() {
+        Random random = new Random(42);
+        for (int consulta = 0; consulta < 1000; consulta++) {
+            double posX = random.nextDouble() * 360 - 180;
+            double posY = random.nextDouble() * 180 - 90;
+            double raio = Math.pow(10, random.nextDouble() * 5 - 4);
+            long[] faixas = CodigoMorton.faixas(posX, posY, raio);
+
+            assertEquals(2 * CodigoMorton.FAIXAS, faixas.length);
+            for (int ponto = 0; ponto < 20; ponto++) {
+                double x = posX + (random.nextDouble() * 2 - 1) * raio;
+                double y = posY + (random.nextDouble() * 2 - 1) * raio;
+                assertTrue(contem(faixas, CodigoMorton.codigo(x, y)));
+            }
+            assertTrue(contem(faixas, CodigoMorton.codigo(posX + raio, posY + raio)));
+            assertTrue(contem(faixas, CodigoMorton.codigo(posX - raio, posY - raio)));
+        }
+    }
+
+    @Test
+    @DisplayName("Deve restringir as faixas à vizinhança da posição")
+    void deveRestringirAsFaixasAVizinhanca() {
+        long[] faixas = CodigoMorton.faixas(10.0, 10.0, 1.0);
+
+        assertFalse(contem(faixas, CodigoMorton.codigo(20.0, 10.0)));
+        assertFalse(contem(faixas, CodigoMorton.codigo(-10.0, -10.0)));
+        assertArrayEquals(new long[] {0, (1L << 2 * CodigoMorton.BITS_POR_EIXO) - 1, -1, -1, -1, -1, -1, -1},
+                          CodigoMorton.faixas(0.0, 0.0, 100.0));
+    }
+
+    @Test
+    @DisplayName("Deve encontrar cada posição do quadrado em uma das células das chaves")
+    void deveEncontrarPosicoesDoQuadradoNasCelulas() {
+        Random random = new Random(11);
+        for (int i = 0; i < 500; i++) {
+            double posX = random.nextDouble() * 360 - 180;
+            double posY = random.nextDouble() * 180 - 90;
+            double raio = Math.pow(10, random.nextDouble() * 6 - 4);
+            long[] chaves = CodigoMorton.chavesCelulas(posX, posY, raio);
+            int nivel = CodigoMorton.nivel(raio);
+
+            assertTrue(chaves.length >= 1 && chaves.length <= 4);
+            for (int ponto = 0; ponto < 20; ponto++) {
+                double x = posX + (random.nextDouble() * 2 - 1) * raio;
+                double y = posY + (random.nextDouble() * 2 - 1) * raio;
+                assertTrue(Arrays.binarySearch(chaves, CodigoMorton.chaveCelula(x, y, nivel)) >= 0);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Deve distinguir as chaves de níveis diferentes e usar uma só célula para raio infinito")
+    void deveDistinguirChavesPorNivel() {
+        assertNotEquals(CodigoMorton.chaveCelula(-180.0, -90.0, 0), CodigoMorton.chaveCelula(-180.0, -90.0, 1));
+        assertArrayEquals(new long[] {CodigoMorton.chaveCelula(10.0, 10.0, 0)},
+                          CodigoMorton.chavesCelulas(10.0, 10.0, Double.POSITIVE_INFINITY));
+        assertEquals(CodigoMorton.chaveCelula(10.0, 10.0, 0), CodigoMorton.chaveCelula(-170.0, 80.0, 0));
+    }
+
+    private static boolean contem(long[] faixas, long codigo) {
+        for (int i = 0; i < faixas.length; i += 2) {
+            if (codigo >= faixas[i] && codigo <= faixas[i + 1]) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,75 @@
+package com.santander.agencia.index;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Testes da Geometria")
+class GeometriaTest {
+
+    @Test
+    @DisplayName("Deve calcular a distância geodésica entre cidades conhecidas")
+    void deveCalcularDistanciaGeodesicaEntreCidades() {
+        double saoPauloRio = Geometria.ESFERICA.distancia(-46.6333, -23.5505, -43.1729, -22.9068);
+
+        assertEquals(360.75, saoPauloRio, 0.01);
+        assertEquals(0.0, Geometria.ESFERICA.distancia(10.0, 20.0, 10.0, 20.0));
+        assertEquals(Math.PI * Geometria.RAIO_TERRA_KM, Geometria.ESFERICA.distancia(0.0, 0.0, 180.0, 0.0), 1e-6);
+    }
+
+    @Test
+    @DisplayName("Deve tratar o antimeridiano e os polos na distância geodésica")
+    void deveTratarAntimeridianoEPolos() {
+        assertEquals(22.239, Geometria.ESFERICA.distancia(179.9, 0.0, -179.9, 0.0), 0.001);
+        assertEquals(0.0, Geometria.ESFERICA.distancia(0.0, 90.0, 135.0, 90.0), 1e-9);
+        assertEquals(22.239, Geometria.ESFERICA.distancia(-90.0, 89.9, 90.0, 89.9), 0.001);
+    }
+
+    @Test
+    @DisplayName("Deve obter da projeção a mesma distância do cálculo direto")
+    void deveObterDaProjecaoAMesmaDistancia() {
+        for (Geometria geometria : Geometria.values()) {
+            double[] a = new double[geometria.dimensoes()];
+            double[] b = new double[geometria.dimensoes()];
+            geometria.projetar(-46.6333, -23.5505, a);
+            geometria.projetar(-43.1729, -22.9068, b);
+            double distancia2 = 0.0;
+            for (int eixo = 0; eixo < a.length; eixo++) {
+                distancia2 += (a[eixo] - b[eixo]) * (a[eixo] - b[eixo]);
+            }
+
+            double distancia = geometria.distancia(-46.6333, -23.5505, -43.1729, -22.9068);
+            assertEquals(distancia, geometria.distanciaDaProjecao(distancia2), 1e-9);
+            assertEquals(distancia2, geometria.limiteProjecao2(distancia), 1e-12);
+        }
+    }
+
+    @Test
+    @DisplayName("Deve aceitar qualquer distância quando o raio cobre a esfera inteira")
+    void deveAceitarQualquerDistanciaQuandoORaioCobreAEsfera() {
+        assertEquals(Double.POSITIVE_INFINITY, Geometria.ESFERICA.limiteProjecao2(Double.MAX_VALUE));
+        assertEquals(Double.POSITIVE_INFINITY, Geometria.PLANA.limiteProjecao2(Double.POSITIVE_INFINITY));
+    }
+
+    @Test
+    @DisplayName("Deve converter o raio no quadrado de coordenadas que contém o círculo")
+    void deveConverterRaioEmGraus() {
+        assertEquals(2.5, Geometria.PLANA.raioEmGraus(10.0, 10.0, 2.5));
+
+        double latitude = Math.toRadians(60.0);
+        double angulo = 500.0 / Geometria.RAIO_TERRA_KM;
+        double graus = Geometria.ESFERICA.raioEmGraus(10.0, 60.0, 500.0);
+        for (int rumo = 0; rumo < 360; rumo += 5) {
+            double direcao = Math.toRadians(rumo);
+            double latitudeDestino = Math.asin(Math.sin(latitude) * Math.cos(angulo)
+                    + Math.cos(latitude) * Math.sin(angulo) * Math.cos(direcao));
+            double deltaLongitude = Math.atan2(Math.sin(direcao) * Math.sin(angulo) * Math.cos(latitude),
+                    Math.cos(angulo) - Math.sin(latitude) * Math.sin(latitudeDestino));
+            assertTrue(Math.abs(Math.toDegrees(deltaLongitude)) <= graus + 1e-9);
+            assertTrue(Math.abs(Math.toDegrees(latitudeDestino) - 60.0) <= graus + 1e-9);
+        }
+        assertEquals(Double.POSITIVE_INFINITY, Geometria.ESFERICA.raioEmGraus(0.0, 89.0, 200.0));
+        assertEquals(Double.POSITIVE_INFINITY, Geometria.ESFERICA.raioEmGraus(179.9, 0.0, 100.0));
+    }
+}
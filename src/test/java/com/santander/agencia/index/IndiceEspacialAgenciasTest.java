@@ -0,0 +1,249 @@
+package com.santander.agencia.index;
+
+import com.santander.agencia.model.Agencia;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Testes do índice espacial IndiceEspacialAgencias")
+class IndiceEspacialAgenciasTest {
+
+    private IndiceEspacialAgencias indice;
+    private List<Agencia> agencias;
+
+    @BeforeEach
+    void setUp() {
+        Random random = new Random(42);
+        agencias = new ArrayList<>();
+        for (long id = 1; id <= 5000; id++) {
+            agencias.add(Agencia.builder()
+                    .id(id)
+                    .nome("AGENCIA_" + id)
+                    .posX(random.nextDouble() * 360 - 180)
+                    .posY(random.nextDouble() * 180 - 90)
+                    .build());
+        }
+        indice = new IndiceEspacialAgencias();
+        indice.carregar(agencias);
+    }
+
+    @Test
+    @DisplayName("Deve retornar as mesmas agências da busca exaustiva")
+    void deveRetornarAsMesmasAgenciasDaBuscaExaustiva() {
+        Random random = new Random(7);
+        for (int consulta = 0; consulta < 200; consulta++) {
+            double posX = random.nextDouble() * 360 - 180;
+            double posY = random.nextDouble() * 180 - 90;
+
+            List<AgenciaProxima> resultado = indice.buscarMaisProximas(posX, posY, 25);
+
+            assertEquals(buscaExaustiva(posX, posY, 25), resultado.stream().map(AgenciaProxima::id).toList());
+        }
+    }
+
+    @Test
+    @DisplayName("Deve retornar agências em ordem crescente de distância")
+    void deveRetornarAgenciasEmOrdemCrescenteDeDistancia() {
+        List<AgenciaProxima> resultado = indice.buscarMaisProximas(0.0, 0.0, 1000);
+
+        assertEquals(1000, resultado.size());
+        for (int i = 1; i < resultado.size(); i++) {
+            assertTrue(resultado.get(i - 1).distancia() <= resultado.get(i).distancia());
+        }
+    }
+
+    @Test
+    @DisplayName("Deve retornar apenas agências dentro do raio")
+    void deveRetornarApenasAgenciasDentroDoRaio() {
+        List<AgenciaProxima> resultado = indice.buscarMaisProximas(10.0, 10.0, 1000, 8.0);
+
+        List<Long> esperado = agencias.stream()
+                .filter(a -> distancia2(a, 10.0, 10.0) <= 64.0)
+                .sorted(Comparator.comparingDouble((Agencia a) -> distancia2(a, 10.0, 10.0)))
+                .map(Agencia::getId)
+                .toList();
+        assertFalse(esperado.isEmpty());
+        assertEquals(esperado, resultado.stream().map(AgenciaProxima::id).toList());
+    }
+
+    @Test
+    @DisplayName("Deve considerar agências adicionadas após a carga")
+    void deveConsiderarAgenciasAdicionadasAposACarga() {
+        Random random = new Random(11);
+        for (long id = 5001; id <= 8000; id++) {
+            double posX = random.nextDouble();
+            double posY = random.nextDouble();
+            Agencia agencia = Agencia.builder().id(id).nome("AGENCIA_" + id).posX(posX).posY(posY).build();
+            agencias.add(agencia);
+            indice.adicionar(id, posX, posY);
+        }
+
+        assertEquals(8000, indice.tamanho());
+        List<AgenciaProxima> resultado = indice.buscarMaisProximas(0.3, 0.55, 50);
+
+        assertEquals(buscaExaustiva(0.3, 0.55, 50), resultado.stream().map(AgenciaProxima::id).toList());
+    }
+
+    @Test
+    @DisplayName("Deve manter o instantâneo inalterado após novos cadastros")
+    void deveManterInstantaneoInalteradoAposNovosCadastros() {
+        indice.adicionar(5001L, 0.0, 0.0);
+
+        InstantaneoAgencias instantaneo = indice.instantaneo();
+        indice.adicionar(5002L, 0.0, 0.0);
+
+        assertEquals(5001, instantaneo.tamanho());
+        assertEquals(5002, indice.tamanho());
+        agencias.add(Agencia.builder().id(5001L).nome("AGENCIA_5001").posX(0.0).posY(0.0).build());
+        assertEquals(buscaExaustiva(0.0, 0.0, 25), instantaneo.buscarMaisProximas(0.0, 0.0, 25, Double.POSITIVE_INFINITY)
+                .stream().map(AgenciaProxima::id).toList());
+    }
+
+    @Test
+    @DisplayName("Deve manter instantâneos anteriores válidos após a reconstrução da árvore")
+    void deveManterInstantaneosAnterioresValidosAposReconstrucao() {
+        indice.adicionar(5001L, 0.0, 0.0);
+        InstantaneoAgencias instantaneo = indice.instantaneo();
+        List<AgenciaProxima> esperado = instantaneo.buscarMaisProximas(0.0, 0.0, 25, Double.POSITIVE_INFINITY);
+
+        for (long id = 5002; id <= 7500; id++) {
+            indice.adicionar(id, 0.001 * (id - 5000), 0.0);
+        }
+
+        assertEquals(5001, instantaneo.tamanho());
+        assertEquals(esperado, instantaneo.buscarMaisProximas(0.0, 0.0, 25, Double.POSITIVE_INFINITY));
+        assertEquals(7500, indice.tamanho());
+        assertEquals("AGENCIA_5001", indice.buscarMaisProximas(0.0, 0.0, 1).get(0).nome());
+    }
+
+    @Test
+    @DisplayName("Deve detectar agência dentro da distância mínima")
+    void deveDetectarAgenciaDentroDaDistanciaMinima() {
+        indice.carregar(List.of(Agencia.builder().id(1L).nome("AGENCIA_1").posX(0.0).posY(0.0).build()));
+        indice.adicionar(2L, 3.0, 4.0);
+
+        assertTrue(indice.existeAgenciaProxima(0.5, 0.0, 1.0));
+        assertTrue(indice.existeAgenciaProxima(1.0, 0.0, 1.0));
+        assertTrue(indice.existeAgenciaProxima(-0.6, -0.6, 1.0));
+        assertTrue(indice.existeAgenciaProxima(3.5, 4.0, 1.0));
+        assertFalse(indice.existeAgenciaProxima(1.1, 0.0, 1.0));
+        assertFalse(indice.existeAgenciaProxima(5.0, 4.0, 1.0));
+    }
+
+    @Test
+    @DisplayName("Deve concordar com a verificação exaustiva de distância mínima")
+    void deveConcordarComVerificacaoExaustivaDeDistanciaMinima() {
+        Random random = new Random(3);
+        for (int consulta = 0; consulta < 2000; consulta++) {
+            double posX = random.nextDouble() * 360 - 180;
+            double posY = random.nextDouble() * 180 - 90;
+            boolean esperado = agencias.stream().anyMatch(a -> distancia2(a, posX, posY) <= 1.0);
+
+            assertEquals(esperado, indice.existeAgenciaProxima(posX, posY, 1.0));
+        }
+    }
+
+    @Test
+    @DisplayName("Deve retornar lista vazia quando não há agências")
+    void deveRetornarListaVaziaQuandoNaoHaAgencias() {
+        indice.carregar(List.of());
+
+        assertTrue(indice.buscarMaisProximas(0.0, 0.0, 10).isEmpty());
+        assertEquals(0, indice.tamanho());
+    }
+
+    @Test
+    @DisplayName("Deve retornar no modo geodésico as mesmas agências da busca exaustiva por haversine")
+    void deveRetornarNoModoGeodesicoAsMesmasAgenciasDaBuscaExaustiva() {
+        IndiceEspacialAgencias geodesico = new IndiceEspacialAgencias(Geometria.ESFERICA);
+        geodesico.carregar(agencias.subList(0, 4000));
+        for (Agencia agencia : agencias.subList(4000, agencias.size())) {
+            geodesico.adicionar(agencia.getId(), agencia.getPosX(), agencia.getPosY());
+        }
+
+        Random random = new Random(7);
+        for (int consulta = 0; consulta < 200; consulta++) {
+            double posX = random.nextDouble() * 360 - 180;
+            double posY = random.nextDouble() * 180 - 90;
+            assertMesmasAgenciasGeodesicas(geodesico, posX, posY, 25);
+        }
+        assertMesmasAgenciasGeodesicas(geodesico, 180.0, 0.0, 25);
+        assertMesmasAgenciasGeodesicas(geodesico, -179.99, 45.0, 25);
+        assertMesmasAgenciasGeodesicas(geodesico, 0.0, 90.0, 25);
+        assertMesmasAgenciasGeodesicas(geodesico, 123.0, -89.99, 25);
+    }
+
+    @Test
+    @DisplayName("Deve encontrar no modo geodésico agências do outro lado do antimeridiano e do polo")
+    void deveEncontrarAgenciasDoOutroLadoDoAntimeridianoEDoPolo() {
+        IndiceEspacialAgencias geodesico = new IndiceEspacialAgencias(Geometria.ESFERICA);
+        geodesico.carregar(List.of(
+            Agencia.builder().id(1L).posX(179.9).posY(0.0).build(),
+            Agencia.builder().id(2L).posX(170.0).posY(0.0).build(),
+            Agencia.builder().id(3L).posX(-90.0).posY(89.9).build(),
+            Agencia.builder().id(4L).posX(90.0).posY(80.0).build()));
+
+        List<AgenciaProxima> antimeridiano = geodesico.buscarMaisProximas(-179.9, 0.0, 1);
+        List<AgenciaProxima> polo = geodesico.buscarMaisProximas(90.0, 89.9, 4, 50.0);
+
+        assertEquals(1L, antimeridiano.get(0).id());
+        assertEquals(22.24, antimeridiano.get(0).distancia(), 0.01);
+        assertEquals(List.of(3L), polo.stream().map(AgenciaProxima::id).toList());
+        assertEquals(22.24, polo.get(0).distancia(), 0.01);
+    }
+
+    @Test
+    @DisplayName("Deve retornar no modo geodésico apenas agências dentro do raio em quilômetros")
+    void deveRetornarNoModoGeodesicoApenasAgenciasDentroDoRaio() {
+        IndiceEspacialAgencias geodesico = new IndiceEspacialAgencias(Geometria.ESFERICA);
+        geodesico.carregar(agencias);
+
+        List<AgenciaProxima> resultado = geodesico.buscarMaisProximas(10.0, 10.0, 1000, 800.0);
+
+        List<Long> esperado = agencias.stream()
+                .filter(a -> haversine(a, 10.0, 10.0) <= 800.0)
+                .sorted(Comparator.comparingDouble((Agencia a) -> haversine(a, 10.0, 10.0)))
+                .map(Agencia::getId)
+                .toList();
+        assertFalse(esperado.isEmpty());
+        assertEquals(esperado, resultado.stream().map(AgenciaProxima::id).toList());
+    }
+
+    private void assertMesmasAgenciasGeodesicas(IndiceEspacialAgencias geodesico, double posX, double posY, int limite) {
+        List<Agencia> esperadas = agencias.stream()
+                .sorted(Comparator.comparingDouble((Agencia a) -> haversine(a, posX, posY)).thenComparing(Agencia::getId))
+                .limit(limite)
+                .toList();
+        List<AgenciaProxima> resultado = geodesico.buscarMaisProximas(posX, posY, limite);
+
+        assertEquals(esperadas.stream().map(Agencia::getId).toList(), resultado.stream().map(AgenciaProxima::id).toList());
+        for (int i = 0; i < limite; i++) {
+            assertEquals(haversine(esperadas.get(i), posX, posY), resultado.get(i).distancia(), 1e-6);
+        }
+    }
+
+    private static double haversine(Agencia agencia, double posX, double posY) {
+        return Geometria.ESFERICA.distancia(agencia.getPosX(), agencia.getPosY(), posX, posY);
+    }
+
+    private List<Long> buscaExaustiva(double posX, double posY, int limite) {
+        return agencias.stream()
+                .sorted(Comparator.comparingDouble((Agencia a) -> distancia2(a, posX, posY)).thenComparing(Agencia::getId))
+                .limit(limite)
+                .map(Agencia::getId)
+                .toList();
+    }
+
+    private static double distancia2(Agencia agencia, double posX, double posY) {
+        double deltaX = agencia.getPosX() - posX;
+        double deltaY = agencia.getPosY() - posY;
+        return deltaX * deltaX + deltaY * deltaY;
+    }
+}
@@ -0,0 +1,139 @@
+package com.santander.agencia.index;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Testes das travas listradas TravasRegiao")
+class TravasRegiaoTest {
+
+    private static final int THREADS = 8;
+
+    @Test
+    @DisplayName("Deve impedir que cadastros concorrentes próximos passem juntos pela verificação")
+    void deveImpedirCadastrosConcorrentesProximos() throws Exception {
+        TravasRegiao travas = new TravasRegiao();
+        GradeEspacial grade = new GradeEspacial(GradeEspacial.TAMANHO_CELULA_PADRAO);
+        List<double[]> aceitos = java.util.Collections.synchronizedList(new ArrayList<>());
+
+        executarEmParalelo(thread -> {
+            Random random = new Random(thread);
+            for (int i = 0; i < 200; i++) {
+                double x = random.nextDouble() * 4;
+                double y = random.nextDouble() * 4;
+                try (TravasRegiao.Travamento ignored = travas.travar(x, y, 1.0)) {
+                    if (!grade.existeProximo(x, y, 1.0)) {
+                        Thread.yield();
+                        grade.adicionar(x, y);
+                        aceitos.add(new double[] {x, y});
+                    }
+                }
+            }
+        });
+
+        assertFalse(aceitos.isEmpty());
+        for (int i = 0; i < aceitos.size(); i++) {
+            for (int j = i + 1; j < aceitos.size(); j++) {
+                double deltaX = aceitos.get(i)[0] - aceitos.get(j)[0];
+                double deltaY = aceitos.get(i)[1] - aceitos.get(j)[1];
+                assertTrue(Math.sqrt(deltaX * deltaX + deltaY * deltaY) > 1.0,
+                    "Agências aceitas a menos da distância mínima");
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Deve executar cadastros em regiões distantes em paralelo")
+    void deveExecutarCadastrosEmRegioesDistantesEmParalelo() throws Exception {
+        TravasRegiao travas = new TravasRegiao();
+        CountDownLatch distanteTravado = new CountDownLatch(1);
+        CountDownLatch liberarDistante = new CountDownLatch(1);
+        CountDownLatch proximoTravado = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+
+        try (TravasRegiao.Travamento travamento = travas.travar(10.0, 10.0, 1.0)) {
+            Future<?> distante = executor.submit(() -> {
+                try (TravasRegiao.Travamento outro = travas.travar(-120.0, 60.0, 1.0)) {
+                    distanteTravado.countDown();
+                    liberarDistante.await();
+                }
+                return null;
+            });
+            Future<?> proximo = executor.submit(() -> {
+                try (TravasRegiao.Travamento outro = travas.travar(10.5, 10.0, 1.0)) {
+                    proximoTravado.countDown();
+                }
+            });
+
+            assertTrue(distanteTravado.await(5, TimeUnit.SECONDS),
+                "Região distante deveria travar enquanto a primeira está travada");
+            assertFalse(proximoTravado.await(100, TimeUnit.MILLISECONDS),
+                "Região próxima não deveria travar enquanto a primeira está travada");
+
+            liberarDistante.countDown();
+            distante.get(5, TimeUnit.SECONDS);
+            assertEquals(1, proximoTravado.getCount());
+
+            travamento.close();
+            proximo.get(5, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(0, proximoTravado.getCount());
+    }
+
+    @Test
+    @DisplayName("Deve travar todas as listras")
+    void deveTravarTodasAsListras() throws Exception {
+        TravasRegiao travas = new TravasRegiao();
+        CountDownLatch travado = new CountDownLatch(1);
+
+        try (TravasRegiao.Travamento ignored = travas.travarTudo()) {
+            ExecutorService executor = Executors.newSingleThreadExecutor();
+            Future<?> outro = executor.submit(() -> {
+                try (TravasRegiao.Travamento outroTravamento = travas.travar(120.0, -45.0, 1.0)) {
+                    travado.countDown();
+                }
+            });
+            assertFalse(travado.await(100, TimeUnit.MILLISECONDS));
+            executor.shutdown();
+            ignored.close();
+            outro.get(5, TimeUnit.SECONDS);
+        }
+        assertEquals(0, travado.getCount());
+    }
+
+    private void executarEmParalelo(Tarefa tarefa) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch largada = new CountDownLatch(1);
+        List<Future<?>> futuros = new ArrayList<>();
+        for (int thread = 0; thread < THREADS; thread++) {
+            int numero = thread;
+            futuros.add(executor.submit(() -> {
+                largada.await();
+                tarefa.executar(numero);
+                return null;
+            }));
+        }
+        largada.countDown();
+        for (Future<?> futuro : futuros) {
+            futuro.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+    }
+
+    @FunctionalInterface
+    private interface Tarefa {
+        void executar(int thread) throws Exception;
+    }
+}
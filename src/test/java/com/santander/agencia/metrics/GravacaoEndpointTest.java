@@ -0,0 +1,90 @@
+package com.santander.agencia.metrics;
+
+import com.santander.agencia.config.AgenciaProperties;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Testes do GravacaoEndpoint")
+class GravacaoEndpointTest {
+
+    @TempDir
+    Path diretorio;
+
+    private AgenciaProperties propriedades;
+    private GravacaoEndpoint endpoint;
+
+    @BeforeEach
+    void setUp() {
+        propriedades = new AgenciaProperties();
+        propriedades.getGravacao().setDiretorio(diretorio.toString());
+        endpoint = new GravacaoEndpoint(propriedades);
+    }
+
+    @AfterEach
+    void tearDown() {
+        endpoint.listar().forEach(gravacao -> endpoint.parar(gravacao.id()));
+    }
+
+    @Test
+    @DisplayName("Deve gravar os eventos das etapas com posição e quantidade de agências")
+    void deveGravarEventosDasEtapas() throws Exception {
+        GravacaoEndpoint.Gravacao gravacao = endpoint.iniciar(Duration.ofMinutes(1));
+        assertEquals("RUNNING", gravacao.estado());
+
+        EventosAgencia.Consulta consulta = new EventosAgencia.Consulta();
+        consulta.begin();
+        consulta.concluir(1.5, -2.5, 7);
+        EventosAgencia.ReservaIdentificadores reserva = new EventosAgencia.ReservaIdentificadores();
+        reserva.primeiro = 51;
+        reserva.quantidade = 50;
+        reserva.commit();
+
+        GravacaoEndpoint.Gravacao encerrada = endpoint.parar(gravacao.id());
+
+        assertEquals(gravacao.arquivo(), encerrada.arquivo());
+        assertTrue(encerrada.arquivo().startsWith(diretorio.toString()));
+        List<RecordedEvent> eventos = RecordingFile.readAllEvents(Paths.get(encerrada.arquivo()));
+        RecordedEvent lido = eventos.stream()
+                .filter(evento -> evento.getEventType().getName().equals("agencia.Consulta"))
+                .findFirst()
+                .orElseThrow();
+        assertEquals(1.5, lido.getDouble("posX"));
+        assertEquals(-2.5, lido.getDouble("posY"));
+        assertEquals(7, lido.getInt("agencias"));
+        assertNull(lido.getStackTrace());
+        assertTrue(eventos.stream().anyMatch(evento -> evento.getEventType().getName().equals("agencia.ReservaIdentificadores")
+                && evento.getLong("primeiro") == 51));
+        assertTrue(endpoint.listar().isEmpty());
+    }
+
+    @Test
+    @DisplayName("Deve limitar a duração pedida à duração máxima e usar a padrão quando ausente")
+    void deveLimitarDuracao() {
+        propriedades.getGravacao().setDuracaoMaxima(Duration.ofMinutes(2));
+
+        GravacaoEndpoint.Gravacao longa = endpoint.iniciar(Duration.ofHours(1));
+        GravacaoEndpoint.Gravacao padrao = endpoint.iniciar(null);
+
+        assertEquals(Duration.ofMinutes(2), longa.duracao());
+        assertEquals(Duration.ofMinutes(1), padrao.duracao());
+        assertEquals(2, endpoint.listar().size());
+    }
+
+    @Test
+    @DisplayName("Deve retornar null ao encerrar gravação desconhecida")
+    void deveRetornarNullParaGravacaoDesconhecida() {
+        assertNull(endpoint.parar(-1));
+    }
+}
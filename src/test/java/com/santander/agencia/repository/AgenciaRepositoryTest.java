@@ -1,5 +1,7 @@
 package com.santander.agencia.repository;
 
+import com.santander.agencia.index.CodigoMorton;
+import com.santander.agencia.index.Geometria;
 import com.santander.agencia.model.Agencia;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -7,14 +9,17 @@ import org.junit.jupiter.api.DisplayName;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
 import org.springframework.test.context.ActiveProfiles;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Random;
 
 import static org.junit.jupiter.api.Assertions.*;
 
 @DataJpaTest
+@Import(AlocadorIdentificadores.class)
 @ActiveProfiles("test")
 @DisplayName("Testes do Repositório AgenciaRepository")
 class AgenciaRepositoryTest {
@@ -69,6 +74,7 @@ class AgenciaRepositoryTest {
 
         assertNotNull(agenciaSalva);
         assertNotNull(agenciaSalva.getId());
+        assertEquals("AGENCIA_" + agenciaSalva.getId(), agenciaSalva.getNome());
         assertEquals(5.0, agenciaSalva.getPosX());
         assertEquals(-5.0, agenciaSalva.getPosY());
         assertNotNull(agenciaSalva.getDataCriacao());
@@ -234,4 +240,133 @@ class AgenciaRepositoryTest {
         boolean distanteAgencia2 = agenciaRepository.existsAgenciaProxima(5.0, 4.0, 1.0);
         assertFalse(distanteAgencia2);
     }
+
+    @Test
+    @DisplayName("Deve buscar agências na caixa ordenadas por distância")
+    void deveBuscarAgenciasNaCaixaOrdenadasPorDistancia() {
+        List<Object[]> resultados = agenciaRepository.findAgenciasProximasNaCaixa(0.0, 0.0, 6.0, 10);
+
+        assertEquals(2, resultados.size());
+        assertEquals(agencia1.getId(), resultados.get(0)[0]);
+        assertEquals(0.0, (Double) resultados.get(0)[5], 0.01);
+        assertEquals(agencia2.getId(), resultados.get(1)[0]);
+        assertEquals(5.0, (Double) resultados.get(1)[5], 0.01);
+    }
+
+    @Test
+    @DisplayName("Deve ignorar agências dentro da caixa mas fora do raio")
+    void deveIgnorarAgenciasDentroDaCaixaMasForaDoRaio() {
+        List<Object[]> resultados = agenciaRepository.findAgenciasProximasNaCaixa(0.0, 0.0, 4.5, 10);
+
+        assertEquals(1, resultados.size());
+        assertEquals(agencia1.getId(), resultados.get(0)[0]);
+    }
+
+    @Test
+    @DisplayName("Deve respeitar o limite na busca na caixa")
+    void deveRespeitarLimiteNaBuscaNaCaixa() {
+        List<Object[]> resultados = agenciaRepository.findAgenciasProximasNaCaixa(5.0, 5.0, 100.0, 2);
+
+        assertEquals(2, resultados.size());
+        assertEquals(agencia2.getId(), resultados.get(0)[0]);
+        assertEquals(agencia3.getId(), resultados.get(1)[0]);
+    }
+
+    @Test
+    @DisplayName("Deve verificar proximidade na caixa como a consulta sem filtro")
+    void deveVerificarProximidadeNaCaixaComoConsultaSemFiltro() {
+        assertTrue(agenciaRepository.existsAgenciaProximaNaCaixa(0.5, 0.0, 1.0));
+        assertTrue(agenciaRepository.existsAgenciaProximaNaCaixa(1.0, 0.0, 1.0));
+        assertFalse(agenciaRepository.existsAgenciaProximaNaCaixa(1.1, 0.0, 1.0));
+        assertTrue(agenciaRepository.existsAgenciaProximaNaCaixa(3.5, 4.0, 1.0));
+        assertFalse(agenciaRepository.existsAgenciaProximaNaCaixa(5.0, 4.0, 1.0));
+    }
+
+    @Test
+    @DisplayName("Deve buscar agências pela distância geodésica em quilômetros")
+    void deveBuscarAgenciasPelaDistanciaGeodesica() {
+        List<Object[]> resultados = agenciaRepository.findAgenciasProximasGeodesicas(1.0, 1.0, Double.MAX_VALUE, 10);
+
+        assertEquals(3, resultados.size());
+        assertEquals(agencia1.getId(), resultados.get(0)[0]);
+        assertEquals(agencia2.getId(), resultados.get(1)[0]);
+        assertEquals(agencia3.getId(), resultados.get(2)[0]);
+        assertEquals(Geometria.ESFERICA.distancia(1.0, 1.0, 0.0, 0.0), ((Number) resultados.get(0)[5]).doubleValue(), 1e-6);
+        assertEquals(157.25, ((Number) resultados.get(0)[5]).doubleValue(), 0.01);
+    }
+
+    @Test
+    @DisplayName("Deve considerar agências do outro lado do antimeridiano na busca geodésica")
+    void deveConsiderarAntimeridianoNaBuscaGeodesica() {
+        Agencia leste = entityManager.persistAndFlush(Agencia.builder()
+                .posX(179.9)
+                .posY(0.0)
+                .dataCriacao(LocalDateTime.now())
+                .build());
+
+        List<Object[]> resultados = agenciaRepository.findAgenciasProximasGeodesicas(-179.9, 0.0, 100.0, 10);
+
+        assertEquals(1, resultados.size());
+        assertEquals(leste.getId(), resultados.get(0)[0]);
+        assertEquals(22.24, ((Number) resultados.get(0)[5]).doubleValue(), 0.01);
+    }
+
+    @Test
+    @DisplayName("Deve alargar em longitude o quadrado da busca geodésica em latitudes altas")
+    void deveAlargarQuadradoDaBuscaGeodesicaEmLatitudesAltas() {
+        Agencia norte = entityManager.persistAndFlush(Agencia.builder()
+                .posX(1.9)
+                .posY(60.0)
+                .dataCriacao(LocalDateTime.now())
+                .build());
+        entityManager.persistAndFlush(Agencia.builder()
+                .posX(0.0)
+                .posY(61.1)
+                .dataCriacao(LocalDateTime.now())
+                .build());
+
+        List<Object[]> resultados = agenciaRepository.findAgenciasProximasGeodesicas(0.0, 60.0, 110.0, 10);
+
+        assertEquals(1, resultados.size());
+        assertEquals(norte.getId(), resultados.get(0)[0]);
+        assertEquals(Geometria.ESFERICA.distancia(0.0, 60.0, 1.9, 60.0),
+                     ((Number) resultados.get(0)[5]).doubleValue(), 1e-6);
+    }
+
+    @Test
+    @DisplayName("Deve gravar o código espacial da posição ao salvar")
+    void deveGravarCodigoEspacialAoSalvar() {
+        assertEquals(CodigoMorton.codigo(3.0, 4.0),
+                     agenciaRepository.findById(agencia2.getId()).orElseThrow().getCodigoEspacial());
+    }
+
+    @Test
+    @DisplayName("Deve retornar nas faixas do código espacial o mesmo resultado da consulta na caixa")
+    void deveRetornarNasCelulasOMesmoResultadoDaCaixa() {
+        Random random = new Random(42);
+        for (int i = 0; i < 300; i++) {
+            entityManager.persist(Agencia.builder()
+                    .posX(random.nextDouble() * 40 - 20)
+                    .posY(random.nextDouble() * 40 - 20)
+                    .dataCriacao(LocalDateTime.now())
+                    .build());
+        }
+        entityManager.flush();
+
+        for (int consulta = 0; consulta < 50; consulta++) {
+            double posX = random.nextDouble() * 40 - 20;
+            double posY = random.nextDouble() * 40 - 20;
+            double raio = 0.5 + random.nextDouble() * 10;
+            assertEquals(ids(agenciaRepository.findAgenciasProximasNaCaixa(posX, posY, raio, 20)),
+                         ids(agenciaRepository.findAgenciasProximasNasCelulas(posX, posY, raio, 20)));
+            assertEquals(agenciaRepository.existsAgenciaProximaNaCaixa(posX, posY, 1.0),
+                         agenciaRepository.existsAgenciaProximaNasCelulas(posX, posY, 1.0));
+        }
+        assertTrue(agenciaRepository.existsAgenciaProximaNasCelulas(3.5, 4.0, 1.0));
+        assertFalse(agenciaRepository.existsAgenciaProximaNasCelulas(30.0, 40.0, 1.0));
+    }
+
+    private static List<Object> ids(List<Object[]> resultados) {
+        return resultados.stream().map(resultado -> resultado[0]).toList();
+    }
 }
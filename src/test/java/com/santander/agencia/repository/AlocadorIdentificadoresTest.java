@@ -0,0 +1,83 @@
+package com.santander.agencia.repository;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@Import(AlocadorIdentificadores.class)
+@ActiveProfiles("test")
+@DisplayName("Testes do AlocadorIdentificadores")
+class AlocadorIdentificadoresTest {
+
+    @Autowired
+    private AlocadorIdentificadores alocador;
+
+    @Test
+    @DisplayName("Deve alocar identificadores consecutivos dentro de um bloco")
+    void deveAlocarIdentificadoresConsecutivosDentroDeUmBloco() {
+        long primeiro = alocador.proximoId();
+        long quantidade = AlocadorIdentificadores.TAMANHO_BLOCO - (primeiro - 1) % AlocadorIdentificadores.TAMANHO_BLOCO;
+
+        for (long i = 1; i < quantidade; i++) {
+            assertEquals(primeiro + i, alocador.proximoId());
+        }
+    }
+
+    @Test
+    @DisplayName("Deve alocar identificadores únicos com várias threads")
+    void deveAlocarIdentificadoresUnicosComVariasThreads() throws Exception {
+        int threads = 8;
+        int porThread = 1000;
+        Set<Long> ids = ConcurrentHashMap.newKeySet();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> tarefas = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                tarefas.add(executor.submit(() -> {
+                    for (int i = 0; i < porThread; i++) {
+                        assertTrue(ids.add(alocador.proximoId()));
+                    }
+                }));
+            }
+            for (Future<?> tarefa : tarefas) {
+                tarefa.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertEquals(threads * porThread, ids.size());
+    }
+
+    @Test
+    @DisplayName("Deve alocar acima do último identificador persistido fora do banco")
+    void deveAlocarAcimaDoUltimoIdentificadorPersistido() {
+        alocador.reservarAcimaDe(1_000_000L);
+
+        long primeiro = alocador.proximoId();
+        assertEquals(1_000_001L, primeiro);
+        for (int i = 1; i < 3 * AlocadorIdentificadores.TAMANHO_BLOCO; i++) {
+            assertTrue(alocador.proximoId() > primeiro);
+        }
+    }
+
+    @Test
+    @DisplayName("Deve derivar o nome do identificador")
+    void deveDerivarNomeDoIdentificador() {
+        assertEquals("AGENCIA_42", AlocadorIdentificadores.nomeAgencia(42));
+    }
+}
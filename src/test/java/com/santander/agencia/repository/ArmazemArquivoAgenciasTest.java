@@ -0,0 +1,186 @@
+package com.santander.agencia.repository;
+
+import com.santander.agencia.config.AgenciaProperties;
+import com.santander.agencia.model.Agencia;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("Testes do ArmazemArquivoAgencias")
+class ArmazemArquivoAgenciasTest {
+
+    @TempDir
+    Path diretorio;
+
+    @Mock
+    private AlocadorIdentificadores alocadorIdentificadores;
+
+    private AgenciaProperties propriedades;
+    private ArmazemArquivoAgencias armazem;
+    private final AtomicLong proximoId = new AtomicLong(1);
+
+    @BeforeEach
+    void setUp() {
+        lenient().when(alocadorIdentificadores.proximoId()).thenAnswer(invocacao -> proximoId.getAndIncrement());
+        propriedades = new AgenciaProperties();
+        propriedades.getArmazenamento().setArquivo(diretorio.resolve("agencias.dat").toString());
+        propriedades.getArmazenamento().setCapacidadeInicial(4);
+        armazem = abrir();
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        armazem.fechar();
+    }
+
+    @Test
+    @DisplayName("Deve manter as agências após reabrir o arquivo")
+    void deveManterAgenciasAposReabrirOArquivo() throws Exception {
+        LocalDateTime dataCriacao = LocalDateTime.of(2024, 5, 10, 8, 30, 15, 123_456_000);
+        Agencia salva = armazem.save(Agencia.builder().posX(1.5).posY(-2.5).dataCriacao(dataCriacao).build());
+        for (int i = 0; i < 99; i++) {
+            armazem.save(Agencia.builder().posX((double) i).posY((double) -i).build());
+        }
+        armazem.fechar();
+
+        armazem = abrir();
+
+        assertEquals(100, armazem.count());
+        assertEquals(salva, armazem.findById(salva.getId()).orElseThrow());
+        assertEquals("AGENCIA_1", salva.getNome());
+        assertEquals(dataCriacao, armazem.findAll().get(0).getDataCriacao());
+        verify(alocadorIdentificadores).reservarAcimaDe(100L);
+    }
+
+    @Test
+    @DisplayName("Deve responder como as consultas nativas do repositório")
+    void deveResponderComoAsConsultasNativas() {
+        Random random = new Random(42);
+        List<Agencia> agencias = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            agencias.add(Agencia.builder().posX(random.nextDouble() * 200 - 100).posY(random.nextDouble() * 200 - 100).build());
+        }
+        armazem.saveAll(agencias);
+
+        for (int consulta = 0; consulta < 50; consulta++) {
+            double posX = random.nextDouble() * 200 - 100;
+            double posY = random.nextDouble() * 200 - 100;
+
+            assertEquals(buscaExaustiva(agencias, posX, posY, Double.POSITIVE_INFINITY, 25),
+                         ids(armazem.findAgenciasProximasComDistancia(posX, posY, 25)));
+            assertEquals(buscaExaustiva(agencias, posX, posY, 10.0, 1000),
+                         ids(armazem.findAgenciasProximasNaCaixa(posX, posY, 10.0, 1000)));
+            boolean existe = agencias.stream().anyMatch(a -> distancia(a, posX, posY) <= 3.0);
+            assertEquals(existe, armazem.existsAgenciaProximaNaCaixa(posX, posY, 3.0));
+        }
+
+        Object[] linha = armazem.findAgenciasProximasComDistancia(agencias.get(0).getPosX(), agencias.get(0).getPosY(), 1).get(0);
+        assertEquals(agencias.get(0).getId(), linha[0]);
+        assertEquals(agencias.get(0).getNome(), linha[1]);
+        assertEquals(0.0, linha[5]);
+    }
+
+    @Test
+    @DisplayName("Deve recusar arquivo aberto por outra instância")
+    void deveRecusarArquivoAbertoPorOutraInstancia() {
+        assertThrows(IllegalStateException.class, this::abrir);
+    }
+
+    @Test
+    @DisplayName("Deve recusar arquivo em outro formato")
+    void deveRecusarArquivoEmOutroFormato() throws Exception {
+        Path invalido = diretorio.resolve("invalido.dat");
+        Files.writeString(invalido, "não é um arquivo de agências".repeat(10));
+        propriedades.getArmazenamento().setArquivo(invalido.toString());
+
+        assertThrows(IllegalStateException.class, this::abrir);
+    }
+
+    @Test
+    @DisplayName("Deve gravar as agências salvas em transação apenas no commit")
+    void deveGravarAgenciasSalvasEmTransacaoApenasNoCommit() {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            Agencia salva = armazem.save(Agencia.builder().posX(1.0).posY(1.0).build());
+            armazem.saveAll(List.of(Agencia.builder().posX(5.0).posY(5.0).build()));
+
+            assertEquals(1L, salva.getId());
+            assertEquals(0, armazem.count());
+
+            TransactionSynchronizationUtils.triggerAfterCommit();
+            TransactionSynchronizationUtils.triggerAfterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        assertEquals(2, armazem.count());
+        assertEquals(1, armazem.findAgenciasProximasComDistancia(0.0, 0.0, 1).size());
+        assertFalse(TransactionSynchronizationManager.hasResource(armazem));
+    }
+
+    @Test
+    @DisplayName("Deve descartar as agências salvas em transação desfeita")
+    void deveDescartarAgenciasSalvasEmTransacaoDesfeita() {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            armazem.save(Agencia.builder().posX(1.0).posY(1.0).build());
+
+            TransactionSynchronizationUtils.triggerAfterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        assertEquals(0, armazem.count());
+        assertFalse(TransactionSynchronizationManager.hasResource(armazem));
+    }
+
+    private ArmazemArquivoAgencias abrir() {
+        ArmazemArquivoAgencias novo = new ArmazemArquivoAgencias();
+        ReflectionTestUtils.setField(novo, "propriedades", propriedades);
+        ReflectionTestUtils.setField(novo, "alocadorIdentificadores", alocadorIdentificadores);
+        novo.abrir();
+        return novo;
+    }
+
+    private static List<Long> buscaExaustiva(List<Agencia> agencias, double posX, double posY, double raio, int limite) {
+        return agencias.stream()
+                .filter(a -> distancia(a, posX, posY) <= raio)
+                .sorted(Comparator.comparingDouble((Agencia a) -> distancia(a, posX, posY)).thenComparing(Agencia::getId))
+                .limit(limite)
+                .map(Agencia::getId)
+                .toList();
+    }
+
+    private static List<Long> ids(List<Object[]> linhas) {
+        return linhas.stream().map(linha -> (Long) linha[0]).toList();
+    }
+
+    private static double distancia(Agencia agencia, double posX, double posY) {
+        double deltaX = agencia.getPosX() - posX;
+        double deltaY = agencia.getPosY() - posY;
+        return Math.sqrt(deltaX * deltaX + deltaY * deltaY);
+    }
+}
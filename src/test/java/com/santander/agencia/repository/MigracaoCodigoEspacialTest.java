@@ -0,0 +1,54 @@
+package com.santander.agencia.repository;
+
+import com.santander.agencia.index.CodigoMorton;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@Import({AlocadorIdentificadores.class, MigracaoCodigoEspacial.class})
+@ActiveProfiles("test")
+@DisplayName("Testes da MigracaoCodigoEspacial")
+class MigracaoCodigoEspacialTest {
+
+    @Autowired
+    private MigracaoCodigoEspacial migracao;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private AgenciaRepository agenciaRepository;
+
+    @Test
+    @DisplayName("Deve preencher o código espacial das agências que não o têm")
+    void devePreencherCodigoEspacialDasAgenciasSemCodigo() {
+        int total = MigracaoCodigoEspacial.LINHAS_POR_BLOCO + 10;
+        Timestamp agora = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> linhas = new ArrayList<>();
+        for (long id = 1; id <= total; id++) {
+            linhas.add(new Object[] {id, "AGENCIA_" + id, id * 0.1, -id * 0.05, agora});
+        }
+        jdbcTemplate.batchUpdate(
+            "INSERT INTO agencias (id, nome, pos_x, pos_y, data_criacao) VALUES (?, ?, ?, ?, ?)", linhas);
+
+        assertEquals(total, migracao.preencher());
+        assertEquals(0, migracao.preencher());
+
+        assertEquals(CodigoMorton.codigo(50.0, -25.0), jdbcTemplate.queryForObject(
+            "SELECT codigo_espacial FROM agencias WHERE id = 500", Long.class));
+        List<Object[]> resultados = agenciaRepository.findAgenciasProximasNasCelulas(50.0, -25.0, 0.5, 10);
+        assertEquals(500L, ((Number) resultados.get(0)[0]).longValue());
+    }
+}
@@ -1,20 +1,45 @@
 package com.santander.agencia.service;
 
+import com.santander.agencia.cache.CacheAgenciasProximas;
+import com.santander.agencia.config.AgenciaProperties;
+import com.santander.agencia.config.ModoConsulta;
+import com.santander.agencia.config.TipoDistancia;
 import com.santander.agencia.dto.CadastroAgenciaRequest;
 import com.santander.agencia.dto.CadastroAgenciaResponse;
+import com.santander.agencia.dto.CadastroLoteRequest;
+import com.santander.agencia.dto.CadastroLoteResponse;
+import com.santander.agencia.dto.CadastroLoteResponse.StatusItem;
+import com.santander.agencia.dto.ConsultaLoteRequest;
+import com.santander.agencia.dto.ConsultaLoteResponse;
 import com.santander.agencia.dto.DistanciaResponse;
+import com.santander.agencia.dto.FormatadorDistancia;
+import com.santander.agencia.event.AgenciaCadastradaEvent;
+import com.santander.agencia.index.AgenciaProxima;
+import com.santander.agencia.index.IndiceEspacialAgencias;
+import com.santander.agencia.index.InstantaneoAgencias;
+import com.santander.agencia.index.TravasRegiao;
+import com.santander.agencia.metrics.MetricasAgencia;
 import com.santander.agencia.model.Agencia;
-import com.santander.agencia.repository.AgenciaRepository;
+import com.santander.agencia.repository.ArmazemAgencias;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -27,7 +52,30 @@ import static org.mockito.Mockito.*;
 class AgenciaServiceTest {
 
     @Mock
-    private AgenciaRepository agenciaRepository;
+    private ArmazemAgencias armazemAgencias;
+
+    @Mock
+    private IndiceEspacialAgencias indiceEspacial;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Spy
+    private TravasRegiao travasRegiao = new TravasRegiao();
+
+    @Spy
+    private AgenciaProperties propriedades = new AgenciaProperties();
+
+    @Spy
+    private CacheAgenciasProximas cacheAgenciasProximas = new CacheAgenciasProximas(new AgenciaProperties.Cache());
+
+    private final SimpleMeterRegistry registroMetricas = new SimpleMeterRegistry();
+
+    @Spy
+    private MetricasAgencia metricas = new MetricasAgencia(registroMetricas);
+
+    @Spy
+    private Validator validator = Validation.buildDefaultValidatorFactory().getValidator();
 
     @InjectMocks
     private AgenciaService agenciaService;
@@ -51,8 +99,7 @@ class AgenciaServiceTest {
     @Test
     @DisplayName("Deve cadastrar agência com sucesso")
     void deveCadastrarAgenciaComSucesso() {
-        when(agenciaRepository.count()).thenReturn(0L);
-        when(agenciaRepository.save(any(Agencia.class))).thenReturn(agencia);
+        when(armazemAgencias.save(any(Agencia.class))).thenReturn(agencia);
 
         CadastroAgenciaResponse response = agenciaService.cadastrarAgencia(request);
 
@@ -63,16 +110,38 @@ class AgenciaServiceTest {
         assertEquals(-5.0, response.posY());
         assertEquals("Agência cadastrada com sucesso!", response.mensagem());
 
-        verify(agenciaRepository).count();
-        verify(agenciaRepository).save(any(Agencia.class));
+        verify(armazemAgencias, never()).count();
+        verify(armazemAgencias).save(any(Agencia.class));
+        verify(eventPublisher).publishEvent(new AgenciaCadastradaEvent(1L, "AGENCIA_1", 10.0, -5.0));
+    }
+
+    @Test
+    @DisplayName("Deve registrar as etapas do cadastro e da busca nas métricas")
+    void deveRegistrarEtapasDoCadastroEDaBuscaNasMetricas() {
+        when(armazemAgencias.save(any(Agencia.class))).thenReturn(agencia);
+        Object[] resultado = {1L, "AGENCIA_1", 0.0, 0.0, java.sql.Timestamp.valueOf(LocalDateTime.now()), 5.0};
+        when(armazemAgencias.findAgenciasProximasComDistancia(3.0, 4.0, 1000))
+            .thenReturn(List.<Object[]>of(resultado));
+
+        agenciaService.cadastrarAgencia(request);
+        agenciaService.buscarAgenciasProximas(3.0, 4.0);
+
+        assertEquals(1, registroMetricas.get(MetricasAgencia.CADASTRO).timer().count());
+        assertEquals(1, registroMetricas.get("agencia.cadastro.etapa").tag("etapa", "verificacao_proximidade").timer().count());
+        assertEquals(1, registroMetricas.get("agencia.cadastro.etapa").tag("etapa", "insercao").timer().count());
+        assertEquals(1, registroMetricas.get(MetricasAgencia.CONSULTA).timer().count());
+        for (String etapa : List.of("consulta", "mapeamento")) {
+            assertEquals(1, registroMetricas.get("agencia.consulta.etapa").tag("etapa", etapa).timer().count());
+        }
+        assertEquals(1.0, registroMetricas.get(MetricasAgencia.TAMANHO_RESULTADO).summary().totalAmount());
+        assertEquals(1.0, registroMetricas.get(MetricasAgencia.ULTIMO_TAMANHO_RESULTADO).gauge().value());
     }
 
     @Test
     @DisplayName("Deve cadastrar agência com posições válidas")
     void deveCadastrarAgenciaComPosicoesValidas() {
         request = new CadastroAgenciaRequest(15.0, -10.0);
-        when(agenciaRepository.count()).thenReturn(0L);
-        when(agenciaRepository.save(any(Agencia.class))).thenReturn(agencia);
+        when(armazemAgencias.save(any(Agencia.class))).thenReturn(agencia);
 
         CadastroAgenciaResponse response = agenciaService.cadastrarAgencia(request);
 
@@ -82,8 +151,8 @@ class AgenciaServiceTest {
         assertEquals(10.0, response.posX());
         assertEquals(-5.0, response.posY());
 
-        verify(agenciaRepository).count();
-        verify(agenciaRepository).save(any(Agencia.class));
+        verify(armazemAgencias, never()).count();
+        verify(armazemAgencias).save(any(Agencia.class));
     }
 
     @Test
@@ -96,7 +165,7 @@ class AgenciaServiceTest {
             () -> agenciaService.cadastrarAgencia(requestInvalido)
         );
 
-        verify(agenciaRepository, never()).save(any(Agencia.class));
+        verify(armazemAgencias, never()).save(any(Agencia.class));
     }
 
     @Test
@@ -105,7 +174,7 @@ class AgenciaServiceTest {
         Object[] resultado1 = {1L, "AGENCIA_1", 0.0, 0.0, java.sql.Timestamp.valueOf(LocalDateTime.now()), 5.0};
         Object[] resultado2 = {2L, "AGENCIA_2", 5.0, 5.0, java.sql.Timestamp.valueOf(LocalDateTime.now()), 7.07};
 
-        when(agenciaRepository.findAgenciasProximasComDistancia(0.0, 0.0, 1000))
+        when(armazemAgencias.findAgenciasProximasComDistancia(0.0, 0.0, 1000))
             .thenReturn(Arrays.asList(resultado1, resultado2));
 
         DistanciaResponse response = agenciaService.buscarAgenciasProximas(0.0, 0.0);
@@ -119,13 +188,347 @@ class AgenciaServiceTest {
         assertTrue(response.agencias().get("AGENCIA_1").contains("5.00"));
         assertTrue(response.agencias().get("AGENCIA_2").contains("7.07"));
 
-        verify(agenciaRepository).findAgenciasProximasComDistancia(0.0, 0.0, 1000);
+        verify(armazemAgencias).findAgenciasProximasComDistancia(0.0, 0.0, 1000);
+        verifyNoInteractions(indiceEspacial);
+    }
+
+    @Test
+    @DisplayName("Deve reutilizar a resposta em cache para posições na mesma célula")
+    void deveReutilizarRespostaEmCacheParaPosicoesNaMesmaCelula() {
+        Object[] resultado = {1L, "AGENCIA_1", 0.0, 0.0, java.sql.Timestamp.valueOf(LocalDateTime.now()), 5.0};
+        when(armazemAgencias.findAgenciasProximasComDistancia(3.0, 4.0, 1000))
+            .thenReturn(List.<Object[]>of(resultado));
+
+        agenciaService.buscarAgenciasProximas(3.0, 4.0);
+        DistanciaResponse response = agenciaService.buscarAgenciasProximas(3.00001, 4.0);
+
+        assertEquals(1, response.totalAgencias());
+        assertEquals(3.00001, response.posicaoUsuario().posX());
+        assertEquals("distancia = 5.00", response.agencias().get("AGENCIA_1"));
+        verify(armazemAgencias, times(1)).findAgenciasProximasComDistancia(any(), any(), any());
+    }
+
+    @Test
+    @DisplayName("Deve buscar agências próximas no índice espacial quando habilitado")
+    void deveBuscarAgenciasProximasNoIndiceEspacial() {
+        propriedades.getConsulta().setModo(ModoConsulta.INDICE);
+        when(indiceEspacial.buscarMaisProximas(0.0, 0.0, 1000, Double.POSITIVE_INFINITY)).thenReturn(List.of(
+            new AgenciaProxima(1L, "AGENCIA_1", 5.0),
+            new AgenciaProxima(2L, "AGENCIA_2", 7.07)
+        ));
+
+        DistanciaResponse response = agenciaService.buscarAgenciasProximas(0.0, 0.0);
+
+        assertEquals(2, response.totalAgencias());
+        assertEquals("AGENCIA_1", response.agenciaMaisProxima());
+        assertEquals(5.0, response.menorDistancia(), 0.01);
+        assertEquals("distancia = 5.00", response.agencias().get("AGENCIA_1"));
+        assertEquals("distancia = 7.07", response.agencias().get("AGENCIA_2"));
+        verify(armazemAgencias, never()).findAgenciasProximasComDistancia(any(), any(), any());
+    }
+
+    @Test
+    @DisplayName("Deve limitar a consulta às k agências mais próximas")
+    void deveLimitarConsultaAsKAgenciasMaisProximas() {
+        Object[] resultado = {1L, "AGENCIA_1", 0.0, 0.0, java.sql.Timestamp.valueOf(LocalDateTime.now()), 5.0};
+        when(armazemAgencias.findAgenciasProximasComDistancia(0.0, 0.0, 5)).thenReturn(List.<Object[]>of(resultado));
+
+        DistanciaResponse response = agenciaService.buscarAgenciasProximas(0.0, 0.0, 5, null);
+
+        assertEquals(1, response.totalAgencias());
+        verify(armazemAgencias).findAgenciasProximasComDistancia(0.0, 0.0, 5);
+    }
+
+    @Test
+    @DisplayName("Deve usar a consulta na caixa quando o raio é informado")
+    void deveUsarConsultaNaCaixaQuandoRaioEhInformado() {
+        when(armazemAgencias.findAgenciasProximasNaCaixa(0.0, 0.0, 10.0, 1000)).thenReturn(List.of());
+
+        DistanciaResponse response = agenciaService.buscarAgenciasProximas(0.0, 0.0, null, 10.0);
+
+        assertEquals(0, response.totalAgencias());
+        assertNull(response.agenciaMaisProxima());
+        verify(armazemAgencias, never()).findAgenciasProximasComDistancia(any(), any(), any());
+    }
+
+    @Test
+    @DisplayName("Deve repassar k e raio ao índice espacial")
+    void deveRepassarKERaioAoIndiceEspacial() {
+        propriedades.getConsulta().setModo(ModoConsulta.INDICE);
+        when(indiceEspacial.buscarMaisProximas(0.0, 0.0, 3, 2.0))
+            .thenReturn(List.of(new AgenciaProxima(1L, "AGENCIA_1", 1.0)));
+
+        DistanciaResponse response = agenciaService.buscarAgenciasProximas(0.0, 0.0, 3, 2.0);
+
+        assertEquals(1, response.totalAgencias());
+        verify(indiceEspacial).buscarMaisProximas(0.0, 0.0, 3, 2.0);
+    }
+
+    @Test
+    @DisplayName("Deve rejeitar k e raio inválidos")
+    void deveRejeitarKERaioInvalidos() {
+        assertThrows(IllegalArgumentException.class, () -> agenciaService.buscarAgenciasProximas(0.0, 0.0, 0, null));
+        assertThrows(IllegalArgumentException.class, () -> agenciaService.buscarAgenciasProximas(0.0, 0.0, 1001, null));
+        assertThrows(IllegalArgumentException.class, () -> agenciaService.buscarAgenciasProximas(0.0, 0.0, null, 0.0));
+        assertThrows(IllegalArgumentException.class, () -> agenciaService.buscarAgenciasProximas(0.0, 0.0, null, Double.NaN));
+
+        verifyNoInteractions(armazemAgencias);
+    }
+
+    @Test
+    @DisplayName("Deve transmitir agências lidas sob demanda do banco")
+    void deveTransmitirAgenciasLidasSobDemandaDoBanco() throws Exception {
+        Object[] resultado1 = {1L, "AGENCIA_1", 0.0, 0.0, java.sql.Timestamp.valueOf(LocalDateTime.now()), 5.0};
+        Object[] resultado2 = {2L, "AGENCIA_2", 5.0, 5.0, java.sql.Timestamp.valueOf(LocalDateTime.now()), 7.071};
+        when(armazemAgencias.streamAgenciasProximasComDistancia(0.0, 0.0, 1000))
+            .thenReturn(java.util.stream.Stream.of(resultado1, resultado2));
+        List<String> linhas = new ArrayList<>();
+
+        int total = agenciaService.transmitirAgenciasProximas(0.0, 0.0, null, null,
+            (nome, distancia) -> linhas.add(nome + " " + FormatadorDistancia.formatar(distancia)));
+
+        assertEquals(2, total);
+        assertEquals(List.of("AGENCIA_1 distancia = 5.00", "AGENCIA_2 distancia = 7.07"), linhas);
+        verify(armazemAgencias, never()).findAgenciasProximasComDistancia(any(), any(), any());
+    }
+
+    @Test
+    @DisplayName("Deve transmitir agências do índice espacial quando habilitado")
+    void deveTransmitirAgenciasDoIndiceEspacial() throws Exception {
+        propriedades.getConsulta().setModo(ModoConsulta.INDICE);
+        when(indiceEspacial.buscarMaisProximas(0.0, 0.0, 10, 3.0))
+            .thenReturn(List.of(new AgenciaProxima(1L, "AGENCIA_1", 2.5)));
+        List<String> linhas = new ArrayList<>();
+
+        int total = agenciaService.transmitirAgenciasProximas(0.0, 0.0, 10, 3.0,
+            (nome, distancia) -> linhas.add(nome + " " + FormatadorDistancia.formatar(distancia)));
+
+        assertEquals(1, total);
+        assertEquals(List.of("AGENCIA_1 distancia = 2.50"), linhas);
+    }
+
+    @Test
+    @DisplayName("Deve ampliar a caixa até encontrar agências suficientes")
+    void deveAmpliarCaixaAteEncontrarAgenciasSuficientes() {
+        propriedades.getConsulta().setModo(ModoConsulta.CAIXA);
+        Object[] resultado = {1L, "AGENCIA_1", 0.0, 0.0, java.sql.Timestamp.valueOf(LocalDateTime.now()), 0.5};
+        List<Object[]> completos = java.util.Collections.nCopies(1000, resultado);
+        when(armazemAgencias.findAgenciasProximasNaCaixa(0.0, 0.0, 1.0, 1000)).thenReturn(List.of());
+        when(armazemAgencias.findAgenciasProximasNaCaixa(0.0, 0.0, 2.0, 1000)).thenReturn(List.<Object[]>of(resultado));
+        when(armazemAgencias.findAgenciasProximasNaCaixa(eq(0.0), eq(0.0), doubleThat(raio -> raio > 60.0), eq(1000)))
+            .thenReturn(completos);
+
+        DistanciaResponse response = agenciaService.buscarAgenciasProximas(0.0, 0.0);
+
+        assertEquals("AGENCIA_1", response.agenciaMaisProxima());
+        verify(armazemAgencias, times(3)).findAgenciasProximasNaCaixa(any(), any(), any(), any());
+        verify(armazemAgencias, never()).findAgenciasProximasComDistancia(any(), any(), any());
+    }
+
+    @Test
+    @DisplayName("Deve usar as faixas do código espacial no modo célula")
+    void deveUsarFaixasDoCodigoEspacialNoModoCelula() {
+        propriedades.getConsulta().setModo(ModoConsulta.CELULA);
+        Object[] resultado = {1L, "AGENCIA_1", 0.0, 0.0, java.sql.Timestamp.valueOf(LocalDateTime.now()), 0.5};
+        when(armazemAgencias.findAgenciasProximasNasCelulas(0.0, 0.0, 5.0, 10))
+            .thenReturn(List.<Object[]>of(resultado));
+        when(armazemAgencias.existsAgenciaProximaNasCelulas(10.0, -5.0, 1.0)).thenReturn(true);
+
+        DistanciaResponse response = agenciaService.buscarAgenciasProximas(0.0, 0.0, 10, 5.0);
+
+        assertEquals("AGENCIA_1", response.agenciaMaisProxima());
+        assertTrue(agenciaService.existeAgenciaProxima(10.0, -5.0));
+        verify(armazemAgencias, never()).findAgenciasProximasNaCaixa(any(), any(), any(), any());
+        verify(armazemAgencias, never()).existsAgenciaProximaNaCaixa(any(), any(), any());
+    }
+
+    @Test
+    @DisplayName("Deve usar a consulta geodésica no modo caixa quando a distância é geodésica")
+    void deveUsarConsultaGeodesicaQuandoDistanciaEhGeodesica() {
+        propriedades.getConsulta().setModo(ModoConsulta.CAIXA);
+        propriedades.getConsulta().setDistancia(TipoDistancia.GEODESICA);
+        Object[] resultado = {1L, "AGENCIA_1", 0.1, 0.0, null, 11.12};
+        when(armazemAgencias.findAgenciasProximasGeodesicas(0.0, 0.0, Double.MAX_VALUE, 1000))
+            .thenReturn(List.<Object[]>of(resultado));
+
+        DistanciaResponse response = agenciaService.buscarAgenciasProximas(0.0, 0.0);
+
+        assertEquals("AGENCIA_1", response.agenciaMaisProxima());
+        assertEquals(11.12, response.menorDistancia());
+        verify(armazemAgencias, never()).findAgenciasProximasNaCaixa(any(), any(), any(), any());
+    }
+
+    @Test
+    @DisplayName("Deve recorrer à consulta sem filtro quando a caixa passa do raio máximo")
+    void deveRecorrerAConsultaSemFiltroQuandoCaixaPassaDoRaioMaximo() {
+        propriedades.getConsulta().setModo(ModoConsulta.CAIXA);
+        propriedades.getConsulta().getCaixa().setRaioMaximo(4.0);
+        when(armazemAgencias.findAgenciasProximasNaCaixa(any(), any(), any(), any())).thenReturn(List.of());
+        when(armazemAgencias.findAgenciasProximasComDistancia(0.0, 0.0, 1000)).thenReturn(List.of());
+
+        DistanciaResponse response = agenciaService.buscarAgenciasProximas(0.0, 0.0);
+
+        assertEquals(0, response.totalAgencias());
+        verify(armazemAgencias, times(3)).findAgenciasProximasNaCaixa(any(), any(), any(), any());
+        verify(armazemAgencias).findAgenciasProximasComDistancia(0.0, 0.0, 1000);
+    }
+
+    @Test
+    @DisplayName("Deve cadastrar lote informando o resultado de cada item")
+    void deveCadastrarLoteInformandoResultadoDeCadaItem() {
+        when(armazemAgencias.existsAgenciaProximaNaCaixa(any(), any(), eq(1.0))).thenReturn(false);
+        when(armazemAgencias.existsAgenciaProximaNaCaixa(50.0, 50.0, 1.0)).thenReturn(true);
+        when(armazemAgencias.saveAll(anyList())).thenAnswer(invocacao -> {
+            List<Agencia> agencias = invocacao.getArgument(0);
+            long id = 100;
+            for (Agencia agencia : agencias) {
+                agencia.setId(id);
+                agencia.setNome("AGENCIA_" + id++);
+            }
+            return agencias;
+        });
+
+        CadastroLoteResponse response = agenciaService.cadastrarAgenciasEmLote(new CadastroLoteRequest(Arrays.asList(
+            new CadastroAgenciaRequest(0.0, 0.0),
+            new CadastroAgenciaRequest(0.5, 0.5),
+            new CadastroAgenciaRequest(200.0, 0.0),
+            new CadastroAgenciaRequest(50.0, 50.0),
+            null,
+            new CadastroAgenciaRequest(2.0, 0.0)
+        )));
+
+        assertEquals(6, response.total());
+        assertEquals(2, response.cadastradas());
+        assertEquals(4, response.rejeitadas());
+        assertEquals(List.of(StatusItem.CADASTRADA, StatusItem.REJEITADA, StatusItem.REJEITADA,
+                             StatusItem.REJEITADA, StatusItem.REJEITADA, StatusItem.CADASTRADA),
+                     response.itens().stream().map(CadastroLoteResponse.ItemCadastroLote::status).toList());
+        assertEquals(100L, response.itens().get(0).id());
+        assertEquals("AGENCIA_100", response.itens().get(0).nome());
+        assertEquals(101L, response.itens().get(5).id());
+        assertEquals("AGENCIA_101", response.itens().get(5).nome());
+        assertTrue(response.itens().get(1).mensagem().contains("lote"));
+        assertEquals("Posição X deve ser menor ou igual a 180", response.itens().get(2).mensagem());
+        assertEquals(4, response.itens().get(4).indice());
+
+        verify(armazemAgencias, never()).count();
+        verify(armazemAgencias).saveAll(argThat(agencias -> agencias.size() == 2));
+        verify(eventPublisher, times(2)).publishEvent(any(AgenciaCadastradaEvent.class));
+    }
+
+    @Test
+    @DisplayName("Deve lançar exceção quando o lote está vazio")
+    void deveLancarExcecaoQuandoLoteEstaVazio() {
+        assertThrows(
+            IllegalArgumentException.class,
+            () -> agenciaService.cadastrarAgenciasEmLote(new CadastroLoteRequest(List.of()))
+        );
+
+        verifyNoInteractions(armazemAgencias);
+    }
+
+    @Test
+    @DisplayName("Deve buscar agências próximas de cada posição do lote na ordem informada")
+    void deveBuscarAgenciasProximasDeCadaPosicaoDoLoteNaOrdemInformada() {
+        double[][] agencias = {{0.0, 0.0}, {10.0, 0.0}, {0.0, 10.0}};
+        Thread chamadora = Thread.currentThread();
+        when(armazemAgencias.findAgenciasProximasComDistancia(anyDouble(), anyDouble(), eq(2)))
+            .thenAnswer(invocacao -> {
+                assertSame(chamadora, Thread.currentThread());
+                double x = invocacao.getArgument(0);
+                double y = invocacao.getArgument(1);
+                List<Object[]> linhas = new ArrayList<>();
+                for (int i = 0; i < agencias.length; i++) {
+                    double distancia = Math.hypot(agencias[i][0] - x, agencias[i][1] - y);
+                    linhas.add(new Object[] {
+                        i + 1L, "AGENCIA_" + (i + 1), agencias[i][0], agencias[i][1], null, distancia});
+                }
+                linhas.sort(Comparator.comparingDouble(linha -> (Double) linha[5]));
+                return linhas.subList(0, 2);
+            });
+        List<DistanciaResponse.PosicaoUsuario> posicoes = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            posicoes.add(new DistanciaResponse.PosicaoUsuario(i % 3 == 1 ? 9.0 : 0.0, i % 3 == 2 ? 9.0 : 0.0));
+        }
+
+        ConsultaLoteResponse response = agenciaService.buscarAgenciasProximasEmLote(
+            new ConsultaLoteRequest(posicoes, 2, null));
+
+        assertEquals(500, response.total());
+        for (int i = 0; i < 500; i++) {
+            DistanciaResponse resultado = response.resultados().get(i);
+            assertEquals(posicoes.get(i), resultado.posicaoUsuario());
+            assertEquals(2, resultado.totalAgencias());
+            assertEquals("AGENCIA_" + (i % 3 + 1), resultado.agenciaMaisProxima());
+        }
+        verify(armazemAgencias, times(500)).findAgenciasProximasComDistancia(anyDouble(), anyDouble(), eq(2));
+        verify(armazemAgencias, never()).findAll();
+    }
+
+    @Test
+    @DisplayName("Deve limitar o lote consultado no banco fora do modo índice")
+    void deveLimitarLoteConsultadoNoBancoForaDoModoIndice() {
+        List<DistanciaResponse.PosicaoUsuario> posicoes = new ArrayList<>();
+        for (int i = 0; i < 501; i++) {
+            posicoes.add(new DistanciaResponse.PosicaoUsuario((double) i, 0.0));
+        }
+        ConsultaLoteRequest request = new ConsultaLoteRequest(posicoes, null, null);
+
+        IllegalArgumentException exception = assertThrows(
+            IllegalArgumentException.class,
+            () -> agenciaService.buscarAgenciasProximasEmLote(request)
+        );
+
+        assertEquals("Fora do modo indice o lote deve ter no máximo 500 posições", exception.getMessage());
+        verifyNoInteractions(armazemAgencias);
+
+        propriedades.getConsulta().setModo(ModoConsulta.INDICE);
+        when(indiceEspacial.instantaneo()).thenReturn(InstantaneoAgencias.de(List.of(
+            Agencia.builder().id(1L).nome("AGENCIA_1").posX(0.0).posY(0.0).build()
+        )));
+
+        assertEquals(501, agenciaService.buscarAgenciasProximasEmLote(request).total());
+    }
+
+    @Test
+    @DisplayName("Deve buscar lote no instantâneo do índice espacial quando habilitado")
+    void deveBuscarLoteNoInstantaneoDoIndiceEspacial() {
+        propriedades.getConsulta().setModo(ModoConsulta.INDICE);
+        when(indiceEspacial.instantaneo()).thenReturn(InstantaneoAgencias.de(List.of(
+            Agencia.builder().id(1L).nome("AGENCIA_1").posX(0.0).posY(0.0).build(),
+            Agencia.builder().id(2L).nome("AGENCIA_2").posX(3.0).posY(4.0).build()
+        )));
+
+        ConsultaLoteResponse response = agenciaService.buscarAgenciasProximasEmLote(new ConsultaLoteRequest(List.of(
+            new DistanciaResponse.PosicaoUsuario(0.0, 0.0)
+        ), null, 2.0));
+
+        assertEquals(1, response.total());
+        assertEquals(Map.of("AGENCIA_1", "distancia = 0.00"), response.resultados().get(0).agencias());
+        verifyNoInteractions(armazemAgencias);
+    }
+
+    @Test
+    @DisplayName("Deve rejeitar lote com posição inválida")
+    void deveRejeitarLoteComPosicaoInvalida() {
+        assertThrows(
+            IllegalArgumentException.class,
+            () -> agenciaService.buscarAgenciasProximasEmLote(new ConsultaLoteRequest(Arrays.asList(
+                new DistanciaResponse.PosicaoUsuario(0.0, 0.0), null), null, null))
+        );
+        assertThrows(
+            IllegalArgumentException.class,
+            () -> agenciaService.buscarAgenciasProximasEmLote(new ConsultaLoteRequest(List.of(
+                new DistanciaResponse.PosicaoUsuario(0.0, null)), null, null))
+        );
+
+        verifyNoInteractions(armazemAgencias);
     }
 
     @Test
     @DisplayName("Deve buscar agência por ID com sucesso")
     void deveBuscarAgenciaPorIdComSucesso() {
-        when(agenciaRepository.findById(1L)).thenReturn(Optional.of(agencia));
+        when(armazemAgencias.findById(1L)).thenReturn(Optional.of(agencia));
 
         Agencia resultado = agenciaService.buscarAgenciaPorId(1L);
 
@@ -135,13 +538,13 @@ class AgenciaServiceTest {
         assertEquals(10.0, resultado.getPosX());
         assertEquals(-5.0, resultado.getPosY());
 
-        verify(agenciaRepository).findById(1L);
+        verify(armazemAgencias).findById(1L);
     }
 
     @Test
     @DisplayName("Deve lançar exceção quando agência não for encontrada")
     void deveLancarExcecaoQuandoAgenciaNaoForEncontrada() {
-        when(agenciaRepository.findById(999L)).thenReturn(Optional.empty());
+        when(armazemAgencias.findById(999L)).thenReturn(Optional.empty());
 
         RuntimeException exception = assertThrows(
             RuntimeException.class,
@@ -149,7 +552,7 @@ class AgenciaServiceTest {
         );
 
         assertEquals("Agência não encontrada com ID: 999", exception.getMessage());
-        verify(agenciaRepository).findById(999L);
+        verify(armazemAgencias).findById(999L);
     }
 
     @Test
@@ -161,13 +564,13 @@ class AgenciaServiceTest {
         );
 
         assertEquals("ID da agência é obrigatório", exception.getMessage());
-        verify(agenciaRepository, never()).findById(any());
+        verify(armazemAgencias, never()).findById(any());
     }
 
     @Test
     @DisplayName("Deve lançar exceção quando tentar cadastrar agência muito próxima")
     void deveLancarExcecaoQuandoTentarCadastrarAgenciaMuitoProxima() {
-        when(agenciaRepository.existsAgenciaProxima(10.0, -5.0, 1.0)).thenReturn(true);
+        when(armazemAgencias.existsAgenciaProximaNaCaixa(10.0, -5.0, 1.0)).thenReturn(true);
 
         IllegalArgumentException exception = assertThrows(
             IllegalArgumentException.class,
@@ -176,38 +579,51 @@ class AgenciaServiceTest {
 
         assertEquals("Já existe uma agência próxima a esta posição. Distância mínima permitida: 1,0 unidades", 
                     exception.getMessage());
-        verify(agenciaRepository).existsAgenciaProxima(10.0, -5.0, 1.0);
-        verify(agenciaRepository, never()).save(any(Agencia.class));
+        verify(armazemAgencias).existsAgenciaProximaNaCaixa(10.0, -5.0, 1.0);
+        verify(armazemAgencias, never()).save(any(Agencia.class));
     }
 
     @Test
     @DisplayName("Deve permitir cadastro quando não há agência próxima")
     void devePermitirCadastroQuandoNaoHaAgenciaProxima() {
-        when(agenciaRepository.existsAgenciaProxima(10.0, -5.0, 1.0)).thenReturn(false);
-        when(agenciaRepository.count()).thenReturn(0L);
-        when(agenciaRepository.save(any(Agencia.class))).thenReturn(agencia);
+        when(armazemAgencias.existsAgenciaProximaNaCaixa(10.0, -5.0, 1.0)).thenReturn(false);
+        when(armazemAgencias.save(any(Agencia.class))).thenReturn(agencia);
 
         CadastroAgenciaResponse response = agenciaService.cadastrarAgencia(request);
 
         assertNotNull(response);
         assertEquals(1L, response.id());
         assertEquals("AGENCIA_1", response.nome());
-        verify(agenciaRepository).existsAgenciaProxima(10.0, -5.0, 1.0);
-        verify(agenciaRepository).save(any(Agencia.class));
+        verify(armazemAgencias).existsAgenciaProximaNaCaixa(10.0, -5.0, 1.0);
+        verify(armazemAgencias).save(any(Agencia.class));
+    }
+
+    @Test
+    @DisplayName("Deve verificar distância mínima no índice espacial quando habilitado")
+    void deveVerificarDistanciaMinimaNoIndiceEspacial() {
+        propriedades.getConsulta().setModo(ModoConsulta.INDICE);
+        when(indiceEspacial.existeAgenciaProxima(10.0, -5.0, 1.0)).thenReturn(true);
+
+        assertThrows(
+            IllegalArgumentException.class,
+            () -> agenciaService.cadastrarAgencia(request)
+        );
+
+        verify(armazemAgencias, never()).existsAgenciaProximaNaCaixa(any(), any(), any());
+        verify(armazemAgencias, never()).save(any(Agencia.class));
     }
 
     @Test
     @DisplayName("Deve permitir cadastro quando agência está na distância mínima exata")
     void devePermitirCadastroQuandoAgenciaEstaNaDistanciaMinimaExata() {
         CadastroAgenciaRequest requestDistanciaExata = new CadastroAgenciaRequest(11.0, -5.0);
-        when(agenciaRepository.existsAgenciaProxima(11.0, -5.0, 1.0)).thenReturn(false);
-        when(agenciaRepository.count()).thenReturn(0L);
-        when(agenciaRepository.save(any(Agencia.class))).thenReturn(agencia);
+        when(armazemAgencias.existsAgenciaProximaNaCaixa(11.0, -5.0, 1.0)).thenReturn(false);
+        when(armazemAgencias.save(any(Agencia.class))).thenReturn(agencia);
 
         CadastroAgenciaResponse response = agenciaService.cadastrarAgencia(requestDistanciaExata);
 
         assertNotNull(response);
-        verify(agenciaRepository).existsAgenciaProxima(11.0, -5.0, 1.0);
-        verify(agenciaRepository).save(any(Agencia.class));
+        verify(armazemAgencias).existsAgenciaProximaNaCaixa(11.0, -5.0, 1.0);
+        verify(armazemAgencias).save(any(Agencia.class));
     }
 }
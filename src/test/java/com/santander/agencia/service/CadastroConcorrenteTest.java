@@ -0,0 +1,109 @@
+package com.santander.agencia.service;
+
+import com.santander.agencia.config.AgenciaProperties;
+import com.santander.agencia.config.ModoConsulta;
+import com.santander.agencia.dto.CadastroAgenciaRequest;
+import com.santander.agencia.index.IndiceEspacialAgencias;
+import com.santander.agencia.model.Agencia;
+import com.santander.agencia.repository.AgenciaRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:cadastro_concorrente;DB_CLOSE_DELAY=-1")
+@ActiveProfiles("test")
+@DisplayName("Testes de cadastro concorrente de agências")
+class CadastroConcorrenteTest {
+
+    private static final int THREADS = 16;
+    private static final int TENTATIVAS_POR_THREAD = 20;
+
+    @Autowired
+    private AgenciaService agenciaService;
+
+    @Autowired
+    private AgenciaRepository agenciaRepository;
+
+    @Autowired
+    private IndiceEspacialAgencias indiceEspacial;
+
+    @Autowired
+    private AgenciaProperties propriedades;
+
+    @BeforeEach
+    void setUp() {
+        agenciaRepository.deleteAll();
+        indiceEspacial.carregar(List.of());
+    }
+
+    @AfterEach
+    void tearDown() {
+        propriedades.getConsulta().setModo(ModoConsulta.SQL);
+    }
+
+    @ParameterizedTest
+    @EnumSource(ModoConsulta.class)
+    @DisplayName("Deve rejeitar cadastros concorrentes a menos da distância mínima")
+    void deveRejeitarCadastrosConcorrentesProximos(ModoConsulta modo) throws Exception {
+        propriedades.getConsulta().setModo(modo);
+        AtomicInteger aceitos = new AtomicInteger();
+        AtomicInteger rejeitados = new AtomicInteger();
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch largada = new CountDownLatch(1);
+        List<Future<?>> futuros = new ArrayList<>();
+        for (int thread = 0; thread < THREADS; thread++) {
+            Random random = new Random(thread);
+            futuros.add(executor.submit(() -> {
+                largada.await();
+                for (int i = 0; i < TENTATIVAS_POR_THREAD; i++) {
+                    CadastroAgenciaRequest request = new CadastroAgenciaRequest(
+                        random.nextDouble() * 5, random.nextDouble() * 5);
+                    try {
+                        agenciaService.cadastrarAgencia(request);
+                        aceitos.incrementAndGet();
+                    } catch (IllegalArgumentException e) {
+                        rejeitados.incrementAndGet();
+                    }
+                }
+                return null;
+            }));
+        }
+        largada.countDown();
+        for (Future<?> futuro : futuros) {
+            futuro.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        List<Agencia> agencias = agenciaRepository.findAll();
+        assertEquals(aceitos.get(), agencias.size());
+        assertEquals(THREADS * TENTATIVAS_POR_THREAD, aceitos.get() + rejeitados.get());
+        assertTrue(rejeitados.get() > 0);
+        for (int i = 0; i < agencias.size(); i++) {
+            for (int j = i + 1; j < agencias.size(); j++) {
+                Agencia a = agencias.get(i);
+                Agencia b = agencias.get(j);
+                double distancia = agenciaService.calcularDistancia(a, b.getPosX(), b.getPosY());
+                assertTrue(distancia > 1.0, String.format(
+                    "Agências %d e %d cadastradas a %.3f unidades", a.getId(), b.getId(), distancia));
+            }
+        }
+    }
+}